@@ -0,0 +1,70 @@
+package org.codehaus.plexus.components.io.benchmarks;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributeUtils;
+import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PlexusIoResourceAttributeUtils#getFileAttributesByPath(File)} for a whole tree.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 5 )
+@State( Scope.Benchmark )
+public class AttributeBenchmark
+{
+    @Param( { "10000", "100000", "1000000" } )
+    int files;
+
+    @Param( { "10", "100" } )
+    int fanOut;
+
+    private File baseDir;
+
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        baseDir = TreeGenerator.generate( files, fanOut );
+    }
+
+    @Benchmark
+    public Map<String, PlexusIoResourceAttributes> getFileAttributesByPath()
+        throws IOException
+    {
+        return PlexusIoResourceAttributeUtils.getFileAttributesByPath( baseDir );
+    }
+}
@@ -0,0 +1,137 @@
+package org.codehaus.plexus.components.io.benchmarks;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The default file system, whose paths lead to the {@link CountingFileSystemProvider}.
+ */
+class CountingFileSystem
+    extends FileSystem
+{
+    private final CountingFileSystemProvider provider;
+
+    private final FileSystem delegate;
+
+    CountingFileSystem( CountingFileSystemProvider provider, FileSystem delegate )
+    {
+        this.provider = provider;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public FileSystemProvider provider()
+    {
+        return provider;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        delegate.close();
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public boolean isReadOnly()
+    {
+        return delegate.isReadOnly();
+    }
+
+    @Override
+    public String getSeparator()
+    {
+        return delegate.getSeparator();
+    }
+
+    @Override
+    public Iterable<Path> getRootDirectories()
+    {
+        final List<Path> result = new ArrayList<Path>();
+        for ( Path root : delegate.getRootDirectories() )
+        {
+            result.add( provider.wrap( root ) );
+        }
+        return result;
+    }
+
+    @Override
+    public Iterable<FileStore> getFileStores()
+    {
+        return delegate.getFileStores();
+    }
+
+    @Override
+    public Set<String> supportedFileAttributeViews()
+    {
+        return delegate.supportedFileAttributeViews();
+    }
+
+    @Override
+    public Path getPath( String first, String... more )
+    {
+        return provider.wrap( delegate.getPath( first, more ) );
+    }
+
+    @Override
+    public PathMatcher getPathMatcher( String syntaxAndPattern )
+    {
+        final PathMatcher matcher = delegate.getPathMatcher( syntaxAndPattern );
+        return new PathMatcher()
+        {
+            public boolean matches( Path path )
+            {
+                return matcher.matches( CountingFileSystemProvider.unwrap( path ) );
+            }
+        };
+    }
+
+    @Override
+    public UserPrincipalLookupService getUserPrincipalLookupService()
+    {
+        return delegate.getUserPrincipalLookupService();
+    }
+
+    @Override
+    public WatchService newWatchService()
+        throws IOException
+    {
+        return delegate.newWatchService();
+    }
+
+    Path wrap( Path path )
+    {
+        return provider.wrap( path );
+    }
+}
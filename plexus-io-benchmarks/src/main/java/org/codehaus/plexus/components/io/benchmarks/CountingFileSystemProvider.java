@@ -0,0 +1,396 @@
+package org.codehaus.plexus.components.io.benchmarks;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A file system provider, which counts the calls of every operation, before delegating them to the
+ * platforms default provider. Install it as the default provider with
+ * <code>-Djava.nio.file.spi.DefaultFileSystemProvider=org.codehaus.plexus.components.io.benchmarks.CountingFileSystemProvider</code>.
+ * <p>
+ * Only calls through <code>java.nio.file</code> are counted: The methods of <code>java.io.File</code>
+ * (like <code>lastModified()</code>, or <code>isDirectory()</code>) call the operating system directly,
+ * and aren't counted at all, so the counts are no measure of the system calls.
+ */
+public class CountingFileSystemProvider
+    extends FileSystemProvider
+{
+    private static final ConcurrentMap<String, AtomicLong> CALLS = new ConcurrentHashMap<String, AtomicLong>();
+
+    private final FileSystemProvider delegate;
+
+    private final CountingFileSystem fileSystem;
+
+    /**
+     * Invoked by {@link java.nio.file.FileSystems#getDefault()}.
+     */
+    public CountingFileSystemProvider( FileSystemProvider delegate )
+    {
+        this.delegate = delegate;
+        this.fileSystem = new CountingFileSystem( this, delegate.getFileSystem( URI.create( "file:///" ) ) );
+    }
+
+    /**
+     * Returns, whether this provider is the default provider.
+     */
+    public static boolean isInstalled()
+    {
+        return java.nio.file.FileSystems.getDefault().provider() instanceof CountingFileSystemProvider;
+    }
+
+    /**
+     * Returns the number of calls of every operation since the last {@link #reset()}, by operation.
+     */
+    public static Map<String, Long> getCalls()
+    {
+        final Map<String, Long> result = new TreeMap<String, Long>();
+        for ( Map.Entry<String, AtomicLong> entry : CALLS.entrySet() )
+        {
+            result.put( entry.getKey(), entry.getValue().get() );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of calls of the given operation since the last {@link #reset()}.
+     */
+    public static long getCalls( String operation )
+    {
+        final AtomicLong calls = CALLS.get( operation );
+        return calls == null ? 0 : calls.get();
+    }
+
+    /**
+     * Returns the number of calls of all operations since the last {@link #reset()}.
+     */
+    public static long getTotalCalls()
+    {
+        long result = 0;
+        for ( AtomicLong calls : CALLS.values() )
+        {
+            result += calls.get();
+        }
+        return result;
+    }
+
+    public static void reset()
+    {
+        for ( AtomicLong calls : CALLS.values() )
+        {
+            calls.set( 0 );
+        }
+    }
+
+    static void count( String operation )
+    {
+        AtomicLong calls = CALLS.get( operation );
+        if ( calls == null )
+        {
+            final AtomicLong created = new AtomicLong();
+            calls = CALLS.putIfAbsent( operation, created );
+            if ( calls == null )
+            {
+                calls = created;
+            }
+        }
+        calls.incrementAndGet();
+    }
+
+    Path wrap( Path path )
+    {
+        return path == null ? null : new CountingPath( fileSystem, path );
+    }
+
+    static Path unwrap( Path path )
+    {
+        return path instanceof CountingPath ? ( (CountingPath) path ).getDelegate() : path;
+    }
+
+    @Override
+    public String getScheme()
+    {
+        return delegate.getScheme();
+    }
+
+    @Override
+    public FileSystem newFileSystem( URI uri, Map<String, ?> env )
+        throws IOException
+    {
+        return delegate.newFileSystem( uri, env );
+    }
+
+    @Override
+    public FileSystem getFileSystem( URI uri )
+    {
+        return fileSystem;
+    }
+
+    @Override
+    public Path getPath( URI uri )
+    {
+        return wrap( delegate.getPath( uri ) );
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel( Path path, Set<? extends OpenOption> options,
+                                               FileAttribute<?>... attrs )
+        throws IOException
+    {
+        count( "newByteChannel" );
+        return delegate.newByteChannel( unwrap( path ), options, attrs );
+    }
+
+    @Override
+    public FileChannel newFileChannel( Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs )
+        throws IOException
+    {
+        count( "newFileChannel" );
+        return delegate.newFileChannel( unwrap( path ), options, attrs );
+    }
+
+    @Override
+    public AsynchronousFileChannel newAsynchronousFileChannel( Path path, Set<? extends OpenOption> options,
+                                                              ExecutorService executor, FileAttribute<?>... attrs )
+        throws IOException
+    {
+        count( "newAsynchronousFileChannel" );
+        return delegate.newAsynchronousFileChannel( unwrap( path ), options, executor, attrs );
+    }
+
+    @Override
+    public DirectoryStream<Path> newDirectoryStream( Path dir, final DirectoryStream.Filter<? super Path> filter )
+        throws IOException
+    {
+        count( "newDirectoryStream" );
+        final DirectoryStream<Path> stream =
+            delegate.newDirectoryStream( unwrap( dir ), new DirectoryStream.Filter<Path>()
+            {
+                public boolean accept( Path entry )
+                    throws IOException
+                {
+                    return filter.accept( wrap( entry ) );
+                }
+            } );
+        return new DirectoryStream<Path>()
+        {
+            public Iterator<Path> iterator()
+            {
+                final Iterator<Path> iterator = stream.iterator();
+                return new Iterator<Path>()
+                {
+                    public boolean hasNext()
+                    {
+                        return iterator.hasNext();
+                    }
+
+                    public Path next()
+                    {
+                        return wrap( iterator.next() );
+                    }
+
+                    public void remove()
+                    {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            public void close()
+                throws IOException
+            {
+                stream.close();
+            }
+        };
+    }
+
+    @Override
+    public void createDirectory( Path dir, FileAttribute<?>... attrs )
+        throws IOException
+    {
+        count( "createDirectory" );
+        delegate.createDirectory( unwrap( dir ), attrs );
+    }
+
+    @Override
+    public void createSymbolicLink( Path link, Path target, FileAttribute<?>... attrs )
+        throws IOException
+    {
+        count( "createSymbolicLink" );
+        delegate.createSymbolicLink( unwrap( link ), unwrap( target ), attrs );
+    }
+
+    @Override
+    public void createLink( Path link, Path existing )
+        throws IOException
+    {
+        count( "createLink" );
+        delegate.createLink( unwrap( link ), unwrap( existing ) );
+    }
+
+    @Override
+    public Path readSymbolicLink( Path link )
+        throws IOException
+    {
+        count( "readSymbolicLink" );
+        return wrap( delegate.readSymbolicLink( unwrap( link ) ) );
+    }
+
+    @Override
+    public void delete( Path path )
+        throws IOException
+    {
+        count( "delete" );
+        delegate.delete( unwrap( path ) );
+    }
+
+    @Override
+    public void copy( Path source, Path target, CopyOption... options )
+        throws IOException
+    {
+        count( "copy" );
+        delegate.copy( unwrap( source ), unwrap( target ), options );
+    }
+
+    @Override
+    public void move( Path source, Path target, CopyOption... options )
+        throws IOException
+    {
+        count( "move" );
+        delegate.move( unwrap( source ), unwrap( target ), options );
+    }
+
+    @Override
+    public boolean isSameFile( Path path, Path path2 )
+        throws IOException
+    {
+        count( "isSameFile" );
+        return delegate.isSameFile( unwrap( path ), unwrap( path2 ) );
+    }
+
+    @Override
+    public boolean isHidden( Path path )
+        throws IOException
+    {
+        count( "isHidden" );
+        return delegate.isHidden( unwrap( path ) );
+    }
+
+    @Override
+    public FileStore getFileStore( Path path )
+        throws IOException
+    {
+        count( "getFileStore" );
+        return delegate.getFileStore( unwrap( path ) );
+    }
+
+    @Override
+    public void checkAccess( Path path, AccessMode... modes )
+        throws IOException
+    {
+        count( "checkAccess" );
+        delegate.checkAccess( unwrap( path ), modes );
+    }
+
+    /**
+     * Returns a view, which counts the calls of its methods (except for <code>name()</code>)
+     * as operations like <code>PosixFileAttributeView.readAttributes</code>.
+     */
+    @Override
+    public <V extends FileAttributeView> V getFileAttributeView( Path path, final Class<V> type,
+                                                                 LinkOption... options )
+    {
+        final V view = delegate.getFileAttributeView( unwrap( path ), type, options );
+        if ( view == null )
+        {
+            return null;
+        }
+        final Object proxy = Proxy.newProxyInstance( type.getClassLoader(), new Class<?>[]{ type },
+                                                     new InvocationHandler()
+        {
+            public Object invoke( Object p, Method method, Object[] args )
+                throws Throwable
+            {
+                if ( !"name".equals( method.getName() ) )
+                {
+                    count( type.getSimpleName() + "." + method.getName() );
+                }
+                try
+                {
+                    return method.invoke( view, args );
+                }
+                catch ( InvocationTargetException e )
+                {
+                    throw e.getCause();
+                }
+            }
+        } );
+        return type.cast( proxy );
+    }
+
+    @Override
+    public <A extends BasicFileAttributes> A readAttributes( Path path, Class<A> type, LinkOption... options )
+        throws IOException
+    {
+        count( "readAttributes" );
+        return delegate.readAttributes( unwrap( path ), type, options );
+    }
+
+    @Override
+    public Map<String, Object> readAttributes( Path path, String attributes, LinkOption... options )
+        throws IOException
+    {
+        count( "readAttributes" );
+        return delegate.readAttributes( unwrap( path ), attributes, options );
+    }
+
+    @Override
+    public void setAttribute( Path path, String attribute, Object value, LinkOption... options )
+        throws IOException
+    {
+        count( "setAttribute" );
+        delegate.setAttribute( unwrap( path ), attribute, value, options );
+    }
+}
@@ -0,0 +1,225 @@
+package org.codehaus.plexus.components.io.benchmarks;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A path of the {@link CountingFileSystem}. Operations, which access the file system, go through
+ * the {@link CountingFileSystemProvider}, all others are delegated to the platforms path.
+ */
+class CountingPath
+    implements Path
+{
+    private final CountingFileSystem fileSystem;
+
+    private final Path delegate;
+
+    CountingPath( CountingFileSystem fileSystem, Path delegate )
+    {
+        this.fileSystem = fileSystem;
+        this.delegate = delegate;
+    }
+
+    Path getDelegate()
+    {
+        return delegate;
+    }
+
+    private static Path unwrap( Path path )
+    {
+        if ( !( path instanceof CountingPath ) )
+        {
+            throw new ProviderMismatchException();
+        }
+        return ( (CountingPath) path ).delegate;
+    }
+
+    private Path wrap( Path path )
+    {
+        return fileSystem.wrap( path );
+    }
+
+    public FileSystem getFileSystem()
+    {
+        return fileSystem;
+    }
+
+    public boolean isAbsolute()
+    {
+        return delegate.isAbsolute();
+    }
+
+    public Path getRoot()
+    {
+        return wrap( delegate.getRoot() );
+    }
+
+    public Path getFileName()
+    {
+        return wrap( delegate.getFileName() );
+    }
+
+    public Path getParent()
+    {
+        return wrap( delegate.getParent() );
+    }
+
+    public int getNameCount()
+    {
+        return delegate.getNameCount();
+    }
+
+    public Path getName( int index )
+    {
+        return wrap( delegate.getName( index ) );
+    }
+
+    public Path subpath( int beginIndex, int endIndex )
+    {
+        return wrap( delegate.subpath( beginIndex, endIndex ) );
+    }
+
+    public boolean startsWith( Path other )
+    {
+        return other instanceof CountingPath && delegate.startsWith( unwrap( other ) );
+    }
+
+    public boolean startsWith( String other )
+    {
+        return delegate.startsWith( other );
+    }
+
+    public boolean endsWith( Path other )
+    {
+        return other instanceof CountingPath && delegate.endsWith( unwrap( other ) );
+    }
+
+    public boolean endsWith( String other )
+    {
+        return delegate.endsWith( other );
+    }
+
+    public Path normalize()
+    {
+        return wrap( delegate.normalize() );
+    }
+
+    public Path resolve( Path other )
+    {
+        return wrap( delegate.resolve( unwrap( other ) ) );
+    }
+
+    public Path resolve( String other )
+    {
+        return wrap( delegate.resolve( other ) );
+    }
+
+    public Path resolveSibling( Path other )
+    {
+        return wrap( delegate.resolveSibling( unwrap( other ) ) );
+    }
+
+    public Path resolveSibling( String other )
+    {
+        return wrap( delegate.resolveSibling( other ) );
+    }
+
+    public Path relativize( Path other )
+    {
+        return wrap( delegate.relativize( unwrap( other ) ) );
+    }
+
+    public URI toUri()
+    {
+        return delegate.toUri();
+    }
+
+    public Path toAbsolutePath()
+    {
+        return wrap( delegate.toAbsolutePath() );
+    }
+
+    public Path toRealPath( LinkOption... options )
+        throws IOException
+    {
+        CountingFileSystemProvider.count( "toRealPath" );
+        return wrap( delegate.toRealPath( options ) );
+    }
+
+    public File toFile()
+    {
+        return new File( toString() );
+    }
+
+    public WatchKey register( WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers )
+        throws IOException
+    {
+        return delegate.register( watcher, events, modifiers );
+    }
+
+    public WatchKey register( WatchService watcher, WatchEvent.Kind<?>... events )
+        throws IOException
+    {
+        return delegate.register( watcher, events );
+    }
+
+    public Iterator<Path> iterator()
+    {
+        final List<Path> names = new ArrayList<Path>();
+        for ( Path name : delegate )
+        {
+            names.add( wrap( name ) );
+        }
+        return names.iterator();
+    }
+
+    public int compareTo( Path other )
+    {
+        return delegate.compareTo( unwrap( other ) );
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        return o instanceof CountingPath && delegate.equals( ( (CountingPath) o ).delegate );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return delegate.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,125 @@
+package org.codehaus.plexus.components.io.benchmarks;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.functions.InputStreamTransformer;
+import org.codehaus.plexus.components.io.resources.BufferingPolicy;
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.components.io.resources.proxy.PlexusIoProxyResourceCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the transformation of resources through a stream transformer, which is buffered
+ * by <code>Deferred</code>, when a collection resolves a resource, and reading the transformed contents.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@State( Scope.Benchmark )
+public class DeferredBenchmark
+{
+    @Param( { "10000" } )
+    int files;
+
+    @Param( { "100" } )
+    int fanOut;
+
+    @Param( { "false", "true" } )
+    boolean offHeap;
+
+    private PlexusIoProxyResourceCollection collection;
+
+    private List<PlexusIoResource> resources;
+
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        final PlexusIoFileResourceCollection src = new PlexusIoFileResourceCollection();
+        src.setBaseDir( TreeGenerator.generate( files, fanOut ) );
+        collection = new PlexusIoProxyResourceCollection( src );
+        collection.setBufferingPolicy( new BufferingPolicy( BufferingPolicy.DEFAULT_THRESHOLD, null,
+                                                            BufferingPolicy.UNLIMITED, offHeap ) );
+        collection.setStreamTransformer( new InputStreamTransformer()
+        {
+            public InputStream transform( PlexusIoResource resource, InputStream inputStream )
+                throws IOException
+            {
+                return new FilterInputStream( inputStream )
+                {
+                };
+            }
+        } );
+
+        resources = new ArrayList<PlexusIoResource>();
+        final Iterator<PlexusIoResource> it = src.getResources();
+        while ( it.hasNext() )
+        {
+            final PlexusIoResource resource = it.next();
+            if ( resource.isFile() )
+            {
+                resources.add( resource );
+            }
+        }
+    }
+
+    @Benchmark
+    public long resolveAndRead()
+        throws IOException
+    {
+        long total = 0;
+        for ( PlexusIoResource resource : resources )
+        {
+            final InputStream contents = collection.resolve( resource ).getContents();
+            try
+            {
+                for ( int n = contents.read( buffer ); n != -1; n = contents.read( buffer ) )
+                {
+                    total += n;
+                }
+            }
+            finally
+            {
+                contents.close();
+            }
+        }
+        return total;
+    }
+}
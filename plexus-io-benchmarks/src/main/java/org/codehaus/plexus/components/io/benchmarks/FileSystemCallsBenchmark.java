@@ -0,0 +1,175 @@
+package org.codehaus.plexus.components.io.benchmarks;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.components.io.resources.ResourceFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the calls to the <code>java.nio.file</code> provider per resource, which are made by creating
+ * resources, and asking them for their size, last modification time, and type. The
+ * {@link #collection(Calls, Blackhole) collection} benchmark scans a tree with
+ * {@link PlexusIoFileResourceCollection}, and the {@link #resourceFactory(Calls, Blackhole) resourceFactory}
+ * benchmark creates the resources for the same files through the public {@link ResourceFactory} methods.
+ * <p>
+ * The calls are counted by the {@link CountingFileSystemProvider}, and reported as secondary results
+ * (per resource), next to the average time. These are not system calls: calls, which are made through
+ * <code>java.io.File</code> (like the <code>DirectoryScanner</code> in the <code>scan</code> mode), aren't
+ * visible to the provider, so the counts compare the NIO code paths only. The fork installs the provider
+ * through <code>jvmArgsAppend</code>; passing <code>-jvmArgsAppend</code> on the command line replaces that,
+ * so it must repeat the <code>java.nio.file.spi.DefaultFileSystemProvider</code> property.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( value = 1, jvmArgsAppend = "-Djava.nio.file.spi.DefaultFileSystemProvider="
+    + "org.codehaus.plexus.components.io.benchmarks.CountingFileSystemProvider" )
+@Warmup( iterations = 2 )
+@Measurement( iterations = 5 )
+@State( Scope.Benchmark )
+public class FileSystemCallsBenchmark
+{
+    @Param( { "10000" } )
+    int files;
+
+    @Param( { "10", "100" } )
+    int fanOut;
+
+    @Param( { "scan", "streaming", "parallel" } )
+    String mode;
+
+    private File baseDir;
+
+    private File[] fileArray;
+
+    /**
+     * The provider calls per resource of the last invocation.
+     */
+    @State( Scope.Thread )
+    @AuxCounters( AuxCounters.Type.EVENTS )
+    public static class Calls
+    {
+        public double readAttributes;
+
+        public double newDirectoryStream;
+
+        public double other;
+
+        public double total;
+
+        @Setup( Level.Invocation )
+        public void reset()
+        {
+            CountingFileSystemProvider.reset();
+        }
+
+        void record( int resources )
+        {
+            final long reads = CountingFileSystemProvider.getCalls( "readAttributes" );
+            final long lists = CountingFileSystemProvider.getCalls( "newDirectoryStream" );
+            final long all = CountingFileSystemProvider.getTotalCalls();
+            readAttributes = (double) reads / resources;
+            newDirectoryStream = (double) lists / resources;
+            other = (double) ( all - reads - lists ) / resources;
+            total = (double) all / resources;
+        }
+    }
+
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        if ( !CountingFileSystemProvider.isInstalled() )
+        {
+            throw new IllegalStateException( "The CountingFileSystemProvider isn't the default provider" );
+        }
+        baseDir = TreeGenerator.generate( files, fanOut );
+        final String[] names = TreeGenerator.names( files, fanOut );
+        fileArray = new File[names.length];
+        for ( int i = 0; i < names.length; i++ )
+        {
+            fileArray[i] = new File( baseDir, names[i] );
+        }
+    }
+
+    private static void consume( PlexusIoResource resource, Blackhole blackhole )
+    {
+        blackhole.consume( resource.getSize() );
+        blackhole.consume( resource.getLastModified() );
+        blackhole.consume( resource.isFile() );
+        blackhole.consume( resource.isDirectory() );
+        blackhole.consume( resource.isExisting() );
+    }
+
+    @Benchmark
+    public void collection( Calls calls, Blackhole blackhole )
+        throws IOException
+    {
+        final PlexusIoFileResourceCollection collection = new PlexusIoFileResourceCollection();
+        collection.setBaseDir( baseDir );
+        collection.setIncludingEmptyDirectories( false );
+        collection.setStreaming( "streaming".equals( mode ) );
+        collection.setParallelScan( "parallel".equals( mode ) );
+        final Iterator<PlexusIoResource> resources = collection.getResources();
+        int count = 0;
+        while ( resources.hasNext() )
+        {
+            final PlexusIoResource resource = resources.next();
+            if ( resource.isFile() )
+            {
+                consume( resource, blackhole );
+                count++;
+            }
+        }
+        if ( resources instanceof Closeable )
+        {
+            ( (Closeable) resources ).close();
+        }
+        calls.record( count );
+    }
+
+    @Benchmark
+    public void resourceFactory( Calls calls, Blackhole blackhole )
+        throws IOException
+    {
+        for ( File file : fileArray )
+        {
+            consume( ResourceFactory.createResource( file ), blackhole );
+        }
+        calls.record( fileArray.length );
+    }
+}
@@ -0,0 +1,106 @@
+package org.codehaus.plexus.components.io.benchmarks;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.filemappers.FileExtensionMapper;
+import org.codehaus.plexus.components.io.filemappers.FileMapper;
+import org.codehaus.plexus.components.io.filemappers.FlattenFileMapper;
+import org.codehaus.plexus.components.io.filemappers.RegExpFileMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures chains of file mappers, applied the way a resource collection applies them, per name.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@State( Scope.Benchmark )
+public class MapperBenchmark
+{
+    static final int NAMES = 10000;
+
+    @Param( { "regexp", "extension", "regexp+extension", "regexp+extension+flatten" } )
+    String chain;
+
+    private FileMapper[] mappers;
+
+    private String[] names;
+
+    @Setup
+    public void setUp()
+    {
+        final String[] parts = chain.split( "\\+" );
+        mappers = new FileMapper[parts.length];
+        for ( int i = 0; i < parts.length; i++ )
+        {
+            mappers[i] = newMapper( parts[i] );
+        }
+        names = TreeGenerator.names( NAMES, 10 );
+    }
+
+    private static FileMapper newMapper( String type )
+    {
+        if ( "regexp".equals( type ) )
+        {
+            final RegExpFileMapper mapper = new RegExpFileMapper();
+            mapper.setPattern( "^dir(\\d+)/" );
+            mapper.setReplacement( "directory-$1/" );
+            return mapper;
+        }
+        if ( "extension".equals( type ) )
+        {
+            final FileExtensionMapper mapper = new FileExtensionMapper();
+            mapper.setTargetExtension( ".class" );
+            return mapper;
+        }
+        if ( "flatten".equals( type ) )
+        {
+            return new FlattenFileMapper();
+        }
+        throw new IllegalArgumentException( "Unknown mapper: " + type );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( NAMES )
+    public void getMappedFileName( Blackhole blackhole )
+    {
+        for ( String name : names )
+        {
+            for ( FileMapper mapper : mappers )
+            {
+                name = mapper.getMappedFileName( name );
+            }
+            blackhole.consume( name );
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.codehaus.plexus.components.io.benchmarks;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PlexusIoFileResourceCollection#getResources()}, including the creation
+ * of all resources, in the different scan modes.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@State( Scope.Benchmark )
+public class ScanBenchmark
+{
+    @Param( { "10000", "100000", "1000000" } )
+    int files;
+
+    @Param( { "10", "100" } )
+    int fanOut;
+
+    @Param( { "scan", "streaming", "parallel" } )
+    String mode;
+
+    @Param( { "**", "**/*.java" } )
+    String include;
+
+    private PlexusIoFileResourceCollection collection;
+
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        collection = new PlexusIoFileResourceCollection();
+        collection.setBaseDir( TreeGenerator.generate( files, fanOut ) );
+        collection.setIncludes( new String[]{ include } );
+        collection.setStreaming( "streaming".equals( mode ) );
+        collection.setParallelScan( "parallel".equals( mode ) );
+    }
+
+    @Benchmark
+    public void getResources( Blackhole blackhole )
+        throws IOException
+    {
+        final Iterator<PlexusIoResource> resources = collection.getResources();
+        while ( resources.hasNext() )
+        {
+            blackhole.consume( resources.next() );
+        }
+        if ( resources instanceof Closeable )
+        {
+            ( (Closeable) resources ).close();
+        }
+    }
+}
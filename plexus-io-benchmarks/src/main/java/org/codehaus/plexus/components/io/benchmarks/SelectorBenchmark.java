@@ -0,0 +1,135 @@
+package org.codehaus.plexus.components.io.benchmarks;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.fileselectors.FileInfo;
+import org.codehaus.plexus.components.io.fileselectors.IncludeExcludeFileSelector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link IncludeExcludeFileSelector#isSelected(FileInfo)} per name. No file system access.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@State( Scope.Benchmark )
+public class SelectorBenchmark
+{
+    static final int NAMES = 10000;
+
+    /**
+     * Include patterns, separated by ','; an empty string means "include all".
+     */
+    @Param( { "", "**/*.java", "**/*.java,**/*.xml,dir1/**/*.txt" } )
+    String includes;
+
+    @Param( { "false", "true" } )
+    boolean useDefaultExcludes;
+
+    @Param( { "10", "100" } )
+    int fanOut;
+
+    private IncludeExcludeFileSelector selector;
+
+    private FileInfo[] infos;
+
+    @Setup
+    public void setUp()
+    {
+        selector = new IncludeExcludeFileSelector();
+        selector.setIncludes( includes.length() == 0 ? null : includes.split( "," ) );
+        selector.setExcludes( new String[]{ "**/file1.*" } );
+        selector.setUseDefaultExcludes( useDefaultExcludes );
+
+        final String[] names = TreeGenerator.names( NAMES, fanOut );
+        infos = new FileInfo[names.length];
+        for ( int i = 0; i < names.length; i++ )
+        {
+            infos[i] = new NameInfo( names[i] );
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( NAMES )
+    public int isSelected()
+        throws IOException
+    {
+        int selected = 0;
+        for ( FileInfo info : infos )
+        {
+            if ( selector.isSelected( info ) )
+            {
+                selected++;
+            }
+        }
+        return selected;
+    }
+
+    private static class NameInfo
+        implements FileInfo
+    {
+        private final String name;
+
+        NameInfo( String name )
+        {
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public InputStream getContents()
+            throws IOException
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean isFile()
+        {
+            return true;
+        }
+
+        public boolean isDirectory()
+        {
+            return false;
+        }
+
+        public boolean isSymbolicLink()
+        {
+            return false;
+        }
+    }
+}
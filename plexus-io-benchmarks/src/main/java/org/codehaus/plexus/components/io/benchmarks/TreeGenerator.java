@@ -0,0 +1,114 @@
+package org.codehaus.plexus.components.io.benchmarks;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Generates synthetic directory trees for the benchmarks. A tree with <code>files</code> files
+ * and a fan-out of <code>fanOut</code> has directories with up to <code>fanOut</code> subdirectories,
+ * and leaf directories with up to <code>fanOut</code> files, so the fan-out determines the depth.
+ * File names cycle through a few extensions, so that selectors and mappers have something to do.
+ * <p>
+ * Trees are generated below the directory given by the system property
+ * <code>plexus.io.benchmarks.dir</code> (defaults to <code>target/trees</code>), and are reused
+ * by subsequent runs, because generating a million files takes a while.
+ */
+public class TreeGenerator
+{
+    private static final String[] EXTENSIONS = { ".java", ".txt", ".xml", ".properties" };
+
+    /**
+     * Returns the root directory of a tree, generating it, if necessary.
+     */
+    public static File generate( int files, int fanOut )
+        throws IOException
+    {
+        final File root = new File( System.getProperty( "plexus.io.benchmarks.dir", "target/trees" ),
+                                    "tree-" + files + "-" + fanOut );
+        final File marker = new File( root.getParentFile(), root.getName() + ".complete" );
+        if ( marker.isFile() )
+        {
+            return root;
+        }
+
+        FileUtils.deleteDirectory( root );
+        final String[] names = names( files, fanOut );
+        final byte[] contents = "The quick brown fox jumps over the lazy dog.\n".getBytes( "US-ASCII" );
+        for ( String name : names )
+        {
+            final File file = new File( root, name );
+            final File dir = file.getParentFile();
+            if ( !dir.isDirectory() && !dir.mkdirs() )
+            {
+                throw new IOException( "Unable to create directory " + dir );
+            }
+            final FileOutputStream fos = new FileOutputStream( file );
+            try
+            {
+                fos.write( contents );
+            }
+            finally
+            {
+                fos.close();
+            }
+        }
+        if ( !marker.createNewFile() )
+        {
+            throw new IOException( "Unable to create " + marker );
+        }
+        return root;
+    }
+
+    /**
+     * Returns the relative names (separated by '/') of the files in a tree, without touching the disk.
+     */
+    public static String[] names( int files, int fanOut )
+    {
+        final int leafDirs = ( files + fanOut - 1 ) / fanOut;
+        int depth = 1;
+        for ( long capacity = fanOut; capacity < leafDirs; capacity *= fanOut )
+        {
+            depth++;
+        }
+
+        final String[] result = new String[files];
+        final StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < files; i++ )
+        {
+            sb.setLength( 0 );
+            int leaf = i / fanOut;
+            final int[] digits = new int[depth];
+            for ( int d = depth - 1; d >= 0; d-- )
+            {
+                digits[d] = leaf % fanOut;
+                leaf /= fanOut;
+            }
+            for ( int digit : digits )
+            {
+                sb.append( "dir" ).append( digit ).append( '/' );
+            }
+            sb.append( "file" ).append( i % fanOut ).append( EXTENSIONS[i % EXTENSIONS.length] );
+            result[i] = sb.toString();
+        }
+        return result;
+    }
+}
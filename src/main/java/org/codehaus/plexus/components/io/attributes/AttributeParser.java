@@ -21,26 +21,31 @@
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
+ * Parses the output of <code>ls -1laR</code>, or <code>ls -1nlaR</code>. Every line is tokenized in a
+ * single pass. The columns up to the date are located by their offsets, and the date is recognized by
+ * the shape of its tokens, so that the <code>long-iso</code> style, and the locale dependent styles
+ * (month before, or after the day, time or year) are accepted, and a group name may contain spaces.
  * @author Kristian Rosenvold
  */
 abstract class AttributeParser
     implements StreamConsumer
 {
-    protected static final Pattern LINE_SPLITTER = Pattern.compile( "\\s+" );
-
-    protected static final int[] LS_LAST_DATE_PART_INDICES = { 7, 7, 7, 7, 6, 7, 7, 7, 7 };
+    /**
+     * The maximum number of columns before the file name.
+     */
+    private static final int MAX_TOKENS = 16;
 
+    /**
+     * The first column, which may hold the date: mode, links, user, group, and size come first.
+     */
+    private static final int FIRST_DATE_TOKEN = 5;
 
     protected final Map<String, PlexusIoResourceAttributes> attributesByPath =
         new LinkedHashMap<String, PlexusIoResourceAttributes>();
@@ -52,24 +57,25 @@
 
     private String pathPrefix = "";
 
-    private final SimpleDateFormat[] LS_DATE_FORMATS;
+    private final int[] tokenStart = new int[MAX_TOKENS];
+
+    private final int[] tokenEnd = new int[MAX_TOKENS];
+
+    /**
+     * The index of the first token of the date, which has been found by {@link #findDate(String, int)}.
+     */
+    private int firstDateToken;
 
     public AttributeParser( @Nonnull StreamConsumer logger )
     {
         this.logger = logger;
-        LS_DATE_FORMATS = new SimpleDateFormat[]{ new SimpleDateFormat( "MMM dd yyyy" ),
-            new SimpleDateFormat( "MMM dd yyyy", Locale.ENGLISH ), new SimpleDateFormat( "MMM dd HH:mm" ),
-            new SimpleDateFormat( "MMM dd HH:mm", Locale.ENGLISH ), new SimpleDateFormat( "yyyy-MM-dd HH:mm" ),
-            // month-day order is reversed for most non-US locales on MacOSX and FreeBSD
-            new SimpleDateFormat( "dd MMM HH:mm" ), new SimpleDateFormat( "dd MMM HH:mm", Locale.ENGLISH ),
-            new SimpleDateFormat( "dd MMM yyyy" ), new SimpleDateFormat( "dd MMM yyyy", Locale.ENGLISH ) };
     }
 
     public void consumeLine( @Nonnull String line )
     {
-        if ( !PlexusIoResourceAttributeUtils.totalLinePattern.matcher( line ).matches() )
+        if ( !isTotalLine( line ) )
         {
-            if ( line.trim().length() == 0 )
+            if ( isBlank( line ) )
             {
                 nextIsPathPrefix = true;
             }
@@ -88,60 +94,225 @@ else if ( nextIsPathPrefix )
             }
             else
             {
-                String[] parts = LINE_SPLITTER.split( line );
-                int lastDatePart = verifyParsability( line, parts, logger );
+                parseEntry( line );
+            }
+        }
+        logger.consumeLine( line );
+    }
 
-                if ( lastDatePart > 0 )
-                {
-                    int idx = line.indexOf( parts[lastDatePart] ) + parts[lastDatePart].length() + 1;
+    private void parseEntry( @Nonnull String line )
+    {
+        final int length = line.length();
+        int tokens = 0;
+        int lastDateToken = -1;
+        int pos = 0;
+        while ( lastDateToken == -1 && tokens < MAX_TOKENS )
+        {
+            while ( pos < length && Character.isWhitespace( line.charAt( pos ) ) )
+            {
+                pos++;
+            }
+            if ( pos == length )
+            {
+                break;
+            }
+            tokenStart[tokens] = pos;
+            while ( pos < length && !Character.isWhitespace( line.charAt( pos ) ) )
+            {
+                pos++;
+            }
+            tokenEnd[tokens++] = pos;
+            lastDateToken = findDate( line, tokens );
+        }
 
-                    String path = pathPrefix + line.substring( idx );
-                    while ( path.length() > 0 && Character.isWhitespace( path.charAt( 0 ) ) )
-                    {
-                        path = path.substring( 1 );
-                    }
+        if ( lastDateToken == -1 )
+        {
+            logger.consumeLine( "Unparseable line: '" + line
+                                    + "'\nReason: unrecognized date format; ambiguous start-index for path in listing." );
+            return;
+        }
 
-                    FileAttributes attributes;
-                    synchronized ( attributesByPath )
-                    {
-                        attributes = new FileAttributes( parts[0] );
-                        attributesByPath.put( path, attributes );
-                        processAttributes( attributes, parts );
-                    }
-                }
+        while ( pos < length && Character.isWhitespace( line.charAt( pos ) ) )
+        {
+            pos++;
+        }
+        final String path = pathPrefix + line.substring( pos );
+        final String user = line.substring( tokenStart[2], tokenEnd[2] );
+        // A group name may contain spaces, so it extends up to the size column. Device files have the
+        // major, and minor number ("4, 0") instead of the size.
+        int lastGroupToken = firstDateToken - 2;
+        if ( lastGroupToken > 3 && isMajor( line, lastGroupToken ) )
+        {
+            lastGroupToken--;
+        }
+        final String group = line.substring( tokenStart[3], tokenEnd[lastGroupToken] );
+
+        FileAttributes attributes;
+        synchronized ( attributesByPath )
+        {
+            attributes = new FileAttributes( line.substring( tokenStart[0], tokenEnd[0] ) );
+            attributesByPath.put( path, attributes );
+            processAttributes( attributes, user, group );
+        }
+    }
+
+    /**
+     * Checks, whether the last tokens are a date, which is preceded by the size column.
+     * @return The index of the last token of the date, or -1.
+     */
+    private int findDate( String line, int tokens )
+    {
+        // yyyy-MM-dd HH:mm, as printed with TIME_STYLE=long-iso
+        int first = tokens - 2;
+        if ( first >= FIRST_DATE_TOKEN && isIsoDate( line, first ) && isTime( line, first + 1 )
+            && isSize( line, first - 1 ) )
+        {
+            firstDateToken = first;
+            return first + 1;
+        }
+        // MMM dd HH:mm|yyyy, or dd MMM HH:mm|yyyy
+        first = tokens - 3;
+        if ( first >= FIRST_DATE_TOKEN && ( isTime( line, first + 2 ) || isYear( line, first + 2 ) )
+            && ( ( isMonth( line, first ) && isDay( line, first + 1 ) )
+                || ( isDay( line, first ) && isMonth( line, first + 1 ) ) ) && isSize( line, first - 1 ) )
+        {
+            firstDateToken = first;
+            return first + 2;
+        }
+        return -1;
+    }
+
+    private boolean isMajor( String line, int token )
+    {
+        final int end = tokenEnd[token] - 1;
+        return line.charAt( end ) == ',' && isDigits( line, tokenStart[token], end, 1, Integer.MAX_VALUE );
+    }
+
+    private boolean isSize( String line, int token )
+    {
+        return isDigits( line, tokenStart[token], tokenEnd[token], 1, Integer.MAX_VALUE );
+    }
+
+    private boolean isDay( String line, int token )
+    {
+        return isDigits( line, tokenStart[token], tokenEnd[token], 1, 2 );
+    }
+
+    private boolean isYear( String line, int token )
+    {
+        return isDigits( line, tokenStart[token], tokenEnd[token], 4, 4 );
+    }
+
+    private boolean isMonth( String line, int token )
+    {
+        final int start = tokenStart[token];
+        final int end = tokenEnd[token];
+        if ( !Character.isLetter( line.charAt( start ) ) )
+        {
+            return false;
+        }
+        for ( int i = start + 1; i < end; i++ )
+        {
+            final char c = line.charAt( i );
+            if ( !Character.isLetter( c ) && c != '.' )
+            {
+                return false;
             }
         }
-        logger.consumeLine( line );
+        return true;
     }
 
-    protected abstract void processAttributes( @Nonnull FileAttributes attributes, @Nonnull String[] parts );
+    /**
+     * Accepts H:mm, HH:mm, and HH:mm:ss.
+     */
+    private boolean isTime( String line, int token )
+    {
+        final int start = tokenStart[token];
+        final int end = tokenEnd[token];
+        final int colon = line.indexOf( ':', start );
+        return colon != -1 && colon < end && isDigits( line, start, colon, 1, 2 )
+            && isDigits( line, colon + 1, Math.min( end, colon + 3 ), 2, 2 );
+    }
 
-    public Map<String, PlexusIoResourceAttributes> getAttributesByPath()
+    /**
+     * Accepts yyyy-MM-dd.
+     */
+    private boolean isIsoDate( String line, int token )
     {
-        return attributesByPath;
+        final int start = tokenStart[token];
+        return tokenEnd[token] - start == 10 && line.charAt( start + 4 ) == '-' && line.charAt( start + 7 ) == '-'
+            && isDigits( line, start, start + 4, 4, 4 ) && isDigits( line, start + 5, start + 7, 2, 2 )
+            && isDigits( line, start + 8, start + 10, 2, 2 );
     }
 
-    private int verifyParsability( String line, @Nonnull String[] parts, @Nonnull StreamConsumer logger )
+    private static boolean isDigits( String line, int start, int end, int minLength, int maxLength )
     {
-        if ( parts.length > 7 )
+        final int length = end - start;
+        if ( length < minLength || length > maxLength )
         {
-            String dateCandidate = parts[5] + " " + parts[6] + " " + parts[7];
-            for ( int i = 0; i < LS_DATE_FORMATS.length; i++ )
+            return false;
+        }
+        for ( int i = start; i < end; i++ )
+        {
+            final char c = line.charAt( i );
+            if ( c < '0' || c > '9' )
             {
-                try
-                {
-                    LS_DATE_FORMATS[i].parse( dateCandidate );
-                    return LS_LAST_DATE_PART_INDICES[i];
-                }
-                catch ( ParseException ignore )
-                {
-                }
+                return false;
             }
         }
+        return true;
+    }
 
-        logger.consumeLine( "Unparseable line: '" + line
-                                + "'\nReason: unrecognized date format; ambiguous start-index for path in listing." );
-        return -1;
+    /**
+     * Checks for the "total" line, which precedes a directories listing: A word, a single
+     * whitespace character, and a number.
+     */
+    private static boolean isTotalLine( String line )
+    {
+        final int length = line.length();
+        int i = 0;
+        while ( i < length && isWordChar( line.charAt( i ) ) )
+        {
+            i++;
+        }
+        if ( i == length || !Character.isWhitespace( line.charAt( i ) ) )
+        {
+            return false;
+        }
+        for ( i++; i < length; i++ )
+        {
+            final char c = line.charAt( i );
+            if ( c < '0' || c > '9' )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordChar( char c )
+    {
+        return ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) || ( c >= '0' && c <= '9' ) || c == '_';
+    }
+
+    private static boolean isBlank( String line )
+    {
+        for ( int i = 0; i < line.length(); i++ )
+        {
+            if ( !Character.isWhitespace( line.charAt( i ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected abstract void processAttributes( @Nonnull FileAttributes attributes, @Nonnull String user,
+                                               @Nonnull String group );
+
+    public Map<String, PlexusIoResourceAttributes> getAttributesByPath()
+    {
+        return attributesByPath;
     }
 
     static class NumericUserIDAttributeParser
@@ -153,10 +324,11 @@ private int verifyParsability( String line, @Nonnull String[] parts, @Nonnull St
         }
 
         @Override
-        protected void processAttributes( @Nonnull FileAttributes attributes, @Nonnull String[] parts )
+        protected void processAttributes( @Nonnull FileAttributes attributes, @Nonnull String user,
+                                          @Nonnull String group )
         {
-            attributes.setUserId( (int) Long.parseLong( parts[2] ) );
-            attributes.setGroupId( (int) Long.parseLong( parts[3] ) );
+            attributes.setUserId( (int) Long.parseLong( user ) );
+            attributes.setGroupId( (int) Long.parseLong( group ) );
 
         }
     }
@@ -170,10 +342,11 @@ protected void processAttributes( @Nonnull FileAttributes attributes, @Nonnull S
         }
 
         @Override
-        protected void processAttributes( @Nonnull FileAttributes attributes, @Nonnull String[] parts )
+        protected void processAttributes( @Nonnull FileAttributes attributes, @Nonnull String user,
+                                          @Nonnull String group )
         {
-            attributes.setUserName( parts[2] );
-            attributes.setGroupName( parts[3] );
+            attributes.setUserName( user );
+            attributes.setGroupName( group );
         }
 
         public Map<String, PlexusIoResourceAttributes> merge( NumericUserIDAttributeParser otherParser )
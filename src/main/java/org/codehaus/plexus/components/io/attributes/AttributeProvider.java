@@ -0,0 +1,45 @@
+package org.codehaus.plexus.components.io.attributes;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Reads the attributes of a file. The providers, which are used by a
+ * {@link org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection}, are configured
+ * per collection; {@link PlexusIoResourceAttributeUtils#getFileAttributesByPath(File)} uses the
+ * {@link PlexusIoResourceAttributeUtils#getAttributeProviders() default providers}. The first provider,
+ * which supports a directory, is used for all files below it.
+ */
+public interface AttributeProvider
+{
+    /**
+     * Returns, whether the provider is able to read the attributes of the given file, and
+     * the files below it.
+     */
+    boolean isSupported( @Nonnull File file );
+
+    /**
+     * Reads the attributes of the given file. The attributes of a symbolic link are those
+     * of the link, not of its target.
+     */
+    @Nonnull
+    PlexusIoResourceAttributes getAttributes( @Nonnull File file )
+        throws IOException;
+}
@@ -0,0 +1,260 @@
+package org.codehaus.plexus.components.io.attributes;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable {@link PlexusIoResourceAttributes}, which keep the mode, and ids as primitives.
+ * Instances are obtained through {@link #of(Integer, String, Integer, String, int, boolean)},
+ * which returns the same instance for equal values. In a typical tree, nearly all files share
+ * a handful of owner, group, and mode combinations, so the attributes of many resources
+ * need the memory of a few objects only.
+ */
+public final class CompactResourceAttributes
+    implements PlexusIoResourceAttributes
+{
+    /**
+     * The maximum number of distinct attributes, and names, which are cached. Beyond that, new instances are
+     * created, so that a tree with unusually diverse attributes doesn't grow the cache without bounds.
+     */
+    private static final int MAX_CACHED = 4096;
+
+    private static final ConcurrentMap<CompactResourceAttributes, CompactResourceAttributes> CACHE =
+        new ConcurrentHashMap<CompactResourceAttributes, CompactResourceAttributes>();
+
+    private static final ConcurrentMap<String, String> NAMES = new ConcurrentHashMap<String, String>();
+
+    private static final int HAS_UID = 1;
+
+    private static final int HAS_GID = 2;
+
+    private static final int SYMLINK = 4;
+
+    private final int mode;
+
+    private final int uid;
+
+    private final int gid;
+
+    private final int flags;
+
+    private final String userName;
+
+    private final String groupName;
+
+    private CompactResourceAttributes( int mode, int uid, int gid, int flags, String userName, String groupName )
+    {
+        this.mode = mode;
+        this.uid = uid;
+        this.gid = gid;
+        this.flags = flags;
+        this.userName = userName;
+        this.groupName = groupName;
+    }
+
+    /**
+     * Returns the shared instance for the given values.
+     * @param mode The octal mode, or {@link #UNKNOWN_OCTAL_MODE}.
+     */
+    @Nonnull
+    public static CompactResourceAttributes of( @Nullable Integer uid, @Nullable String userName,
+                                                @Nullable Integer gid, @Nullable String groupName, int mode,
+                                                boolean symbolicLink )
+    {
+        int flags = symbolicLink ? SYMLINK : 0;
+        flags |= uid != null ? HAS_UID : 0;
+        flags |= gid != null ? HAS_GID : 0;
+        final CompactResourceAttributes key =
+            new CompactResourceAttributes( mode, uid == null ? 0 : uid, gid == null ? 0 : gid, flags, userName,
+                                           groupName );
+        final CompactResourceAttributes cached = CACHE.get( key );
+        if ( cached != null )
+        {
+            return cached;
+        }
+        final CompactResourceAttributes value =
+            new CompactResourceAttributes( key.mode, key.uid, key.gid, key.flags, intern( userName ),
+                                           intern( groupName ) );
+        if ( CACHE.size() >= MAX_CACHED )
+        {
+            return value;
+        }
+        final CompactResourceAttributes previous = CACHE.putIfAbsent( value, value );
+        return previous == null ? value : previous;
+    }
+
+    /**
+     * Returns the shared instance for the values of the given attributes.
+     */
+    @Nonnull
+    public static CompactResourceAttributes of( @Nonnull PlexusIoResourceAttributes attributes )
+    {
+        if ( attributes instanceof CompactResourceAttributes )
+        {
+            return (CompactResourceAttributes) attributes;
+        }
+        return of( attributes.getUserId(), attributes.getUserName(), attributes.getGroupId(),
+                   attributes.getGroupName(), attributes.getOctalMode(), attributes.isSymbolicLink() );
+    }
+
+    /**
+     * Returns the shared instance of the given user, or group name. Like the attributes, the names are
+     * cached up to {@link #MAX_CACHED} only. Names, which are read from files, are usually shared
+     * already through the {@link PrincipalNameCache}.
+     */
+    private static String intern( String name )
+    {
+        if ( name == null )
+        {
+            return null;
+        }
+        final String cached = NAMES.get( name );
+        if ( cached != null )
+        {
+            return cached;
+        }
+        if ( NAMES.size() >= MAX_CACHED )
+        {
+            return name;
+        }
+        final String previous = NAMES.putIfAbsent( name, name );
+        return previous == null ? name : previous;
+    }
+
+    private boolean hasPermission( int bit )
+    {
+        return mode != UNKNOWN_OCTAL_MODE && ( mode & bit ) != 0;
+    }
+
+    public boolean isOwnerReadable()
+    {
+        return hasPermission( AttributeConstants.OCTAL_OWNER_READ );
+    }
+
+    public boolean isOwnerWritable()
+    {
+        return hasPermission( AttributeConstants.OCTAL_OWNER_WRITE );
+    }
+
+    public boolean isOwnerExecutable()
+    {
+        return hasPermission( AttributeConstants.OCTAL_OWNER_EXECUTE );
+    }
+
+    public boolean isGroupReadable()
+    {
+        return hasPermission( AttributeConstants.OCTAL_GROUP_READ );
+    }
+
+    public boolean isGroupWritable()
+    {
+        return hasPermission( AttributeConstants.OCTAL_GROUP_WRITE );
+    }
+
+    public boolean isGroupExecutable()
+    {
+        return hasPermission( AttributeConstants.OCTAL_GROUP_EXECUTE );
+    }
+
+    public boolean isWorldReadable()
+    {
+        return hasPermission( AttributeConstants.OCTAL_WORLD_READ );
+    }
+
+    public boolean isWorldWritable()
+    {
+        return hasPermission( AttributeConstants.OCTAL_WORLD_WRITE );
+    }
+
+    public boolean isWorldExecutable()
+    {
+        return hasPermission( AttributeConstants.OCTAL_WORLD_EXECUTE );
+    }
+
+    public Integer getUserId()
+    {
+        return ( flags & HAS_UID ) != 0 ? Integer.valueOf( uid ) : null;
+    }
+
+    @Nullable
+    public Integer getGroupId()
+    {
+        return ( flags & HAS_GID ) != 0 ? Integer.valueOf( gid ) : null;
+    }
+
+    @Nullable
+    public String getUserName()
+    {
+        return userName;
+    }
+
+    @Nullable
+    public String getGroupName()
+    {
+        return groupName;
+    }
+
+    public int getOctalMode()
+    {
+        return mode;
+    }
+
+    public boolean isSymbolicLink()
+    {
+        return ( flags & SYMLINK ) != 0;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( !( o instanceof CompactResourceAttributes ) )
+        {
+            return false;
+        }
+        final CompactResourceAttributes other = (CompactResourceAttributes) o;
+        return mode == other.mode && uid == other.uid && gid == other.gid && flags == other.flags
+            && ( userName == null ? other.userName == null : userName.equals( other.userName ) )
+            && ( groupName == null ? other.groupName == null : groupName.equals( other.groupName ) );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = mode;
+        result = 31 * result + uid;
+        result = 31 * result + gid;
+        result = 31 * result + flags;
+        result = 31 * result + ( userName == null ? 0 : userName.hashCode() );
+        result = 31 * result + ( groupName == null ? 0 : groupName.hashCode() );
+        return result;
+    }
+
+    public String toString()
+    {
+        return String.format(
+            "\nResource Attributes:\n------------------------------\nuser: %s\ngroup: %s\nuid: %d\ngid: %d\nmode: %06o",
+            userName == null ? "" : userName, groupName == null ? "" : groupName, uid, gid, mode );
+    }
+}
@@ -65,6 +65,11 @@
 
     private char[] mode;
 
+    /**
+     * The octal mode, computed from {@link #mode} on first use, or -1.
+     */
+    private int octalMode = -1;
+
     public FileAttributes(int mode){
         this.mode = new char[10];
         Arrays.fill( this.mode, VALUE_DISABLED_MODE );
@@ -85,6 +90,7 @@ protected char[] getLsModeParts()
 
     private void setLsModeParts( @Nonnull char[] mode )
     {
+        octalMode = -1;
         if ( mode.length < 10 )
         {
             this.mode = new char[10];
@@ -188,6 +194,15 @@ public String toString()
     }
 
     public int getOctalMode()
+    {
+        if ( octalMode == -1 )
+        {
+            octalMode = calculateOctalMode();
+        }
+        return octalMode;
+    }
+
+    private int calculateOctalMode()
     {
         int result = 0;
 
@@ -108,6 +108,20 @@ public static Set<PosixFilePermission> getPermissions( int mode )
         return perms;
     }
 
+    /**
+     * Converts the given permissions into an octal mode, the reverse of {@link #getPermissions(int)}.
+     */
+    public static int getOctalMode( @Nonnull Set<PosixFilePermission> perms )
+    {
+        int mode = 0;
+        for ( PosixFilePermission perm : perms )
+        {
+            // The constants are declared in the order of the mode bits, starting with OWNER_READ (0400).
+            mode |= 0400 >> perm.ordinal();
+        }
+        return mode;
+    }
+
     @Nonnull
     public static PosixFileAttributes getPosixFileAttributes( @Nonnull File file )
         throws IOException
@@ -144,6 +158,11 @@ public static boolean isUnix(Path path) {
         return path.getFileSystem().supportedFileAttributeViews().contains("unix");
     }
 
+    public static boolean isPosix( Path path )
+    {
+        return path.getFileSystem().supportedFileAttributeViews().contains( "posix" );
+    }
+
     @Nullable
     public static FileOwnerAttributeView getFileOwnershipInfo( @Nonnull File file )
         throws IOException
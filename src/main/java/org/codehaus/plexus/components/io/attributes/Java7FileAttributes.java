@@ -20,14 +20,13 @@
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileOwnerAttributeView;
-import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.FileTime;
 import java.security.Principal;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -38,22 +37,34 @@
  */
 public class Java7FileAttributes
         implements PlexusIoResourceAttributes {
-    @Nullable
-    private final Integer groupId;
+    private static final String UNIX_ATTRIBUTES =
+            "unix:mode,uid,gid,isSymbolicLink,isDirectory,isRegularFile,size,lastModifiedTime";
 
-    @Nullable
-    private final String groupName;
+    private static final int EXISTING = 1;
 
-    @Nullable
-    private final Integer userId;
+    private static final int DIRECTORY = 2;
+
+    private static final int REGULAR_FILE = 4;
 
-    private final String userName;
+    /**
+     * Owner, group, and mode, shared with every file, which has the same.
+     */
+    private final CompactResourceAttributes attributes;
 
-    private final boolean symbolicLink;
+    private final int flags;
 
-    private final int octalMode;
+    private final long size;
 
-    private final Set<PosixFilePermission> permissions;
+    private final long lastModified;
+
+    /**
+     * Reads the attributes of the given file. User and group names are resolved
+     * through the given cache.
+     */
+    public Java7FileAttributes(@Nonnull File file, @Nonnull PrincipalNameCache nameCache)
+            throws IOException {
+        this(file, nameCache.getUserNames(), nameCache.getGroupNames());
+    }
 
     public Java7FileAttributes(@Nonnull File file, @Nonnull Map<Integer, String> userCache,
                                @Nonnull Map<Integer, String> groupCache)
@@ -61,54 +72,92 @@ public Java7FileAttributes(@Nonnull File file, @Nonnull Map<Integer, String> use
 
 
         Path path = file.toPath();
+        final boolean symbolicLink;
         if (Java7AttributeUtils.isUnix(path)) {
-            Map<String, Object> attrs = Files.readAttributes(path, "unix:*", LinkOption.NOFOLLOW_LINKS);
-            this.permissions = (Set<PosixFilePermission>) attrs.get("permissions");
+            // Owner and group are only read on a cache miss, because resolving them may be expensive.
+            Map<String, Object> attrs = Files.readAttributes(path, UNIX_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+            int octalMode = (Integer) attrs.get("mode") & 0xfff; // Mask off top bits for compatibilty. Maybe check if we can skip this
 
-            groupId = (Integer) attrs.get("gid");
+            Integer groupId = (Integer) attrs.get("gid");
 
             String groupName = groupCache.get(groupId);
-            if (groupName != null) {
-                this.groupName = groupName;
-            } else {
-                this.groupName = ((Principal) attrs.get("group")).getName();
-                groupCache.put(groupId, this.groupName);
+            if (groupName == null) {
+                groupName = ((Principal) Files.getAttribute(path, "unix:group", LinkOption.NOFOLLOW_LINKS)).getName();
+                groupCache.put(groupId, groupName);
             }
-            userId = (Integer) attrs.get("uid");
+            Integer userId = (Integer) attrs.get("uid");
             String userName = userCache.get(userId);
-            if (userName != null) {
-                this.userName = userName;
-            } else {
-                this.userName = ((Principal) attrs.get("owner")).getName();
-                userCache.put(userId, this.userName);
+            if (userName == null) {
+                userName = ((Principal) Files.getAttribute(path, "unix:owner", LinkOption.NOFOLLOW_LINKS)).getName();
+                userCache.put(userId, userName);
             }
-            octalMode = (Integer) attrs.get("mode") & 0xfff; // Mask off top bits for compatibilty. Maybe check if we can skip this
             symbolicLink = (Boolean) attrs.get("isSymbolicLink");
+            attributes = CompactResourceAttributes.of(userId, userName, groupId, groupName, octalMode, symbolicLink);
+            if (!symbolicLink) {
+                flags = EXISTING | ((Boolean) attrs.get("isDirectory") ? DIRECTORY : 0)
+                        | ((Boolean) attrs.get("isRegularFile") ? REGULAR_FILE : 0);
+                size = (Long) attrs.get("size");
+                lastModified = ((FileTime) attrs.get("lastModifiedTime")).toMillis();
+                return;
+            }
         } else {
             FileOwnerAttributeView fa = Java7AttributeUtils.getFileOwnershipInfo(file);
-            this.userName = fa.getOwner().getName();
-            userId = null;
-            this.groupName = null;
-            this.groupId = null;
-            octalMode = PlexusIoResourceAttributes.UNKNOWN_OCTAL_MODE;
-            permissions = Collections.emptySet();
             symbolicLink = Files.isSymbolicLink(path);
+            attributes = CompactResourceAttributes.of(null, fa.getOwner().getName(), null, null,
+                    PlexusIoResourceAttributes.UNKNOWN_OCTAL_MODE, symbolicLink);
+        }
+
+        // Like java.io.File, the file state of a symbolic link is that of its target.
+        BasicFileAttributes basic = null;
+        try {
+            basic = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException ignore) {
+            // Dangling symbolic link
         }
+        flags = basic == null ? 0 : EXISTING | (basic.isDirectory() ? DIRECTORY : 0)
+                | (basic.isRegularFile() ? REGULAR_FILE : 0);
+        size = basic == null ? 0 : basic.size();
+        lastModified = basic == null ? 0 : basic.lastModifiedTime().toMillis();
+    }
 
+    /**
+     * Creates attributes from values, which have been read from a file before, for example
+     * by an incremental scan, which remembers the attributes of unchanged files.
+     */
+    public Java7FileAttributes(@Nullable Integer userId, @Nullable String userName, @Nullable Integer groupId,
+                               @Nullable String groupName, int octalMode, boolean symbolicLink, boolean existing,
+                               boolean directory, boolean regularFile, long size, long lastModified) {
+        this.attributes = CompactResourceAttributes.of(userId, userName, groupId, groupName, octalMode, symbolicLink);
+        this.flags = (existing ? EXISTING : 0) | (directory ? DIRECTORY : 0) | (regularFile ? REGULAR_FILE : 0);
+        this.size = size;
+        this.lastModified = lastModified;
     }
 
+    /**
+     * Reads the attributes of the given file. User and group names are resolved
+     * through the {@link PrincipalNameCache#getShared() shared cache}.
+     */
     public static
     @Nonnull
     PlexusIoResourceAttributes uncached(@Nonnull File file)
             throws IOException {
-        return new Java7FileAttributes(file, new HashMap<Integer, String>(), new HashMap<Integer, String>());
+        return new Java7FileAttributes(file, PrincipalNameCache.getShared());
     }
 
 
+    /**
+     * @return The owner, group, and mode, without the file state. Files with the same owner,
+     * group, and mode share the same instance.
+     */
+    @Nonnull
+    public CompactResourceAttributes getCompactAttributes() {
+        return attributes;
+    }
+
     @Nullable
     public Integer getGroupId() {
 
-        return groupId;
+        return attributes.getGroupId();
     }
 
     public boolean hasGroupId() {
@@ -121,74 +170,70 @@ public boolean hasUserId() {
 
     @Nullable
     public String getGroupName() {
-        return groupName;
+        return attributes.getGroupName();
     }
 
     public Integer getUserId() {
-        return userId;
+        return attributes.getUserId();
     }
 
     public String getUserName() {
-        return userName;
+        return attributes.getUserName();
     }
 
     public boolean isGroupExecutable() {
-        return containsPermission(PosixFilePermission.GROUP_EXECUTE);
-    }
-
-    private boolean containsPermission(PosixFilePermission groupExecute) {
-        return permissions.contains(groupExecute);
+        return attributes.isGroupExecutable();
     }
 
     public boolean isGroupReadable() {
-        return containsPermission(PosixFilePermission.GROUP_READ);
+        return attributes.isGroupReadable();
     }
 
     public boolean isGroupWritable() {
-        return containsPermission(PosixFilePermission.GROUP_WRITE);
+        return attributes.isGroupWritable();
     }
 
     public boolean isOwnerExecutable() {
-        return containsPermission(PosixFilePermission.OWNER_EXECUTE);
+        return attributes.isOwnerExecutable();
     }
 
     public boolean isOwnerReadable() {
-        return containsPermission(PosixFilePermission.OWNER_READ);
+        return attributes.isOwnerReadable();
     }
 
     public boolean isOwnerWritable() {
-        return containsPermission(PosixFilePermission.OWNER_WRITE);
+        return attributes.isOwnerWritable();
     }
 
     public boolean isWorldExecutable() {
-        return containsPermission(PosixFilePermission.OTHERS_EXECUTE);
+        return attributes.isWorldExecutable();
 
     }
 
     public boolean isWorldReadable() {
-        return containsPermission(PosixFilePermission.OTHERS_READ);
+        return attributes.isWorldReadable();
     }
 
     public boolean isWorldWritable() {
-        return containsPermission(PosixFilePermission.OTHERS_WRITE);
+        return attributes.isWorldWritable();
     }
 
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("\nFile Attributes:\n------------------------------\nuser: ");
-        sb.append(userName == null ? "" : userName);
+        sb.append(getUserName() == null ? "" : getUserName());
         sb.append("\ngroup: ");
-        sb.append(groupName == null ? "" : groupName);
+        sb.append(getGroupName() == null ? "" : getGroupName());
         sb.append("\nuid: ");
-        sb.append(hasUserId() ? Integer.toString(userId) : "");
+        sb.append(hasUserId() ? Integer.toString(getUserId()) : "");
         sb.append("\ngid: ");
-        sb.append(hasGroupId() ? Integer.toString(groupId) : "");
+        sb.append(hasGroupId() ? Integer.toString(getGroupId()) : "");
 
         return sb.toString();
     }
 
     public int getOctalMode() {
-        return octalMode;
+        return attributes.getOctalMode();
     }
 
     public int calculatePosixOctalMode() {
@@ -238,6 +283,42 @@ public String getOctalModeString() {
     }
 
     public boolean isSymbolicLink() {
-        return symbolicLink;
+        return attributes.isSymbolicLink();
+    }
+
+    /**
+     * @return Whether the file existed, when the attributes were read. False for a dangling symbolic link.
+     */
+    public boolean isExisting() {
+        return (flags & EXISTING) != 0;
+    }
+
+    /**
+     * @return Whether the file (or the target of a symbolic link) was a directory, when the attributes were read.
+     */
+    public boolean isDirectory() {
+        return (flags & DIRECTORY) != 0;
+    }
+
+    /**
+     * @return Whether the file (or the target of a symbolic link) was a regular file, when the attributes were read.
+     */
+    public boolean isRegularFile() {
+        return (flags & REGULAR_FILE) != 0;
+    }
+
+    /**
+     * @return The size of the file (or the target of a symbolic link), when the attributes were read.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return The last modification time of the file (or the target of a symbolic link) in milliseconds,
+     * when the attributes were read.
+     */
+    public long getLastModified() {
+        return lastModified;
     }
 }
\ No newline at end of file
@@ -25,10 +25,10 @@
 import org.codehaus.plexus.util.cli.StreamConsumer;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +44,36 @@ private PlexusIoResourceAttributeUtils()
     {
     }
 
+    /**
+     * @return The default providers, which are asked for file attributes, in order. These are a
+     * {@link UnixAttributeProvider}, and a {@link PosixAttributeProvider} on java7, and none otherwise.
+     * A {@link org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection} may be configured
+     * with other providers.
+     */
+    @Nonnull
+    public static AttributeProvider[] getAttributeProviders()
+    {
+        return Java7Reflector.isAtLeastJava7()
+            ? new AttributeProvider[]{ new UnixAttributeProvider(), new PosixAttributeProvider() }
+            : new AttributeProvider[0];
+    }
+
+    /**
+     * @return The first of the default providers, which supports the given file, or null.
+     */
+    @Nullable
+    public static AttributeProvider getAttributeProvider( @Nonnull File file )
+    {
+        for ( AttributeProvider provider : getAttributeProviders() )
+        {
+            if ( provider.isSupported( file ) )
+            {
+                return provider;
+            }
+        }
+        return null;
+    }
+
 
     public static PlexusIoResourceAttributes mergeAttributes( PlexusIoResourceAttributes override,
                                                               PlexusIoResourceAttributes base,
@@ -193,9 +223,15 @@ public static Map<String, PlexusIoResourceAttributes> getFileAttributesByPath( F
                                                                                    boolean includeNumericUserId )
         throws IOException
     {
-        if ( Java7Reflector.isAtLeastJava7() )
+        AttributeProvider provider = getAttributeProvider( dir );
+        if ( provider == null && Java7Reflector.isAtLeastJava7() )
         {
-            return getFileAttributesByPathJava7( dir, recursive );
+            // Reads the owner at least
+            provider = new UnixAttributeProvider();
+        }
+        if ( provider != null )
+        {
+            return getFileAttributesByPath( dir, recursive, provider );
         }
 
         if ( !enabledOnCurrentOperatingSystem() )
@@ -313,11 +349,11 @@ private static AttributeParser.SymbolicUserIDAttributeParser getNameBasedParser(
         return userId;
     }
 
-    private static @Nonnull Map<String, PlexusIoResourceAttributes> getFileAttributesByPathJava7( @Nonnull File dir, boolean recursive )
+    static @Nonnull Map<String, PlexusIoResourceAttributes> getFileAttributesByPath( @Nonnull File dir,
+                                                                                    boolean recursive,
+                                                                                    @Nonnull AttributeProvider provider )
         throws IOException
     {
-        Map<Integer, String> userCache = new HashMap<Integer, String>();
-        Map<Integer, String> groupCache = new HashMap<Integer, String>();
         final List<String> fileAndDirectoryNames;
         if ( recursive && dir.isDirectory() )
         {
@@ -333,8 +369,12 @@ private static AttributeParser.SymbolicUserIDAttributeParser getNameBasedParser(
 
         for ( String fileAndDirectoryName : fileAndDirectoryNames )
         {
-            attributesByPath.put( fileAndDirectoryName,
-                                  new Java7FileAttributes( new File( fileAndDirectoryName ), userCache, groupCache ) );
+            PlexusIoResourceAttributes attrs = provider.getAttributes( new File( fileAndDirectoryName ) );
+            if ( attrs instanceof Java7FileAttributes )
+            {
+                attrs = ( (Java7FileAttributes) attrs ).getCompactAttributes();
+            }
+            attributesByPath.put( fileAndDirectoryName, attrs );
         }
         return attributesByPath;
     }
@@ -0,0 +1,69 @@
+package org.codehaus.plexus.components.io.attributes;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+
+/**
+ * Reads attributes through the {@link java.nio.file.attribute.PosixFileAttributeView}, which is available
+ * on file systems without the <code>unix:*</code> view. Provides the mode, and the user and group names,
+ * but no numeric ids. Requires java7.
+ */
+public class PosixAttributeProvider
+    implements AttributeProvider
+{
+    public boolean isSupported( @Nonnull File file )
+    {
+        return Java7AttributeUtils.isPosix( file.toPath() );
+    }
+
+    @Nonnull
+    public PlexusIoResourceAttributes getAttributes( @Nonnull File file )
+        throws IOException
+    {
+        final Path path = file.toPath();
+        final PosixFileAttributes posix = Files.readAttributes( path, PosixFileAttributes.class,
+                                                                LinkOption.NOFOLLOW_LINKS );
+        BasicFileAttributes target = posix;
+        if ( posix.isSymbolicLink() )
+        {
+            // Like java.io.File, the file state of a symbolic link is that of its target.
+            try
+            {
+                target = Files.readAttributes( path, BasicFileAttributes.class );
+            }
+            catch ( NoSuchFileException e )
+            {
+                target = null;
+            }
+        }
+        return new Java7FileAttributes( null, posix.owner().getName(), null, posix.group().getName(),
+                                        Java7AttributeUtils.getOctalMode( posix.permissions() ),
+                                        posix.isSymbolicLink(), target != null,
+                                        target != null && target.isDirectory(),
+                                        target != null && target.isRegularFile(), target == null ? 0 : target.size(),
+                                        target == null ? 0 : target.lastModifiedTime().toMillis() );
+    }
+}
@@ -0,0 +1,120 @@
+package org.codehaus.plexus.components.io.attributes;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread safe cache of user and group names by numeric id. Resolving a name may query
+ * NSS, LDAP, or the like, so the names are looked up once and shared by all collections
+ * and threads, which use the same cache. By default, the {@link #getShared() shared instance}
+ * is used, so names are resolved once per JVM.
+ * <p>
+ * The number of names per map is bounded; if a map is full, an arbitrary entry is evicted.
+ */
+public class PrincipalNameCache
+{
+    /**
+     * The default maximum number of names per map.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final PrincipalNameCache SHARED = new PrincipalNameCache( DEFAULT_CAPACITY );
+
+    private final Map<Integer, String> userNames;
+
+    private final Map<Integer, String> groupNames;
+
+    /**
+     * @param capacity The maximum number of user names, and of group names, to keep.
+     */
+    public PrincipalNameCache( int capacity )
+    {
+        if ( capacity < 1 )
+        {
+            throw new IllegalArgumentException( "Invalid capacity: " + capacity );
+        }
+        userNames = new BoundedMap( capacity );
+        groupNames = new BoundedMap( capacity );
+    }
+
+    /**
+     * Returns the instance, which is used by default.
+     */
+    @Nonnull
+    public static PrincipalNameCache getShared()
+    {
+        return SHARED;
+    }
+
+    /**
+     * Returns the user names by uid. The map is thread safe.
+     */
+    @Nonnull
+    public Map<Integer, String> getUserNames()
+    {
+        return userNames;
+    }
+
+    /**
+     * Returns the group names by gid. The map is thread safe.
+     */
+    @Nonnull
+    public Map<Integer, String> getGroupNames()
+    {
+        return groupNames;
+    }
+
+    /**
+     * Forgets all names, for example after the user database has changed.
+     */
+    public void clear()
+    {
+        userNames.clear();
+        groupNames.clear();
+    }
+
+    private static class BoundedMap
+        extends ConcurrentHashMap<Integer, String>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        BoundedMap( int capacity )
+        {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public String put( Integer key, String value )
+        {
+            if ( size() >= capacity && !containsKey( key ) )
+            {
+                final Enumeration<Integer> keys = keys();
+                if ( keys.hasMoreElements() )
+                {
+                    remove( keys.nextElement() );
+                }
+            }
+            return super.put( key, value );
+        }
+    }
+}
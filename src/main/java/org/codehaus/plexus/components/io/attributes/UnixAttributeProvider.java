@@ -0,0 +1,54 @@
+package org.codehaus.plexus.components.io.attributes;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Reads attributes through the <code>unix:*</code> view, which includes numeric ids. User and
+ * group names are resolved through a {@link PrincipalNameCache}. On other file systems, only the
+ * owner is read. Requires java7.
+ */
+public class UnixAttributeProvider
+    implements AttributeProvider
+{
+    private final PrincipalNameCache nameCache;
+
+    public UnixAttributeProvider( @Nonnull PrincipalNameCache nameCache )
+    {
+        this.nameCache = nameCache;
+    }
+
+    public UnixAttributeProvider()
+    {
+        this( PrincipalNameCache.getShared() );
+    }
+
+    public boolean isSupported( @Nonnull File file )
+    {
+        return Java7AttributeUtils.isUnix( file.toPath() );
+    }
+
+    @Nonnull
+    public PlexusIoResourceAttributes getAttributes( @Nonnull File file )
+        throws IOException
+    {
+        return new Java7FileAttributes( file, nameCache );
+    }
+}
@@ -0,0 +1,509 @@
+package org.codehaus.plexus.components.io.fileselectors;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.util.SelectorUtils;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A set of Ant style patterns (as understood by {@link org.codehaus.plexus.util.MatchPatterns}),
+ * which have been compiled into a trie of path segments. Literal segments are looked up in a hash table,
+ * segments with wildcards ('*', '?') are matched in place, and "**" segments are handled by the trie,
+ * so that matching a name doesn't allocate, and takes time proportional to the number of segments,
+ * rather than the number of patterns.
+ * <p>
+ * Both '/', and '\' are treated as separators, both in patterns, and in names, so names need not be
+ * converted to the platforms separator. Patterns with the "%regex[...]" prefix are supported, but matched
+ * separately, against the name with platform separators.
+ * <p>
+ * Besides matching names, the patterns can tell, whether a name below a given directory
+ * {@link #couldMatchBelow(String) could possibly match}, or is {@link #matchesAllBelow(String) sure to match},
+ * which allows to skip whole subtrees.
+ * <p>
+ * Instances are immutable, and thread safe.
+ */
+public final class CompiledPatterns
+{
+    private static final String DOUBLE_STAR = "**";
+
+    private final boolean caseSensitive;
+
+    private final Node root;
+
+    private final Pattern[] regexPatterns;
+
+    private CompiledPatterns( boolean caseSensitive, Node root, Pattern[] regexPatterns )
+    {
+        this.caseSensitive = caseSensitive;
+        this.root = root;
+        this.regexPatterns = regexPatterns;
+    }
+
+    /**
+     * Compiles the given patterns.
+     * @param patterns The patterns to compile.
+     * @param caseSensitive True, if names must match the case of the patterns.
+     * @return The compiled patterns.
+     */
+    @Nonnull
+    public static CompiledPatterns compile( @Nonnull String[] patterns, boolean caseSensitive )
+    {
+        final Builder root = new Builder();
+        final List<Pattern> regexPatterns = new ArrayList<Pattern>();
+        for ( String pattern : patterns )
+        {
+            if ( isPrefixed( pattern, SelectorUtils.REGEX_HANDLER_PREFIX ) )
+            {
+                regexPatterns.add( Pattern.compile( pattern.substring(
+                    SelectorUtils.REGEX_HANDLER_PREFIX.length(),
+                    pattern.length() - SelectorUtils.PATTERN_HANDLER_SUFFIX.length() ) ) );
+                continue;
+            }
+            final String source = isPrefixed( pattern, SelectorUtils.ANT_HANDLER_PREFIX )
+                ? pattern.substring( SelectorUtils.ANT_HANDLER_PREFIX.length(),
+                                     pattern.length() - SelectorUtils.PATTERN_HANDLER_SUFFIX.length() )
+                : pattern;
+            Builder node = root;
+            for ( int pos = skipSeparators( source, 0 ); pos < source.length(); )
+            {
+                final int end = nextSeparator( source, pos );
+                node = node.child( source.substring( pos, end ), caseSensitive );
+                pos = skipSeparators( source, end );
+            }
+            node.terminal = true;
+        }
+        return new CompiledPatterns( caseSensitive, root.build( caseSensitive ),
+                                     regexPatterns.toArray( new Pattern[regexPatterns.size()] ) );
+    }
+
+    private static boolean isPrefixed( String pattern, String prefix )
+    {
+        return pattern.length() > prefix.length() + SelectorUtils.PATTERN_HANDLER_SUFFIX.length() + 1
+            && pattern.startsWith( prefix ) && pattern.endsWith( SelectorUtils.PATTERN_HANDLER_SUFFIX );
+    }
+
+    /**
+     * @return True, if names must match the case of the patterns.
+     */
+    public boolean isCaseSensitive()
+    {
+        return caseSensitive;
+    }
+
+    /**
+     * Tests, whether the given name matches at least one of the patterns.
+     * @param name The name to test, with '/', or '\' as separator.
+     * @return True, if the name matches.
+     */
+    public boolean matches( @Nonnull String name )
+    {
+        return match( root, name, skipSeparators( name, 0 ) ) || matchesRegex( name );
+    }
+
+    /**
+     * Tests, whether a name below the given directory might match one of the patterns. If not,
+     * the directory need not be scanned for names, which should match.
+     * @param directory The directories name, with '/', or '\' as separator.
+     * @return False, if no name below the directory can match, or true, if some name might match.
+     */
+    public boolean couldMatchBelow( @Nonnull String directory )
+    {
+        return regexPatterns.length > 0 || couldMatchBelow( root, directory, skipSeparators( directory, 0 ) );
+    }
+
+    /**
+     * Tests, whether all names below the given directory match one of the patterns, like
+     * "**&#47;target/**" matches everything below "a/target". If so, a directory, which should be excluded,
+     * need not be scanned at all.
+     * @param directory The directories name, with '/', or '\' as separator.
+     * @return True, if all names below the directory are sure to match, otherwise false.
+     */
+    public boolean matchesAllBelow( @Nonnull String directory )
+    {
+        return matchesAllBelow( root, directory, skipSeparators( directory, 0 ) );
+    }
+
+    private boolean matchesRegex( String name )
+    {
+        if ( regexPatterns.length == 0 )
+        {
+            return false;
+        }
+        final String canonicalName = name.replace( '/', File.separatorChar ).replace( '\\', File.separatorChar );
+        for ( Pattern pattern : regexPatterns )
+        {
+            if ( pattern.matcher( canonicalName ).matches() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean match( Node node, String name, int pos )
+    {
+        if ( pos == name.length() )
+        {
+            return node.acceptsEmpty;
+        }
+        final Node doubleStar = node.doubleStar;
+        if ( doubleStar != null )
+        {
+            // "**" consumes zero, or more segments
+            for ( int p = pos; ; p = skipSeparators( name, nextSeparator( name, p ) ) )
+            {
+                if ( match( doubleStar, name, p ) )
+                {
+                    return true;
+                }
+                if ( p == name.length() )
+                {
+                    break;
+                }
+            }
+        }
+        final int end = nextSeparator( name, pos );
+        final Node literal = node.literal( name, pos, end, caseSensitive );
+        if ( literal != null && match( literal, name, skipSeparators( name, end ) ) )
+        {
+            return true;
+        }
+        for ( int i = 0; i < node.wildcards.length; i++ )
+        {
+            if ( matchSegment( node.wildcards[i], name, pos, end, caseSensitive )
+                && match( node.wildcardNodes[i], name, skipSeparators( name, end ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean couldMatchBelow( Node node, String name, int pos )
+    {
+        if ( node.doubleStar != null )
+        {
+            // "**" may consume the remaining segments, and whatever follows may match below
+            return true;
+        }
+        if ( pos == name.length() )
+        {
+            return node.literals.length > 0 || node.wildcards.length > 0;
+        }
+        final int end = nextSeparator( name, pos );
+        final Node literal = node.literal( name, pos, end, caseSensitive );
+        if ( literal != null && couldMatchBelow( literal, name, skipSeparators( name, end ) ) )
+        {
+            return true;
+        }
+        for ( int i = 0; i < node.wildcards.length; i++ )
+        {
+            if ( matchSegment( node.wildcards[i], name, pos, end, caseSensitive )
+                && couldMatchBelow( node.wildcardNodes[i], name, skipSeparators( name, end ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesAllBelow( Node node, String name, int pos )
+    {
+        final Node doubleStar = node.doubleStar;
+        if ( pos == name.length() )
+        {
+            // The remainder of the pattern must consist of "**" only
+            return doubleStar != null && doubleStar.acceptsEmpty;
+        }
+        if ( doubleStar != null )
+        {
+            for ( int p = pos; ; p = skipSeparators( name, nextSeparator( name, p ) ) )
+            {
+                if ( p == name.length() )
+                {
+                    // The "**" consumes the directory, and everything below, if nothing else follows
+                    if ( doubleStar.acceptsEmpty )
+                    {
+                        return true;
+                    }
+                    break;
+                }
+                if ( matchesAllBelow( doubleStar, name, p ) )
+                {
+                    return true;
+                }
+            }
+        }
+        final int end = nextSeparator( name, pos );
+        final Node literal = node.literal( name, pos, end, caseSensitive );
+        if ( literal != null && matchesAllBelow( literal, name, skipSeparators( name, end ) ) )
+        {
+            return true;
+        }
+        for ( int i = 0; i < node.wildcards.length; i++ )
+        {
+            if ( matchSegment( node.wildcards[i], name, pos, end, caseSensitive )
+                && matchesAllBelow( node.wildcardNodes[i], name, skipSeparators( name, end ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSeparator( char c )
+    {
+        return c == '/' || c == '\\';
+    }
+
+    private static int skipSeparators( String name, int pos )
+    {
+        while ( pos < name.length() && isSeparator( name.charAt( pos ) ) )
+        {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int nextSeparator( String name, int pos )
+    {
+        while ( pos < name.length() && !isSeparator( name.charAt( pos ) ) )
+        {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static char fold( char c )
+    {
+        return Character.toLowerCase( Character.toUpperCase( c ) );
+    }
+
+    private static boolean equals( char c1, char c2, boolean caseSensitive )
+    {
+        if ( c1 == c2 )
+        {
+            return true;
+        }
+        return !caseSensitive && ( Character.toUpperCase( c1 ) == Character.toUpperCase( c2 )
+            || Character.toLowerCase( c1 ) == Character.toLowerCase( c2 ) );
+    }
+
+    private static int hash( CharSequence chars, int start, int end, boolean caseSensitive )
+    {
+        int h = 0;
+        for ( int i = start; i < end; i++ )
+        {
+            h = 31 * h + ( caseSensitive ? chars.charAt( i ) : fold( chars.charAt( i ) ) );
+        }
+        return h ^ ( h >>> 16 );
+    }
+
+    /**
+     * Matches a single segment against a pattern segment with '*', and '?' wildcards.
+     */
+    private static boolean matchSegment( char[] pattern, String name, int start, int end, boolean caseSensitive )
+    {
+        int p = 0;
+        int n = start;
+        int starP = -1;
+        int starN = -1;
+        while ( n < end )
+        {
+            if ( p < pattern.length && pattern[p] == '*' )
+            {
+                starP = p++;
+                starN = n;
+            }
+            else if ( p < pattern.length
+                && ( pattern[p] == '?' || equals( pattern[p], name.charAt( n ), caseSensitive ) ) )
+            {
+                p++;
+                n++;
+            }
+            else if ( starP != -1 )
+            {
+                p = starP + 1;
+                n = ++starN;
+            }
+            else
+            {
+                return false;
+            }
+        }
+        while ( p < pattern.length && pattern[p] == '*' )
+        {
+            p++;
+        }
+        return p == pattern.length;
+    }
+
+    private static boolean isWildcard( String segment )
+    {
+        return segment.indexOf( '*' ) != -1 || segment.indexOf( '?' ) != -1;
+    }
+
+    /**
+     * A node of the compiled trie.
+     */
+    private static final class Node
+    {
+        /**
+         * True, if a pattern ends here, or only "**" segments follow.
+         */
+        boolean acceptsEmpty;
+
+        Node doubleStar;
+
+        /**
+         * Literal segments in an open addressing hash table, with {@link #literalNodes} at the same index.
+         */
+        char[][] literals;
+
+        Node[] literalNodes;
+
+        char[][] wildcards;
+
+        Node[] wildcardNodes;
+
+        Node literal( String name, int start, int end, boolean caseSensitive )
+        {
+            if ( literals.length == 0 )
+            {
+                return null;
+            }
+            final int mask = literals.length - 1;
+            final int length = end - start;
+            for ( int i = hash( name, start, end, caseSensitive ) & mask; literals[i] != null; i = ( i + 1 ) & mask )
+            {
+                final char[] literal = literals[i];
+                if ( literal.length == length && regionMatches( literal, name, start, caseSensitive ) )
+                {
+                    return literalNodes[i];
+                }
+            }
+            return null;
+        }
+
+        private static boolean regionMatches( char[] literal, String name, int start, boolean caseSensitive )
+        {
+            for ( int i = 0; i < literal.length; i++ )
+            {
+                if ( !CompiledPatterns.equals( literal[i], name.charAt( start + i ), caseSensitive ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The mutable form of a {@link Node}, while compiling.
+     */
+    private static final class Builder
+    {
+        boolean terminal;
+
+        Builder doubleStar;
+
+        final Map<String, Builder> literals = new LinkedHashMap<String, Builder>();
+
+        final Map<String, Builder> wildcards = new LinkedHashMap<String, Builder>();
+
+        Builder child( String segment, boolean caseSensitive )
+        {
+            if ( DOUBLE_STAR.equals( segment ) )
+            {
+                if ( doubleStar == null )
+                {
+                    doubleStar = new Builder();
+                }
+                return doubleStar;
+            }
+            final Map<String, Builder> map = isWildcard( segment ) ? wildcards : literals;
+            final String key = caseSensitive || map == wildcards ? segment : foldAll( segment );
+            Builder result = map.get( key );
+            if ( result == null )
+            {
+                result = new Builder();
+                map.put( key, result );
+            }
+            return result;
+        }
+
+        private static String foldAll( String segment )
+        {
+            final char[] chars = segment.toCharArray();
+            for ( int i = 0; i < chars.length; i++ )
+            {
+                chars[i] = fold( chars[i] );
+            }
+            return new String( chars );
+        }
+
+        Node build( boolean caseSensitive )
+        {
+            final Node node = new Node();
+            if ( doubleStar != null )
+            {
+                node.doubleStar = doubleStar.build( caseSensitive );
+            }
+            node.acceptsEmpty = terminal || ( node.doubleStar != null && node.doubleStar.acceptsEmpty );
+
+            int capacity = 0;
+            if ( !literals.isEmpty() )
+            {
+                capacity = 2;
+                while ( capacity < literals.size() * 2 )
+                {
+                    capacity *= 2;
+                }
+            }
+            node.literals = new char[capacity][];
+            node.literalNodes = new Node[capacity];
+            for ( Map.Entry<String, Builder> entry : literals.entrySet() )
+            {
+                final String key = entry.getKey();
+                int i = hash( key, 0, key.length(), caseSensitive ) & ( capacity - 1 );
+                while ( node.literals[i] != null )
+                {
+                    i = ( i + 1 ) & ( capacity - 1 );
+                }
+                node.literals[i] = key.toCharArray();
+                node.literalNodes[i] = entry.getValue().build( caseSensitive );
+            }
+
+            node.wildcards = new char[wildcards.size()][];
+            node.wildcardNodes = new Node[wildcards.size()];
+            int i = 0;
+            for ( Map.Entry<String, Builder> entry : wildcards.entrySet() )
+            {
+                node.wildcards[i] = entry.getKey().toCharArray();
+                node.wildcardNodes[i++] = entry.getValue().build( caseSensitive );
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.codehaus.plexus.components.io.fileselectors;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+
+/**
+ * May be implemented by a {@link FileSelector}, which is able to tell in advance, that it
+ * won't select anything below a directory. Collections, which walk a file system, use this
+ * to skip the directory entirely, without listing its contents.
+ */
+public interface DirectoryDescentSelector
+{
+    /**
+     * Returns, whether the selector might select some file, or directory below the given directory.
+     * Returning true is always safe. The directory itself is still passed to
+     * {@link FileSelector#isSelected(FileInfo)}.
+     * @param directoryName The directories name, as it would be returned by {@link FileInfo#getName()}.
+     * @return False, if nothing below the directory will be selected, otherwise true.
+     */
+    boolean shouldDescend( @Nonnull String directoryName );
+}
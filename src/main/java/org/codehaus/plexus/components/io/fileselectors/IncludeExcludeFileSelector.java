@@ -19,7 +19,6 @@
 import java.io.File;
 
 import org.codehaus.plexus.util.FileUtils;
-import org.codehaus.plexus.util.MatchPatterns;
 import org.codehaus.plexus.util.SelectorUtils;
 
 import javax.annotation.Nonnull;
@@ -28,18 +27,19 @@
 
 /**
  * This file selector uses a set of patterns for including/excluding
- * files.
+ * files. The patterns are {@link CompiledPatterns compiled}, whenever they,
+ * or the case sensitivity, are changed.
  */
 public class
-    IncludeExcludeFileSelector implements FileSelector
+    IncludeExcludeFileSelector implements FileSelector, DirectoryDescentSelector
 {
     /**
      * The include/exclude file selectors role-hint: "standard".
      */
     public static final String ROLE_HINT = "standard";
 
-    private static final MatchPatterns ALL_INCLUDES = MatchPatterns.from( getCanonicalName( "**/*" ));
-    private static final MatchPatterns ZERO_EXCLUDES = MatchPatterns.from( );
+    private static final String[] ALL_INCLUDES = { getCanonicalName( "**/*" ) };
+    private static final String[] ZERO_EXCLUDES = { };
 
     private boolean isCaseSensitive = true;
 
@@ -49,9 +49,13 @@
 
     private String[] excludes;
 
-    private MatchPatterns computedIncludes = ALL_INCLUDES;
+    private String[] includePatterns = ALL_INCLUDES;
 
-    private MatchPatterns computedExcludes = ZERO_EXCLUDES;
+    private String[] excludePatterns = ZERO_EXCLUDES;
+
+    private CompiledPatterns computedIncludes = CompiledPatterns.compile( includePatterns, isCaseSensitive );
+
+    private CompiledPatterns computedExcludes = CompiledPatterns.compile( excludePatterns, isCaseSensitive );
 
     /**
      * Tests whether or not a name matches against at least one exclude
@@ -63,7 +67,7 @@
      */
     protected boolean isExcluded( @Nonnull String name )
     {
-        return computedExcludes.matches( name, isCaseSensitive );
+        return computedExcludes.matches( name );
     }
 
     /**
@@ -84,7 +88,7 @@ public void setIncludes( @Nullable String[] includes )
         this.includes = includes;
         if ( includes == null )
         {
-            computedIncludes = ALL_INCLUDES;
+            includePatterns = ALL_INCLUDES;
         }
         else
         {
@@ -94,8 +98,9 @@ public void setIncludes( @Nullable String[] includes )
             {
                 cleaned[i] = asPattern( includes[i] );
             }
-            computedIncludes = MatchPatterns.from( cleaned );
+            includePatterns = cleaned;
         }
+        computedIncludes = CompiledPatterns.compile( includePatterns, isCaseSensitive );
     }
 
     private static @Nonnull String getCanonicalName( @Nonnull String pName )
@@ -145,7 +150,7 @@ public void setExcludes( @Nullable String[] excludes )
         final String[] defaultExcludes = useDefaultExcludes ? FileUtils.getDefaultExcludes() : new String []{};
         if ( excludes == null )
         {
-            computedExcludes = MatchPatterns.from( defaultExcludes);
+            excludePatterns = defaultExcludes;
         }
         else
         {
@@ -159,9 +164,9 @@ public void setExcludes( @Nullable String[] excludes )
             {
                 System.arraycopy( defaultExcludes, 0, temp, excludes.length, defaultExcludes.length );
             }
-            computedExcludes = MatchPatterns.from(  temp );
-
+            excludePatterns = temp;
         }
+        computedExcludes = CompiledPatterns.compile( excludePatterns, isCaseSensitive );
     }
 
     /**
@@ -200,7 +205,7 @@ protected boolean matchPath( @Nonnull String pattern, @Nonnull String name,
      */
     protected boolean isIncluded( @Nonnull String name )
     {
-        return computedIncludes.matches( name, isCaseSensitive );
+        return computedIncludes.matches( name );
     }
 
     public boolean isSelected( @Nonnull FileInfo fileInfo )
@@ -209,6 +214,20 @@ public boolean isSelected( @Nonnull FileInfo fileInfo )
         return isIncluded( name ) && !isExcluded( name );
     }
 
+    /**
+     * Returns false, if no include pattern can match below the directory, or an exclude pattern
+     * matches everything below it. Subclasses, which override {@link #isIncluded(String)}, or
+     * {@link #isExcluded(String)}, must override this method as well, if they want to prune directories.
+     */
+    public boolean shouldDescend( @Nonnull String directoryName )
+    {
+        if ( getClass() != IncludeExcludeFileSelector.class )
+        {
+            return true;
+        }
+        return computedIncludes.couldMatchBelow( directoryName ) && !computedExcludes.matchesAllBelow( directoryName );
+    }
+
     /**
      * Returns, whether the include/exclude patterns are case sensitive.
      * @return True, if the patterns are case sensitive (default), or false.
@@ -225,6 +244,8 @@ public boolean isCaseSensitive()
     public void setCaseSensitive( boolean caseSensitive )
     {
         isCaseSensitive = caseSensitive;
+        computedIncludes = CompiledPatterns.compile( includePatterns, isCaseSensitive );
+        computedExcludes = CompiledPatterns.compile( excludePatterns, isCaseSensitive );
     }
 
     /**
@@ -0,0 +1,39 @@
+package org.codehaus.plexus.components.io.functions;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * Implemented by resources, which can supply a digest of their contents, as returned by
+ * {@link org.codehaus.plexus.components.io.resources.PlexusIoResource#getContents()}. Implementations
+ * remember the digest, or compute it while the contents are read anyway, so that callers don't need
+ * to read the contents a second time.
+ */
+public interface ContentDigestSupplier
+{
+    /**
+     * Returns the digest of the contents. If the digest isn't known yet, the contents are read.
+     * @param algorithm The name of a {@link java.security.MessageDigest} algorithm, for example "SHA-256".
+     * @return A new array with the digest.
+     * @throws IOException Reading the contents failed, or the algorithm isn't available.
+     */
+    @Nonnull
+    byte[] getContentDigest( @Nonnull String algorithm )
+        throws IOException;
+}
@@ -0,0 +1,61 @@
+package org.codehaus.plexus.components.io.functions;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Implemented by resources, whose contents may be available as a region of a file. Consumers
+ * may use the channel for copying the contents without reading them through a stream, for example
+ * <pre>
+ *   FileChannel channel = supplier.openChannel();
+ *   if ( channel != null ) {
+ *       try {
+ *           channel.transferTo( supplier.getChannelOffset(), supplier.getChannelLength(), target );
+ *       } finally {
+ *           channel.close();
+ *       }
+ *   } else {
+ *       // Read resource.getContents()
+ *   }
+ * </pre>
+ */
+public interface FileChannelSupplier
+{
+    /**
+     * Opens a channel, which provides the contents of the resource. The caller must close the channel.
+     * Opening the channel counts as reading the contents.
+     * @return The channel, or null, if the contents are not available as a region of a file,
+     *   for example, because they are transformed in memory. The contents must be read through
+     *   a stream then.
+     */
+    @Nullable
+    FileChannel openChannel()
+        throws IOException;
+
+    /**
+     * @return The position of the contents within the channel.
+     */
+    long getChannelOffset();
+
+    /**
+     * @return The number of bytes, which belong to the contents, starting at the {@link #getChannelOffset() offset}.
+     */
+    long getChannelLength();
+}
@@ -0,0 +1,41 @@
+package org.codehaus.plexus.components.io.functions;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+
+import java.io.IOException;
+
+/**
+ * Processes resources in two steps: The first step runs concurrently, the second step
+ * receives the results on a single thread, in the order of the resources.
+ * @see org.codehaus.plexus.components.io.resources.Stream#forEachOrdered
+ */
+public interface OrderedResourceProcessor<T>
+{
+    /**
+     * Invoked concurrently, for any number of resources.
+     */
+    T process( PlexusIoResource resource )
+        throws IOException;
+
+    /**
+     * Invoked with the result of {@link #process(PlexusIoResource)}, in the order of the resources.
+     */
+    void complete( PlexusIoResource resource, T result )
+        throws IOException;
+}
@@ -0,0 +1,57 @@
+package org.codehaus.plexus.components.io.metrics;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.io.File;
+
+/**
+ * Implementation of {@link PlexusIoMetrics}, which ignores every measurement. Subclasses
+ * override the methods for the measurements they are interested in.
+ */
+public abstract class AbstractPlexusIoMetrics
+    implements PlexusIoMetrics
+{
+    public void directoryScanned( @Nonnull File baseDir, int resourceCount, long nanos )
+    {
+    }
+
+    public void attributesRead( @Nonnull File file, long nanos )
+    {
+    }
+
+    public void attributesMerged( long nanos )
+    {
+    }
+
+    public void resourceSelected( @Nonnull String name, boolean selected, long nanos )
+    {
+    }
+
+    public void nameMapped( @Nonnull String name, @Nonnull String mappedName, long nanos )
+    {
+    }
+
+    public void contentsTransformed( @Nonnull String name, long bytesIn, long bytesOut, boolean spilled,
+                                     long nanos )
+    {
+    }
+
+    public void contentsRead( @Nonnull String name, long bytes, long nanos )
+    {
+    }
+}
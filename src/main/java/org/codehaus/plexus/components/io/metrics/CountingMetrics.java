@@ -0,0 +1,168 @@
+package org.codehaus.plexus.components.io.metrics;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Implementation of {@link PlexusIoMetrics}, which sums up the number of events, the time,
+ * and the bytes per {@link Phase phase}. Instances may be shared by several collections.
+ */
+public class CountingMetrics
+    extends AbstractPlexusIoMetrics
+{
+    /**
+     * The phases, which are counted.
+     */
+    public enum Phase
+    {
+        /** Directory scans; the count is the number of resources found. */
+        SCAN,
+        /** Attribute reads. */
+        ATTRIBUTES,
+        /** Merging attributes with defaults, and overrides. */
+        MERGE,
+        /** File selectors. */
+        SELECT,
+        /** File mappers. */
+        MAP,
+        /** Buffered transformations; the bytes are the transformed bytes. */
+        TRANSFORM,
+        /** Content reads; the time is the time, streams have been open. */
+        READ
+    }
+
+    private static final int PHASES = Phase.values().length;
+
+    private final AtomicLongArray counts = new AtomicLongArray( PHASES );
+
+    private final AtomicLongArray nanos = new AtomicLongArray( PHASES );
+
+    private final AtomicLongArray bytes = new AtomicLongArray( PHASES );
+
+    private final AtomicLongArray spilled = new AtomicLongArray( 1 );
+
+    private void add( Phase phase, long count, long time, long byteCount )
+    {
+        final int i = phase.ordinal();
+        counts.addAndGet( i, count );
+        nanos.addAndGet( i, time );
+        if ( byteCount > 0 )
+        {
+            bytes.addAndGet( i, byteCount );
+        }
+    }
+
+    @Override
+    public void directoryScanned( @Nonnull File baseDir, int resourceCount, long nanos )
+    {
+        add( Phase.SCAN, resourceCount, nanos, 0 );
+    }
+
+    @Override
+    public void attributesRead( @Nonnull File file, long nanos )
+    {
+        add( Phase.ATTRIBUTES, 1, nanos, 0 );
+    }
+
+    @Override
+    public void attributesMerged( long nanos )
+    {
+        add( Phase.MERGE, 1, nanos, 0 );
+    }
+
+    @Override
+    public void resourceSelected( @Nonnull String name, boolean selected, long nanos )
+    {
+        add( Phase.SELECT, 1, nanos, 0 );
+    }
+
+    @Override
+    public void nameMapped( @Nonnull String name, @Nonnull String mappedName, long nanos )
+    {
+        add( Phase.MAP, 1, nanos, 0 );
+    }
+
+    @Override
+    public void contentsTransformed( @Nonnull String name, long bytesIn, long bytesOut, boolean spilled,
+                                     long nanos )
+    {
+        add( Phase.TRANSFORM, 1, nanos, bytesOut );
+        if ( spilled )
+        {
+            this.spilled.incrementAndGet( 0 );
+        }
+    }
+
+    @Override
+    public void contentsRead( @Nonnull String name, long bytes, long nanos )
+    {
+        add( Phase.READ, 1, nanos, bytes );
+    }
+
+    /**
+     * @return The number of events in the given phase.
+     */
+    public long getCount( @Nonnull Phase phase )
+    {
+        return counts.get( phase.ordinal() );
+    }
+
+    /**
+     * @return The total time of the given phase in nanoseconds.
+     */
+    public long getNanos( @Nonnull Phase phase )
+    {
+        return nanos.get( phase.ordinal() );
+    }
+
+    /**
+     * @return The number of bytes, which have been transformed, or read.
+     */
+    public long getBytes( @Nonnull Phase phase )
+    {
+        return bytes.get( phase.ordinal() );
+    }
+
+    /**
+     * @return The number of transformations, which have been spilled to a temporary file.
+     */
+    public long getSpilledCount()
+    {
+        return spilled.get( 0 );
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        for ( Phase phase : Phase.values() )
+        {
+            sb.append( phase ).append( ": " ).append( getCount( phase ) ).append( ", " )
+                .append( TimeUnit.NANOSECONDS.toMillis( getNanos( phase ) ) ).append( " ms" );
+            if ( phase == Phase.TRANSFORM || phase == Phase.READ )
+            {
+                sb.append( ", " ).append( getBytes( phase ) ).append( " bytes" );
+            }
+            sb.append( '\n' );
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,254 @@
+package org.codehaus.plexus.components.io.metrics;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Implementation of {@link PlexusIoMetrics}, which emits Java Flight Recorder events, so that slow
+ * directories, and expensive transformers show up in a recording. The events are in the category
+ * "Plexus IO":
+ * <ul>
+ *   <li>{@code org.codehaus.plexus.io.DirectoryScan}: The directory, the number of resources, and the scan time.</li>
+ *   <li>{@code org.codehaus.plexus.io.AttributeRead}: The path, and the read time.</li>
+ *   <li>{@code org.codehaus.plexus.io.Transform}: The resource, the bytes in, and out, whether the
+ *     result has been spilled, and the transform time.</li>
+ *   <li>{@code org.codehaus.plexus.io.ContentsRead}: The resource, the bytes read, and the time the
+ *     stream has been open.</li>
+ * </ul>
+ * Because the measurements are reported after the fact, the durations are event fields, rather than
+ * the events durations. Like the {@link org.codehaus.plexus.components.io.attributes.Java7Reflector},
+ * this uses reflection only, because plexus-io is built for older runtimes. If the runtime has no
+ * flight recorder, no events are emitted.
+ */
+public class JfrMetrics
+    extends AbstractPlexusIoMetrics
+{
+    private static final String CATEGORY = "Plexus IO";
+
+    private static final EventType[] EVENT_TYPES = createEventTypes();
+
+    private static final EventType DIRECTORY_SCAN = EVENT_TYPES == null ? null : EVENT_TYPES[0];
+
+    private static final EventType ATTRIBUTE_READ = EVENT_TYPES == null ? null : EVENT_TYPES[1];
+
+    private static final EventType TRANSFORM = EVENT_TYPES == null ? null : EVENT_TYPES[2];
+
+    private static final EventType CONTENTS_READ = EVENT_TYPES == null ? null : EVENT_TYPES[3];
+
+    private static EventType[] createEventTypes()
+    {
+        try
+        {
+            final Jfr jfr = new Jfr();
+            return new EventType[]{
+                jfr.eventType( "org.codehaus.plexus.io.DirectoryScan", "Directory Scan",
+                               "A directory has been scanned for resources.",
+                               jfr.field( String.class, "directory", "Directory" ),
+                               jfr.field( int.class, "resourceCount", "Resource Count" ),
+                               jfr.timespan( "scanTime", "Scan Time" ) ),
+                jfr.eventType( "org.codehaus.plexus.io.AttributeRead", "Attribute Read",
+                               "The attributes of a file, or directory tree have been read.",
+                               jfr.field( String.class, "path", "Path" ),
+                               jfr.timespan( "readTime", "Read Time" ) ),
+                jfr.eventType( "org.codehaus.plexus.io.Transform", "Transform",
+                               "The contents of a resource have been transformed, and buffered.",
+                               jfr.field( String.class, "resource", "Resource" ),
+                               jfr.dataAmount( "bytesIn", "Bytes In" ),
+                               jfr.dataAmount( "bytesOut", "Bytes Out" ),
+                               jfr.field( boolean.class, "spilled", "Spilled" ),
+                               jfr.timespan( "transformTime", "Transform Time" ) ),
+                jfr.eventType( "org.codehaus.plexus.io.ContentsRead", "Contents Read",
+                               "A stream with the contents of a resource has been closed.",
+                               jfr.field( String.class, "resource", "Resource" ),
+                               jfr.dataAmount( "bytesRead", "Bytes Read" ),
+                               jfr.timespan( "timeOpen", "Time Open" ) ) };
+        }
+        catch ( Exception e )
+        {
+            return null;
+        }
+        catch ( LinkageError e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return True, if the runtime has a flight recorder, so that events are emitted.
+     */
+    public static boolean isSupported()
+    {
+        return DIRECTORY_SCAN != null;
+    }
+
+    @Override
+    public void directoryScanned( @Nonnull File baseDir, int resourceCount, long nanos )
+    {
+        if ( DIRECTORY_SCAN != null )
+        {
+            DIRECTORY_SCAN.commit( baseDir.getPath(), resourceCount, nanos );
+        }
+    }
+
+    @Override
+    public void attributesRead( @Nonnull File file, long nanos )
+    {
+        if ( ATTRIBUTE_READ != null )
+        {
+            ATTRIBUTE_READ.commit( file.getPath(), nanos );
+        }
+    }
+
+    @Override
+    public void contentsTransformed( @Nonnull String name, long bytesIn, long bytesOut, boolean spilled,
+                                     long nanos )
+    {
+        if ( TRANSFORM != null )
+        {
+            TRANSFORM.commit( name, bytesIn, bytesOut, spilled, nanos );
+        }
+    }
+
+    @Override
+    public void contentsRead( @Nonnull String name, long bytes, long nanos )
+    {
+        if ( CONTENTS_READ != null )
+        {
+            CONTENTS_READ.commit( name, bytes, nanos );
+        }
+    }
+
+    /**
+     * An event type, which has been created by the {@code jdk.jfr.EventFactory}.
+     */
+    private static final class EventType
+    {
+        private final Object factory;
+
+        private final Object eventType;
+
+        private final Method isEnabled;
+
+        private final Method newEvent;
+
+        private final Method set;
+
+        private final Method commit;
+
+        EventType( Object factory )
+            throws Exception
+        {
+            this.factory = factory;
+            final Class<?> eventFactory = Class.forName( "jdk.jfr.EventFactory" );
+            this.eventType = eventFactory.getMethod( "getEventType" ).invoke( factory );
+            this.isEnabled = Class.forName( "jdk.jfr.EventType" ).getMethod( "isEnabled" );
+            this.newEvent = eventFactory.getMethod( "newEvent" );
+            final Class<?> event = Class.forName( "jdk.jfr.Event" );
+            this.set = event.getMethod( "set", int.class, Object.class );
+            this.commit = event.getMethod( "commit" );
+        }
+
+        /**
+         * Emits an event with the given field values, unless the event type is disabled.
+         * Failures are ignored, because metrics must not break the build.
+         */
+        void commit( Object... values )
+        {
+            try
+            {
+                if ( !(Boolean) isEnabled.invoke( eventType ) )
+                {
+                    return;
+                }
+                final Object event = newEvent.invoke( factory );
+                for ( int i = 0; i < values.length; i++ )
+                {
+                    set.invoke( event, i, values[i] );
+                }
+                commit.invoke( event );
+            }
+            catch ( Exception e )
+            {
+                // Ignore, see above
+            }
+        }
+    }
+
+    /**
+     * Creates event types, and their fields through the {@code jdk.jfr} API.
+     */
+    private static final class Jfr
+    {
+        private final Constructor<?> annotationElement;
+
+        private final Constructor<?> valueDescriptor;
+
+        private final Method create;
+
+        Jfr()
+            throws Exception
+        {
+            annotationElement =
+                Class.forName( "jdk.jfr.AnnotationElement" ).getConstructor( Class.class, Object.class );
+            valueDescriptor =
+                Class.forName( "jdk.jfr.ValueDescriptor" ).getConstructor( Class.class, String.class, List.class );
+            create = Class.forName( "jdk.jfr.EventFactory" ).getMethod( "create", List.class, List.class );
+        }
+
+        private Object annotation( String type, Object value )
+            throws Exception
+        {
+            return annotationElement.newInstance( Class.forName( "jdk.jfr." + type ), value );
+        }
+
+        Object field( Class<?> type, String name, String label, Object... annotations )
+            throws Exception
+        {
+            final List<Object> list = new ArrayList<Object>( Arrays.asList( annotations ) );
+            list.add( annotation( "Label", label ) );
+            return valueDescriptor.newInstance( type, name, list );
+        }
+
+        Object timespan( String name, String label )
+            throws Exception
+        {
+            return field( long.class, name, label, annotation( "Timespan", "NANOSECONDS" ) );
+        }
+
+        Object dataAmount( String name, String label )
+            throws Exception
+        {
+            return field( long.class, name, label, annotation( "DataAmount", "BYTES" ) );
+        }
+
+        EventType eventType( String name, String label, String description, Object... fields )
+            throws Exception
+        {
+            final List<Object> annotations = Arrays.asList( annotation( "Name", name ), annotation( "Label", label ),
+                                                            annotation( "Description", description ),
+                                                            annotation( "Category", new String[]{ CATEGORY } ) );
+            return new EventType( create.invoke( null, annotations, Arrays.asList( fields ) ) );
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.codehaus.plexus.components.io.metrics;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.io.File;
+
+/**
+ * Receives measurements from resource collections, and their resources. Durations are given in
+ * nanoseconds, sizes in bytes. Implementations must be thread safe, and fast, because they are
+ * invoked for every resource, possibly from several threads. If no metrics are configured,
+ * nothing is measured at all.
+ * <p>
+ * Implementations should extend {@link AbstractPlexusIoMetrics}, so that they keep compiling,
+ * if methods are added to this interface.
+ * @see org.codehaus.plexus.components.io.resources.AbstractPlexusIoResourceCollection#setMetrics(PlexusIoMetrics)
+ */
+public interface PlexusIoMetrics
+{
+    /**
+     * Invoked after a directory has been scanned completely. Streaming scans, which find the
+     * resources as they are requested, are not reported.
+     * @param resourceCount The number of resources found.
+     */
+    void directoryScanned( @Nonnull File baseDir, int resourceCount, long nanos );
+
+    /**
+     * Invoked after the attributes of a file, or of all files below a directory, have been read.
+     */
+    void attributesRead( @Nonnull File file, long nanos );
+
+    /**
+     * Invoked after the attributes of a resource have been merged with the default, and override attributes.
+     */
+    void attributesMerged( long nanos );
+
+    /**
+     * Invoked after the file selectors have been asked, whether a resource is selected.
+     */
+    void resourceSelected( @Nonnull String name, boolean selected, long nanos );
+
+    /**
+     * Invoked after the file mappers have mapped a resources name.
+     */
+    void nameMapped( @Nonnull String name, @Nonnull String mappedName, long nanos );
+
+    /**
+     * Invoked after the contents of a resource have been transformed, and buffered.
+     * Transformations, which run whenever the contents are read, are reported as reads only.
+     * @param bytesIn The size of the original contents, or -1, if unknown.
+     * @param bytesOut The size of the transformed contents.
+     * @param spilled True, if the transformed contents have been spilled to a temporary file.
+     */
+    void contentsTransformed( @Nonnull String name, long bytesIn, long bytesOut, boolean spilled, long nanos );
+
+    /**
+     * Invoked, when a stream with the contents of a resource is closed.
+     * @param bytes The number of bytes read.
+     * @param nanos The time, the stream has been open.
+     */
+    void contentsRead( @Nonnull String name, long bytes, long nanos );
+}
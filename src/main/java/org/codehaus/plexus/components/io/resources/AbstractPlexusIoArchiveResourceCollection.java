@@ -21,7 +21,6 @@
 import java.io.IOException;
 import java.util.Iterator;
 
-import org.codehaus.plexus.components.io.functions.PlexusIoResourceConsumer;
 
 /**
  * Default implementation of {@link PlexusIoFileResourceCollection} for
@@ -123,25 +122,18 @@ public void close()
     }
     public Stream stream()
     {
-        return new Stream()
+        return new AbstractStream()
         {
-            public void forEach( PlexusIoResourceConsumer resourceConsumer )
+            protected Iterator<PlexusIoResource> resources()
                 throws IOException
             {
+                return getEntries();
+            }
 
-                final Iterator<PlexusIoResource> it = getEntries();
-                while( it.hasNext())
-                {
-                    final PlexusIoResource res = it.next();
-                    if ( isSelected( res ) )
-                    {
-                        resourceConsumer.accept(  res );
-                    }
-                }
-                if (it instanceof Closeable )
-                {
-                    ((Closeable)it).close();
-                }
+            protected boolean isIncluded( PlexusIoResource resource )
+                throws IOException
+            {
+                return isSelected( resource );
             }
         };
     }
@@ -151,4 +143,12 @@ public long getLastModified() throws IOException
         File f = getFile();
         return f == null ? PlexusIoResource.UNKNOWN_MODIFICATION_DATE : f.lastModified();
     }
+
+    @Override
+    public boolean isNewerThan( long timestamp )
+        throws IOException
+    {
+        final long lastModified = getLastModified();
+        return lastModified == PlexusIoResource.UNKNOWN_MODIFICATION_DATE || lastModified > timestamp;
+    }
 }
\ No newline at end of file
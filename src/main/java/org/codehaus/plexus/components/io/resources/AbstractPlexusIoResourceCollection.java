@@ -18,12 +18,18 @@
 
 import org.codehaus.plexus.components.io.filemappers.FileMapper;
 import org.codehaus.plexus.components.io.filemappers.PrefixFileMapper;
+import org.codehaus.plexus.components.io.fileselectors.DirectoryDescentSelector;
 import org.codehaus.plexus.components.io.fileselectors.FileSelector;
 import org.codehaus.plexus.components.io.functions.InputStreamTransformer;
+import org.codehaus.plexus.components.io.metrics.PlexusIoMetrics;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Iterator;
 
 
@@ -31,7 +37,7 @@
  * Default implementation of a resource collection.
  */
 public abstract class AbstractPlexusIoResourceCollection
-    implements PlexusIoResourceCollection
+    implements PlexusIoResourceCollection, Closeable
 {
 
     static class IdentityTransformer
@@ -65,6 +71,16 @@ public InputStream transform( @Nonnull PlexusIoResource resource, @Nonnull Input
 
     private InputStreamTransformer streamTransformer = identityTransformer;
 
+    private boolean transformOnRead;
+
+    private BufferingPolicy bufferingPolicy = BufferingPolicy.getDefault();
+
+    private String contentDigestAlgorithm;
+
+    private SpillManager spillManager;
+
+    private PlexusIoMetrics metrics;
+
     protected AbstractPlexusIoResourceCollection()
     {
     }
@@ -122,6 +138,131 @@ protected InputStreamTransformer getStreamTransformer()
         return streamTransformer;
     }
 
+    /**
+     * Sets, whether the stream transformer runs whenever the contents of a resource are read,
+     * rather than once, when the resource is created (or resolved), with the result being buffered
+     * in memory, or in a temporary file. If enabled, the transformed size is only calculated on demand,
+     * and remembered, once the contents have been read completely. Defaults to false.
+     * @param transformOnRead true to transform on read
+     */
+    public void setTransformOnRead( boolean transformOnRead )
+    {
+        this.transformOnRead = transformOnRead;
+    }
+
+    /**
+     * @return Returns, whether the stream transformer runs whenever the contents of a resource are read.
+     */
+    public boolean isTransformOnRead()
+    {
+        return transformOnRead;
+    }
+
+    /**
+     * Sets the policy, which controls how the output of the stream transformer is buffered,
+     * unless {@link #setTransformOnRead(boolean) transforming on read}. Several collections may
+     * share a policy, and its memory budget.
+     * @param bufferingPolicy The policy, or null for {@link BufferingPolicy#getDefault()}.
+     */
+    public void setBufferingPolicy( BufferingPolicy bufferingPolicy )
+    {
+        this.bufferingPolicy = bufferingPolicy != null ? bufferingPolicy : BufferingPolicy.getDefault();
+    }
+
+    /**
+     * @return The policy, which controls how the output of the stream transformer is buffered.
+     */
+    @Nonnull
+    public BufferingPolicy getBufferingPolicy()
+    {
+        return bufferingPolicy;
+    }
+
+    /**
+     * Sets the manager, which tracks the buffered output of the stream transformer. By default, there is
+     * none, and the buffer of a resource is released (or its temporary file deleted), once its contents
+     * have been read. With a manager, the contents may be read repeatedly, and the buffers are kept, until
+     * the manager, or the collection, is {@link #close() closed}. The manager also provides the number
+     * of spilled files, and bytes.
+     * @param spillManager The manager, or null.
+     */
+    public void setSpillManager( @Nullable SpillManager spillManager )
+    {
+        this.spillManager = spillManager;
+    }
+
+    /**
+     * @return The manager, which tracks the buffered output of the stream transformer, or null.
+     */
+    @Nullable
+    public SpillManager getSpillManager()
+    {
+        return spillManager;
+    }
+
+    /**
+     * Closes the {@link #setSpillManager(SpillManager) spill manager}, if any, which discards the buffers
+     * of the transformed contents, and deletes their temporary files. The collection itself may still be used.
+     */
+    public void close()
+        throws IOException
+    {
+        if ( spillManager != null )
+        {
+            spillManager.close();
+        }
+    }
+
+    /**
+     * Sets the metrics, which receive measurements of scanning, reading attributes, selecting,
+     * mapping, transforming, and reading contents. Defaults to null, in which case nothing is measured.
+     */
+    public void setMetrics( @Nullable PlexusIoMetrics metrics )
+    {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The metrics, which receive measurements, or null.
+     */
+    @Nullable
+    public PlexusIoMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Sets the digest algorithm, which resources compute while their contents are read, or buffered,
+     * so that {@link org.codehaus.plexus.components.io.functions.ContentDigestSupplier#getContentDigest(String)}
+     * needn't read them again. Defaults to null, in which case digests are computed on request only.
+     * @param contentDigestAlgorithm The name of a {@link java.security.MessageDigest} algorithm,
+     *   for example "SHA-256", or null.
+     * @throws IllegalArgumentException The algorithm isn't available.
+     */
+    public void setContentDigestAlgorithm( String contentDigestAlgorithm )
+    {
+        if ( contentDigestAlgorithm != null )
+        {
+            try
+            {
+                MessageDigest.getInstance( contentDigestAlgorithm );
+            }
+            catch ( NoSuchAlgorithmException e )
+            {
+                throw new IllegalArgumentException( "Digest algorithm not available: " + contentDigestAlgorithm );
+            }
+        }
+        this.contentDigestAlgorithm = contentDigestAlgorithm;
+    }
+
+    /**
+     * @return The digest algorithm, which resources compute while their contents are read, or null.
+     */
+    public String getContentDigestAlgorithm()
+    {
+        return contentDigestAlgorithm;
+    }
+
     /**
      * Sets a string of patterns, which included files
      * should match.
@@ -214,13 +355,50 @@ public boolean isIncludingEmptyDirectories()
 
     protected boolean isSelected( PlexusIoResource plexusIoResource )
         throws IOException
+    {
+        FileSelector[] fileSelectors = getFileSelectors();
+        if ( fileSelectors == null )
+        {
+            return true;
+        }
+        if ( metrics == null )
+        {
+            return isSelected( fileSelectors, plexusIoResource );
+        }
+        final long start = System.nanoTime();
+        final boolean selected = isSelected( fileSelectors, plexusIoResource );
+        metrics.resourceSelected( plexusIoResource.getName(), selected, System.nanoTime() - start );
+        return selected;
+    }
+
+    private static boolean isSelected( FileSelector[] fileSelectors, PlexusIoResource plexusIoResource )
+        throws IOException
+    {
+        for ( FileSelector fileSelector : fileSelectors )
+        {
+            if ( !fileSelector.isSelected( plexusIoResource ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns, whether the file selectors might select a resource below the given directory.
+     * Selectors, which don't implement {@link DirectoryDescentSelector}, are assumed to do so.
+     * @param name The directories name, as a resource would report it.
+     * @return False, if some selector won't select anything below the directory, otherwise true.
+     */
+    protected boolean couldSelectBelow( String name )
     {
         FileSelector[] fileSelectors = getFileSelectors();
         if ( fileSelectors != null )
         {
             for ( FileSelector fileSelector : fileSelectors )
             {
-                if ( !fileSelector.isSelected( plexusIoResource ) )
+                if ( fileSelector instanceof DirectoryDescentSelector
+                    && !( (DirectoryDescentSelector) fileSelector ).shouldDescend( name ) )
                 {
                     return false;
                 }
@@ -270,10 +448,15 @@ protected String getName( String resourceName )
         final FileMapper[] mappers = getFileMappers();
         if ( mappers != null )
         {
+            final long start = metrics == null ? 0 : System.nanoTime();
             for ( FileMapper mapper : mappers )
             {
                 name = mapper.getMappedFileName( name );
             }
+            if ( metrics != null )
+            {
+                metrics.nameMapped( resourceName, name, System.nanoTime() - start );
+            }
         }
         return PrefixFileMapper.getMappedFileName( getPrefix(), name );
     }
@@ -290,7 +473,17 @@ public InputStream getInputStream( PlexusIoResource resource )
     public PlexusIoResource resolve( final PlexusIoResource resource )
         throws IOException
     {
-        final Deferred deferred = new Deferred( resource, this, streamTransformer != identityTransformer );
+        final boolean hasTransformer = streamTransformer != identityTransformer;
+        final boolean timed = metrics != null && hasTransformer && !isTransformOnRead();
+        final long start = timed ? System.nanoTime() : 0;
+        final Deferred deferred =
+            new Deferred( resource, this, hasTransformer, isTransformOnRead(), getBufferingPolicy(),
+                          getSpillManager(), getContentDigestAlgorithm(), metrics );
+        if ( timed )
+        {
+            metrics.contentsTransformed( deferred.getName(), resource.getSize(), deferred.getSize(),
+                                         deferred.isSpilled(), System.nanoTime() - start );
+        }
         return deferred.asResource();
     }
 
@@ -314,4 +507,37 @@ public long getLastModified()
         return lastModified;
     }
 
+    /**
+     * Returns, whether some resource has been modified after the given time, or has an
+     * unknown modification time. Unlike comparing with {@link #getLastModified()}, this
+     * stops at the first such resource.
+     * @param timestamp The time to compare with, in milliseconds.
+     * @return True, if the collection is newer than the given time.
+     * @throws IOException .
+     */
+    public boolean isNewerThan( long timestamp )
+        throws IOException
+    {
+        final Iterator<PlexusIoResource> iter = getResources();
+        try
+        {
+            while ( iter.hasNext() )
+            {
+                long l = iter.next().getLastModified();
+                if ( l == PlexusIoResource.UNKNOWN_MODIFICATION_DATE || l > timestamp )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        finally
+        {
+            if ( iter instanceof Closeable )
+            {
+                ( (Closeable) iter ).close();
+            }
+        }
+    }
+
 }
\ No newline at end of file
@@ -16,8 +16,13 @@
  * limitations under the License.
  */
 
+import org.codehaus.plexus.components.io.attributes.CompactResourceAttributes;
 import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributeUtils;
 import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+import org.codehaus.plexus.components.io.metrics.PlexusIoMetrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Default implementation of a resource collection with attributes.
@@ -26,6 +31,11 @@
     extends AbstractPlexusIoResourceCollection
 {
 
+    /**
+     * The maximum number of merged attributes, which are remembered per kind of resource.
+     */
+    private static final int MAX_MERGED = 1024;
+
     private PlexusIoResourceAttributes defaultFileAttributes;
 
     private PlexusIoResourceAttributes defaultDirAttributes;
@@ -34,6 +44,18 @@
 
     private PlexusIoResourceAttributes overrideDirAttributes;
 
+    /**
+     * The merged attributes of files by their (shared) base attributes.
+     */
+    private final ConcurrentMap<PlexusIoResourceAttributes, PlexusIoResourceAttributes> mergedFileAttributes =
+        new ConcurrentHashMap<PlexusIoResourceAttributes, PlexusIoResourceAttributes>();
+
+    /**
+     * The merged attributes of directories by their (shared) base attributes.
+     */
+    private final ConcurrentMap<PlexusIoResourceAttributes, PlexusIoResourceAttributes> mergedDirAttributes =
+        new ConcurrentHashMap<PlexusIoResourceAttributes, PlexusIoResourceAttributes>();
+
     protected AbstractPlexusIoResourceCollectionWithAttributes()
     {
     }
@@ -46,6 +68,7 @@ protected PlexusIoResourceAttributes getDefaultFileAttributes()
     protected void setDefaultFileAttributes( final PlexusIoResourceAttributes defaultFileAttributes )
     {
         this.defaultFileAttributes = defaultFileAttributes;
+        mergedFileAttributes.clear();
     }
 
     protected PlexusIoResourceAttributes getDefaultDirAttributes()
@@ -56,6 +79,7 @@ protected PlexusIoResourceAttributes getDefaultDirAttributes()
     protected void setDefaultDirAttributes( final PlexusIoResourceAttributes defaultDirAttributes )
     {
         this.defaultDirAttributes = defaultDirAttributes;
+        mergedDirAttributes.clear();
     }
 
     protected PlexusIoResourceAttributes getOverrideFileAttributes()
@@ -66,6 +90,7 @@ protected PlexusIoResourceAttributes getOverrideFileAttributes()
     protected void setOverrideFileAttributes( final PlexusIoResourceAttributes overrideFileAttributes )
     {
         this.overrideFileAttributes = overrideFileAttributes;
+        mergedFileAttributes.clear();
     }
 
     protected PlexusIoResourceAttributes getOverrideDirAttributes()
@@ -76,20 +101,64 @@ protected PlexusIoResourceAttributes getOverrideDirAttributes()
     protected void setOverrideDirAttributes( final PlexusIoResourceAttributes overrideDirAttributes )
     {
         this.overrideDirAttributes = overrideDirAttributes;
+        mergedDirAttributes.clear();
     }
 
+    /**
+     * Applies the override, and default attributes to the given attributes. If these are
+     * {@link CompactResourceAttributes}, the (immutable) result is computed once per distinct value,
+     * and shared by all resources with the same attributes. The override, and default attributes
+     * must not be modified after they have been set.
+     */
     protected PlexusIoResourceAttributes mergeAttributes( PlexusIoResourceAttributes currentAttrs, boolean isDirectory )
     {
+        final PlexusIoMetrics metrics = getMetrics();
+        if ( metrics == null )
+        {
+            return merge( currentAttrs, isDirectory );
+        }
+        final long start = System.nanoTime();
+        final PlexusIoResourceAttributes result = merge( currentAttrs, isDirectory );
+        metrics.attributesMerged( System.nanoTime() - start );
+        return result;
+    }
+
+    private PlexusIoResourceAttributes merge( PlexusIoResourceAttributes currentAttrs, boolean isDirectory )
+    {
+        final PlexusIoResourceAttributes override;
+        final PlexusIoResourceAttributes def;
+        final ConcurrentMap<PlexusIoResourceAttributes, PlexusIoResourceAttributes> merged;
         if ( isDirectory )
         {
-            currentAttrs = PlexusIoResourceAttributeUtils.mergeAttributes( getOverrideDirAttributes(), currentAttrs,
-                                                                    getDefaultDirAttributes() );
+            override = getOverrideDirAttributes();
+            def = getDefaultDirAttributes();
+            merged = mergedDirAttributes;
         }
         else
         {
-            currentAttrs = PlexusIoResourceAttributeUtils.mergeAttributes( getOverrideFileAttributes(), currentAttrs,
-                                                                    getDefaultFileAttributes() );
+            override = getOverrideFileAttributes();
+            def = getDefaultFileAttributes();
+            merged = mergedFileAttributes;
+        }
+        if ( override == null || !( currentAttrs instanceof CompactResourceAttributes ) )
+        {
+            return PlexusIoResourceAttributeUtils.mergeAttributes( override, currentAttrs, def );
+        }
+
+        PlexusIoResourceAttributes result = merged.get( currentAttrs );
+        if ( result == null )
+        {
+            result = PlexusIoResourceAttributeUtils.mergeAttributes( override, currentAttrs, def );
+            // Unlike the merged attributes, compact attributes report no permissions for an unknown mode.
+            if ( result.getOctalMode() != PlexusIoResourceAttributes.UNKNOWN_OCTAL_MODE )
+            {
+                result = CompactResourceAttributes.of( result );
+                if ( merged.size() < MAX_MERGED )
+                {
+                    merged.put( currentAttrs, result );
+                }
+            }
         }
-        return currentAttrs;
+        return result;
     }
 }
@@ -0,0 +1,339 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.functions.OrderedResourceProcessor;
+import org.codehaus.plexus.components.io.functions.PlexusIoResourceConsumer;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Implementation of {@link Stream}, which is based on an iterator over the resources. The parallel methods
+ * keep a bounded number of resources in flight, wait for all of them, and close the iterator only after
+ * that, so that resources, which depend on an open archive, stay valid while they are processed.
+ */
+public abstract class AbstractStream
+    implements Stream
+{
+    /**
+     * The default maximum number of resources, which are in flight at the same time.
+     */
+    public static final int DEFAULT_CONCURRENCY = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Returns a new iterator over the resources. If the iterator is {@link Closeable}, it is closed
+     * after the last resource has been processed.
+     */
+    @Nonnull
+    protected abstract Iterator<PlexusIoResource> resources()
+        throws IOException;
+
+    /**
+     * Returns, whether the given resource is passed to the consumer. By default, every resource is.
+     */
+    protected boolean isIncluded( @Nonnull PlexusIoResource resource )
+        throws IOException
+    {
+        return true;
+    }
+
+    public void forEach( PlexusIoResourceConsumer resourceConsumer )
+        throws IOException
+    {
+        final Iterator<PlexusIoResource> it = resources();
+        try
+        {
+            while ( it.hasNext() )
+            {
+                final PlexusIoResource resource = it.next();
+                if ( isIncluded( resource ) )
+                {
+                    resourceConsumer.accept( resource );
+                }
+            }
+        }
+        finally
+        {
+            close( it );
+        }
+    }
+
+    public void forEach( ExecutorService executor, PlexusIoResourceConsumer resourceConsumer )
+        throws IOException
+    {
+        forEach( executor, DEFAULT_CONCURRENCY, resourceConsumer );
+    }
+
+    public void forEach( ExecutorService executor, int maxConcurrency,
+                         final PlexusIoResourceConsumer resourceConsumer )
+        throws IOException
+    {
+        checkConcurrency( maxConcurrency );
+        final Semaphore window = new Semaphore( maxConcurrency );
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Iterator<PlexusIoResource> it = resources();
+        try
+        {
+            try
+            {
+                while ( failure.get() == null && it.hasNext() )
+                {
+                    final PlexusIoResource resource = it.next();
+                    if ( !isIncluded( resource ) )
+                    {
+                        continue;
+                    }
+                    try
+                    {
+                        window.acquire();
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException( "Interrupted while waiting for a resource to complete" );
+                    }
+                    boolean submitted = false;
+                    try
+                    {
+                        executor.execute( new Runnable()
+                        {
+                            public void run()
+                            {
+                                try
+                                {
+                                    if ( failure.get() == null )
+                                    {
+                                        resourceConsumer.accept( resource );
+                                    }
+                                }
+                                catch ( Throwable t )
+                                {
+                                    failure.compareAndSet( null, t );
+                                }
+                                finally
+                                {
+                                    window.release();
+                                }
+                            }
+                        } );
+                        submitted = true;
+                    }
+                    finally
+                    {
+                        if ( !submitted )
+                        {
+                            window.release();
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                // Every permit is returned, when the last task is done.
+                window.acquireUninterruptibly( maxConcurrency );
+            }
+        }
+        finally
+        {
+            close( it );
+        }
+        rethrow( failure.get() );
+    }
+
+    public void forEach( int maxConcurrency, PlexusIoResourceConsumer resourceConsumer )
+        throws IOException
+    {
+        checkConcurrency( maxConcurrency );
+        final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor();
+        try
+        {
+            forEach( executor, maxConcurrency, resourceConsumer );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    public <T> void forEachOrdered( ExecutorService executor, int maxConcurrency,
+                                    final OrderedResourceProcessor<T> processor )
+        throws IOException
+    {
+        checkConcurrency( maxConcurrency );
+        final LinkedList<PlexusIoResource> resources = new LinkedList<PlexusIoResource>();
+        final LinkedList<Future<T>> pending = new LinkedList<Future<T>>();
+        final AtomicBoolean aborted = new AtomicBoolean();
+        final Iterator<PlexusIoResource> it = resources();
+        try
+        {
+            try
+            {
+                while ( it.hasNext() )
+                {
+                    final PlexusIoResource resource = it.next();
+                    if ( !isIncluded( resource ) )
+                    {
+                        continue;
+                    }
+                    if ( pending.size() >= maxConcurrency )
+                    {
+                        completeFirst( resources, pending, processor );
+                    }
+                    pending.addLast( executor.submit( new Callable<T>()
+                    {
+                        public T call()
+                            throws IOException
+                        {
+                            return aborted.get() ? null : processor.process( resource );
+                        }
+                    } ) );
+                    resources.addLast( resource );
+                }
+                while ( !pending.isEmpty() )
+                {
+                    completeFirst( resources, pending, processor );
+                }
+            }
+            finally
+            {
+                if ( !pending.isEmpty() )
+                {
+                    aborted.set( true );
+                    for ( Future<T> future : pending )
+                    {
+                        await( future );
+                    }
+                }
+            }
+        }
+        finally
+        {
+            close( it );
+        }
+    }
+
+    private static <T> void completeFirst( LinkedList<PlexusIoResource> resources, LinkedList<Future<T>> pending,
+                                           OrderedResourceProcessor<T> processor )
+        throws IOException
+    {
+        final T result;
+        try
+        {
+            result = pending.getFirst().get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for a resource to complete" );
+        }
+        catch ( ExecutionException e )
+        {
+            pending.removeFirst();
+            resources.removeFirst();
+            rethrow( e.getCause() );
+            return;
+        }
+        pending.removeFirst();
+        processor.complete( resources.removeFirst(), result );
+    }
+
+    /**
+     * Waits for the given task, ignoring its outcome.
+     */
+    private static void await( Future<?> future )
+    {
+        boolean interrupted = false;
+        for ( ;; )
+        {
+            try
+            {
+                future.get();
+                break;
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+            }
+            catch ( ExecutionException e )
+            {
+                break;
+            }
+            catch ( CancellationException e )
+            {
+                break;
+            }
+        }
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void checkConcurrency( int maxConcurrency )
+    {
+        if ( maxConcurrency < 1 )
+        {
+            throw new IllegalArgumentException( "The maximum concurrency must be at least 1: " + maxConcurrency );
+        }
+    }
+
+    private static void close( Iterator<PlexusIoResource> it )
+        throws IOException
+    {
+        if ( it instanceof Closeable )
+        {
+            ( (Closeable) it ).close();
+        }
+    }
+
+    private static void rethrow( Throwable t )
+        throws IOException
+    {
+        if ( t == null )
+        {
+            return;
+        }
+        if ( t instanceof IOException )
+        {
+            throw (IOException) t;
+        }
+        if ( t instanceof RuntimeException )
+        {
+            throw (RuntimeException) t;
+        }
+        if ( t instanceof Error )
+        {
+            throw (Error) t;
+        }
+        final IOException e = new IOException( t.getMessage() );
+        e.initCause( t );
+        throw e;
+    }
+}
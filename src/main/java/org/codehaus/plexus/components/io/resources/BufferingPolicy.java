@@ -0,0 +1,333 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controls, how the output of stream transformers is buffered, if the transformation
+ * runs before the contents are read (see {@link AbstractPlexusIoResourceCollection#setTransformOnRead(boolean)}).
+ * Contents up to the threshold are kept in memory, larger contents are spilled to a
+ * temporary file in the spill directory.
+ * <p>
+ * The memory budget is shared by all resources, which are buffered with the same policy
+ * (typically by configuring several collections with the same instance). If buffering some
+ * contents in memory would exceed the budget, they are spilled instead. Contents in memory
+ * may be read any number of times. Their memory is returned to the budget, when the
+ * {@link SpillManager} of the collection is closed, or, at the latest, when the resource has been
+ * garbage collected. Spilled contents are deleted, once they are read, unless there is a spill manager.
+ * <p>
+ * An {@link #isOffHeap() off heap} policy keeps the contents in direct byte buffers, which are
+ * pooled, and reused, rather than heap arrays, and reads spilled contents through a memory
+ * mapping of the temporary file. That takes pressure off the garbage collector, if many
+ * resources are transformed. Note, that the direct memory is limited by the JVM
+ * (<code>-XX:MaxDirectMemorySize</code>), and should be covered by the memory budget. Contents
+ * below {@link #CHUNK_SIZE 64 KiB} stay on the heap; larger contents are kept in buffers of that size,
+ * and the budget is charged for the whole buffers.
+ * <p>
+ * A {@link #isDeduplicating() deduplicating} policy keeps identical contents only once: Resources,
+ * whose transformed contents have the same digest, share a single buffer, which is released, when
+ * all of them have released it.
+ * <p>
+ * Instances are thread safe.
+ */
+public class BufferingPolicy
+{
+    /**
+     * The default threshold, up to which contents are kept in memory.
+     */
+    public static final int DEFAULT_THRESHOLD = 5000000;
+
+    /**
+     * The budget, which means "no limit".
+     */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    /**
+     * The size of the direct buffers, which are used by {@link #isOffHeap() off heap} policies.
+     */
+    static final int CHUNK_SIZE = 65536;
+
+    /**
+     * The maximum number of unused direct buffers, which are kept for reuse.
+     */
+    private static final int MAX_POOLED_CHUNKS = 64;
+
+    private static final BufferingPolicy DEFAULT = new BufferingPolicy();
+
+    private final int threshold;
+
+    private final File spillDirectory;
+
+    private final long memoryBudget;
+
+    private final boolean offHeap;
+
+    private final DedupStore dedupStore;
+
+    private final AtomicLong memoryUsed = new AtomicLong();
+
+    private final ConcurrentLinkedQueue<ByteBuffer> chunks = new ConcurrentLinkedQueue<ByteBuffer>();
+
+    private final AtomicInteger pooledChunks = new AtomicInteger();
+
+    private final ReferenceQueue<Object> unreachable = new ReferenceQueue<Object>();
+
+    private final ConcurrentMap<Cleanup, Boolean> cleanups = new ConcurrentHashMap<Cleanup, Boolean>();
+
+    /**
+     * Creates a policy with the default threshold, the systems temporary directory, and no memory budget.
+     */
+    public BufferingPolicy()
+    {
+        this( DEFAULT_THRESHOLD, null, UNLIMITED );
+    }
+
+    /**
+     * @param threshold The maximum number of bytes, which are kept in memory per resource.
+     * @param spillDirectory The directory for temporary files, or null for the systems temporary directory.
+     * @param memoryBudget The maximum number of bytes, which are kept in memory by all resources
+     *   together, or {@link #UNLIMITED}.
+     */
+    public BufferingPolicy( int threshold, @Nullable File spillDirectory, long memoryBudget )
+    {
+        this( threshold, spillDirectory, memoryBudget, false );
+    }
+
+    /**
+     * @param threshold The maximum number of bytes, which are kept in memory per resource.
+     * @param spillDirectory The directory for temporary files, or null for the systems temporary directory.
+     * @param memoryBudget The maximum number of bytes, which are kept in memory by all resources
+     *   together, or {@link #UNLIMITED}.
+     * @param offHeap True to keep the contents in pooled direct buffers, and to read spilled contents
+     *   through a memory mapping, false to use heap arrays, and plain file streams.
+     */
+    public BufferingPolicy( int threshold, @Nullable File spillDirectory, long memoryBudget, boolean offHeap )
+    {
+        this( threshold, spillDirectory, memoryBudget, offHeap, false );
+    }
+
+    /**
+     * @param threshold The maximum number of bytes, which are kept in memory per resource.
+     * @param spillDirectory The directory for temporary files, or null for the systems temporary directory.
+     * @param memoryBudget The maximum number of bytes, which are kept in memory by all resources
+     *   together, or {@link #UNLIMITED}.
+     * @param offHeap True to keep the contents in pooled direct buffers, and to read spilled contents
+     *   through a memory mapping, false to use heap arrays, and plain file streams.
+     * @param deduplicating True to share a single buffer between resources with identical contents.
+     */
+    public BufferingPolicy( int threshold, @Nullable File spillDirectory, long memoryBudget, boolean offHeap,
+                            boolean deduplicating )
+    {
+        if ( threshold < 0 )
+        {
+            throw new IllegalArgumentException( "Invalid threshold: " + threshold );
+        }
+        if ( memoryBudget < 0 )
+        {
+            throw new IllegalArgumentException( "Invalid memory budget: " + memoryBudget );
+        }
+        this.threshold = threshold;
+        this.spillDirectory = spillDirectory;
+        this.memoryBudget = memoryBudget;
+        this.offHeap = offHeap;
+        this.dedupStore = deduplicating ? new DedupStore() : null;
+    }
+
+    /**
+     * Returns the policy, which is used, if no other policy is configured.
+     */
+    @Nonnull
+    public static BufferingPolicy getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * @return The maximum number of bytes, which are kept in memory per resource.
+     */
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * @return The directory for temporary files, or null for the systems temporary directory.
+     */
+    @Nullable
+    public File getSpillDirectory()
+    {
+        return spillDirectory;
+    }
+
+    /**
+     * @return The maximum number of bytes, which are kept in memory by all resources together.
+     */
+    public long getMemoryBudget()
+    {
+        return memoryBudget;
+    }
+
+    /**
+     * @return True, if contents are kept in direct buffers, and spilled contents are read through a memory mapping.
+     */
+    public boolean isOffHeap()
+    {
+        return offHeap;
+    }
+
+    /**
+     * @return True, if resources with identical contents share a single buffer.
+     */
+    public boolean isDeduplicating()
+    {
+        return dedupStore != null;
+    }
+
+    /**
+     * @return The number of bytes, which haven't been buffered, because identical contents were
+     *   buffered already. Zero, unless {@link #isDeduplicating() deduplicating}.
+     */
+    public long getDeduplicatedBytes()
+    {
+        return dedupStore == null ? 0 : dedupStore.getDeduplicatedBytes();
+    }
+
+    /**
+     * @return The store of shared buffers, or null, unless {@link #isDeduplicating() deduplicating}.
+     */
+    @Nullable
+    DedupStore getDedupStore()
+    {
+        return dedupStore;
+    }
+
+    /**
+     * @return The number of bytes, which are currently kept in memory by resources using this policy.
+     *   Off heap, that is the capacity of the direct buffers, rather than the size of the contents.
+     */
+    public long getMemoryUsed()
+    {
+        discardUnreachable();
+        return memoryUsed.get();
+    }
+
+    /**
+     * Reserves memory from the budget.
+     * @return True, if the memory has been reserved, false, if that would exceed the budget.
+     */
+    boolean reserve( long bytes )
+    {
+        discardUnreachable();
+        while ( true )
+        {
+            final long used = memoryUsed.get();
+            if ( used + bytes > memoryBudget || used + bytes < 0 )
+            {
+                return false;
+            }
+            if ( memoryUsed.compareAndSet( used, used + bytes ) )
+            {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns memory, which has been reserved before, to the budget.
+     */
+    void release( long bytes )
+    {
+        memoryUsed.addAndGet( -bytes );
+    }
+
+    /**
+     * Discards a buffer, once its owner has been garbage collected, so that its memory is returned to
+     * the budget, and its temporary file deleted, even if nobody closes a {@link SpillManager}.
+     * @param owner The object, which holds the buffer, and every stream reading it.
+     * @param buffer The buffer, which must not refer to the owner.
+     */
+    void discardWhenUnreachable( @Nonnull Object owner, @Nonnull Discardable buffer )
+    {
+        discardUnreachable();
+        cleanups.put( new Cleanup( owner, buffer, unreachable ), Boolean.TRUE );
+    }
+
+    private void discardUnreachable()
+    {
+        for ( Reference<?> ref = unreachable.poll(); ref != null; ref = unreachable.poll() )
+        {
+            final Cleanup cleanup = (Cleanup) ref;
+            cleanups.remove( cleanup );
+            cleanup.buffer.discard();
+        }
+    }
+
+    /**
+     * Returns a cleared direct buffer of {@link #CHUNK_SIZE} bytes, preferably from the pool.
+     */
+    @Nonnull
+    ByteBuffer acquireChunk()
+    {
+        final ByteBuffer chunk = chunks.poll();
+        if ( chunk == null )
+        {
+            return ByteBuffer.allocateDirect( CHUNK_SIZE );
+        }
+        pooledChunks.decrementAndGet();
+        chunk.clear();
+        return chunk;
+    }
+
+    /**
+     * Returns a buffer, which has been acquired before, to the pool. The buffer must not be used anymore.
+     */
+    void releaseChunk( @Nonnull ByteBuffer chunk )
+    {
+        if ( pooledChunks.incrementAndGet() <= MAX_POOLED_CHUNKS )
+        {
+            chunks.offer( chunk );
+        }
+        else
+        {
+            pooledChunks.decrementAndGet();
+        }
+    }
+
+    private static class Cleanup
+        extends PhantomReference<Object>
+    {
+        private final Discardable buffer;
+
+        Cleanup( Object owner, Discardable buffer, ReferenceQueue<Object> queue )
+        {
+            super( owner, queue );
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * An input stream, which reads the remaining bytes of a sequence of byte buffers, without
+ * copying them into an intermediate array. The buffers are typically direct, or mapped.
+ */
+class ByteBufferInputStream
+    extends InputStream
+{
+    private final ByteBuffer[] buffers;
+
+    private int index;
+
+    ByteBufferInputStream( @Nonnull List<ByteBuffer> buffers )
+    {
+        this.buffers = buffers.toArray( new ByteBuffer[buffers.size()] );
+    }
+
+    private ByteBuffer current()
+    {
+        while ( index < buffers.length )
+        {
+            final ByteBuffer buffer = buffers[index];
+            if ( buffer.hasRemaining() )
+            {
+                return buffer;
+            }
+            buffers[index++] = null;
+        }
+        return null;
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        final ByteBuffer buffer = current();
+        return buffer == null ? -1 : buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len )
+        throws IOException
+    {
+        if ( len == 0 )
+        {
+            return 0;
+        }
+        final ByteBuffer buffer = current();
+        if ( buffer == null )
+        {
+            return -1;
+        }
+        final int n = Math.min( len, buffer.remaining() );
+        buffer.get( b, off, n );
+        return n;
+    }
+
+    @Override
+    public long skip( long n )
+        throws IOException
+    {
+        long skipped = 0;
+        while ( skipped < n )
+        {
+            final ByteBuffer buffer = current();
+            if ( buffer == null )
+            {
+                break;
+            }
+            final int count = (int) Math.min( n - skipped, buffer.remaining() );
+            buffer.position( buffer.position() + count );
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available()
+    {
+        long result = 0;
+        for ( int i = index; i < buffers.length; i++ )
+        {
+            if ( buffers[i] != null )
+            {
+                result += buffers[i].remaining();
+            }
+        }
+        return (int) Math.min( result, Integer.MAX_VALUE );
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        while ( index < buffers.length )
+        {
+            buffers[index++] = null;
+        }
+    }
+}
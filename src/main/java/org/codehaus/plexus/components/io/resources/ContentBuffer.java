@@ -0,0 +1,431 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An output stream, which keeps the data in memory, as long as the {@link BufferingPolicy}
+ * permits, and spills it to a temporary file otherwise. After closing, the data may be read
+ * once through {@link #openStream()}; closing that stream releases the memory, or deletes the file.
+ * Alternatively, the data may be read repeatedly through {@link #openStream(boolean)}, until the buffer
+ * is {@link #discard() discarded}, typically by closing the {@link SpillManager}, which tracks it.
+ * <p>
+ * If the policy is {@link BufferingPolicy#isOffHeap() off heap}, data, which exceeds a single
+ * {@link BufferingPolicy#CHUNK_SIZE chunk}, is kept in direct buffers from the policy's pool, and a
+ * spilled file is read through a memory mapping, so that neither is copied through a heap array.
+ * Smaller data stays on the heap, because a chunk per small file would waste most of its capacity.
+ */
+class ContentBuffer
+    extends OutputStream
+    implements Discardable
+{
+    private final BufferingPolicy policy;
+
+    private final SpillManager spills;
+
+    private byte[] data;
+
+    private List<ByteBuffer> chunks;
+
+    private int count;
+
+    private long reserved;
+
+    private File file;
+
+    private FileOutputStream fileOut;
+
+    private long size;
+
+    private boolean discarded;
+
+    /**
+     * The number of open streams, which read the chunks. Chunks, which are still read,
+     * are not returned to the pool, when the buffer is discarded.
+     */
+    private int chunkReaders;
+
+    ContentBuffer( @Nonnull BufferingPolicy policy )
+    {
+        this( policy, null );
+    }
+
+    /**
+     * @param spills Records the temporary file, if the data is spilled, or null. The buffer itself
+     *   is tracked by the manager only, if the owner {@link SpillManager#track(Discardable) asks} for it.
+     */
+    ContentBuffer( @Nonnull BufferingPolicy policy, @Nullable SpillManager spills )
+    {
+        this.policy = policy;
+        this.spills = spills;
+        this.data = new byte[256];
+    }
+
+    @Override
+    public void write( int b )
+        throws IOException
+    {
+        write( new byte[]{ (byte) b }, 0, 1 );
+    }
+
+    @Override
+    public void write( byte[] b, int off, int len )
+        throws IOException
+    {
+        if ( fileOut == null )
+        {
+            if ( count + len <= policy.getThreshold() && reserve( len ) )
+            {
+                if ( chunks == null && policy.isOffHeap() && count + len > BufferingPolicy.CHUNK_SIZE )
+                {
+                    chunks = new ArrayList<ByteBuffer>();
+                    appendToChunks( data, 0, count );
+                    data = null;
+                }
+                if ( chunks != null )
+                {
+                    appendToChunks( b, off, len );
+                }
+                else
+                {
+                    appendToData( b, off, len );
+                }
+                count += len;
+                size += len;
+                return;
+            }
+            spill();
+        }
+        fileOut.write( b, off, len );
+        size += len;
+    }
+
+    /**
+     * Reserves the memory for appending the given number of bytes. Off heap, once the data exceeds
+     * a chunk, that is the capacity of the additional chunks, which may be much more than the bytes,
+     * because every chunk is {@link BufferingPolicy#CHUNK_SIZE} bytes large.
+     * @return True, if the memory is reserved, false, if the budget is exhausted.
+     */
+    private boolean reserve( int len )
+    {
+        long bytes = len;
+        if ( chunks != null || policy.isOffHeap() && count + len > BufferingPolicy.CHUNK_SIZE )
+        {
+            // The reservation covers the chunks, or the heap data, which is about to move into chunks.
+            final int chunkSize = BufferingPolicy.CHUNK_SIZE;
+            bytes = Math.max( 0, ( count + len + chunkSize - 1L ) / chunkSize * chunkSize - reserved );
+        }
+        if ( bytes > 0 && !policy.reserve( bytes ) )
+        {
+            return false;
+        }
+        reserved += bytes;
+        return true;
+    }
+
+    private void appendToData( byte[] b, int off, int len )
+    {
+        if ( count + len > data.length )
+        {
+            final byte[] newData = new byte[Math.min( Math.max( data.length * 2, count + len ),
+                                                      Math.max( policy.getThreshold(), count + len ) )];
+            System.arraycopy( data, 0, newData, 0, count );
+            data = newData;
+        }
+        System.arraycopy( b, off, data, count, len );
+    }
+
+    private void appendToChunks( byte[] b, int off, int len )
+    {
+        while ( len > 0 )
+        {
+            ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get( chunks.size() - 1 );
+            if ( chunk == null || !chunk.hasRemaining() )
+            {
+                chunk = policy.acquireChunk();
+                chunks.add( chunk );
+            }
+            final int n = Math.min( len, chunk.remaining() );
+            chunk.put( b, off, n );
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void spill()
+        throws IOException
+    {
+        file = spills != null
+            ? spills.createFile( policy.getSpillDirectory() )
+            : SpillManager.createTempFile( policy.getSpillDirectory() );
+        fileOut = new FileOutputStream( file );
+        if ( chunks != null )
+        {
+            final FileChannel channel = fileOut.getChannel();
+            for ( ByteBuffer chunk : chunks )
+            {
+                chunk.flip();
+                while ( chunk.hasRemaining() )
+                {
+                    channel.write( chunk );
+                }
+            }
+        }
+        else
+        {
+            fileOut.write( data, 0, count );
+        }
+        releaseMemory();
+    }
+
+    private void releaseMemory()
+    {
+        if ( chunks != null )
+        {
+            if ( chunkReaders == 0 )
+            {
+                for ( ByteBuffer chunk : chunks )
+                {
+                    policy.releaseChunk( chunk );
+                }
+            }
+            // Otherwise, the open streams still read the chunks, which are left to the garbage collector.
+            chunks = null;
+        }
+        data = null;
+        count = 0;
+        policy.release( reserved );
+        reserved = 0;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( fileOut != null )
+        {
+            fileOut.close();
+            if ( spills != null )
+            {
+                spills.spilled( file, size );
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes written.
+     */
+    long getSize()
+    {
+        return size;
+    }
+
+    boolean isInMemory()
+    {
+        return file == null;
+    }
+
+    /**
+     * @return True, if the buffer has been discarded, and can't be read anymore.
+     */
+    synchronized boolean isDiscarded()
+    {
+        return discarded;
+    }
+
+    /**
+     * Releases the memory, or deletes the temporary file, without reading the data.
+     */
+    public synchronized void discard()
+    {
+        if ( discarded )
+        {
+            return;
+        }
+        discarded = true;
+        if ( spills != null )
+        {
+            spills.untrack( this );
+        }
+        if ( file != null && spills != null )
+        {
+            spills.delete( file );
+        }
+        else if ( file != null )
+        {
+            SpillManager.deleteTempFile( file );
+        }
+        releaseMemory();
+    }
+
+    /**
+     * Returns a channel, which reads the spilled data, or null, if the data is kept in memory.
+     * The buffer is discarded right away: The temporary file remains readable through the open
+     * channel, until it is closed (except on Windows, where it is deleted later).
+     */
+    FileChannel openChannel()
+        throws IOException
+    {
+        return openChannel( true );
+    }
+
+    /**
+     * Returns a channel, which reads the spilled data, or null, if the data is kept in memory.
+     * @param discard True to discard the buffer right away, false to keep it for further reading.
+     */
+    FileChannel openChannel( boolean discard )
+        throws IOException
+    {
+        if ( file == null )
+        {
+            return null;
+        }
+        final FileChannel channel = new RandomAccessFile( file, "r" ).getChannel();
+        if ( discard )
+        {
+            discard();
+        }
+        return channel;
+    }
+
+    /**
+     * Returns a stream, which reads the data. Closing the stream discards the buffer.
+     */
+    @Nonnull
+    InputStream openStream()
+        throws IOException
+    {
+        return openStream( true );
+    }
+
+    private synchronized void chunkReaderClosed()
+    {
+        chunkReaders--;
+    }
+
+    /**
+     * Returns a stream, which reads the data.
+     * @param discardOnClose True to discard the buffer, when the stream is closed, false to keep
+     *   it for further reading, until {@link #discard()} is invoked.
+     */
+    @Nonnull
+    synchronized InputStream openStream( final boolean discardOnClose )
+        throws IOException
+    {
+        if ( file == null )
+        {
+            if ( chunks != null )
+            {
+                final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>( chunks.size() );
+                for ( ByteBuffer chunk : chunks )
+                {
+                    final ByteBuffer buffer = chunk.duplicate();
+                    buffer.flip();
+                    buffers.add( buffer );
+                }
+                chunkReaders++;
+                return new ByteBufferInputStream( buffers )
+                {
+                    private boolean closed;
+
+                    @Override
+                    public void close()
+                        throws IOException
+                    {
+                        super.close();
+                        if ( !closed )
+                        {
+                            closed = true;
+                            chunkReaderClosed();
+                        }
+                        if ( discardOnClose )
+                        {
+                            discard();
+                        }
+                    }
+                };
+            }
+            return new ByteArrayInputStream( data, 0, count )
+            {
+                @Override
+                public void close()
+                    throws IOException
+                {
+                    super.close();
+                    if ( discardOnClose )
+                    {
+                        discard();
+                    }
+                }
+            };
+        }
+        if ( policy.isOffHeap() && size <= Integer.MAX_VALUE )
+        {
+            final RandomAccessFile raf = new RandomAccessFile( file, "r" );
+            final ByteBuffer mapped;
+            try
+            {
+                mapped = raf.getChannel().map( FileChannel.MapMode.READ_ONLY, 0, size );
+            }
+            finally
+            {
+                raf.close();
+            }
+            return new ByteBufferInputStream( Collections.singletonList( mapped ) )
+            {
+                @Override
+                public void close()
+                    throws IOException
+                {
+                    super.close();
+                    if ( discardOnClose )
+                    {
+                        discard();
+                    }
+                }
+            };
+        }
+        return new FileInputStream( file )
+        {
+            @Override
+            public void close()
+                throws IOException
+            {
+                super.close();
+                if ( discardOnClose )
+                {
+                    discard();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,230 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.functions.ContentSupplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The digest of a resources contents. If an algorithm is configured, the digest is computed
+ * while the contents are read, by a stream, which passes the bytes through the digest. Otherwise,
+ * or for other algorithms, the contents are read just for computing the digest. Digests of plain
+ * files may be taken from, and are stored in, a {@link ContentDigestCache}.
+ */
+public final class ContentDigest
+{
+    private final String algorithm;
+
+    private final ContentDigestCache cache;
+
+    private final File file;
+
+    private volatile byte[] digest;
+
+    /**
+     * @param algorithm The algorithm, which is computed while the contents are read, or null.
+     * @param cache The cache for the digests of the given file, or null.
+     * @param file The file, which provides the contents unchanged, or null.
+     */
+    ContentDigest( @Nullable String algorithm, @Nullable ContentDigestCache cache, @Nullable File file )
+    {
+        this.algorithm = algorithm;
+        this.cache = file != null ? cache : null;
+        this.file = file;
+    }
+
+    /**
+     * Returns a stream, which computes the digest, when the given contents are read completely.
+     * If the digest is already known, or there is no configured algorithm, returns the given stream.
+     */
+    @Nonnull
+    InputStream digesting( @Nonnull InputStream contents )
+        throws IOException
+    {
+        if ( algorithm == null || digest != null )
+        {
+            return contents;
+        }
+        final MessageDigest md;
+        final String key;
+        try
+        {
+            md = newMessageDigest( algorithm );
+            key = cache == null ? null : cache.getKey( file, algorithm );
+        }
+        catch ( IOException e )
+        {
+            contents.close();
+            throw e;
+        }
+        return new DigestingInputStream( contents, md, key );
+    }
+
+    /**
+     * Returns the digest for the given algorithm. If it is neither known, nor cached, the contents
+     * are read from the given supplier.
+     */
+    @Nonnull
+    byte[] get( @Nonnull String algorithm, @Nonnull ContentSupplier contents )
+        throws IOException
+    {
+        final boolean configured = algorithm.equals( this.algorithm );
+        if ( configured && digest != null )
+        {
+            return digest.clone();
+        }
+        final String key = cache == null ? null : cache.getKey( file, algorithm );
+        byte[] result = key == null ? null : cache.get( key );
+        if ( result == null )
+        {
+            result = digest( algorithm, contents.getContents() );
+            if ( key != null )
+            {
+                cache.put( key, result );
+            }
+        }
+        if ( configured )
+        {
+            digest = result;
+        }
+        return result.clone();
+    }
+
+    /**
+     * Reads the given stream completely, closes it, and returns the digest of its contents.
+     * @param algorithm The name of a {@link MessageDigest} algorithm.
+     */
+    @Nonnull
+    public static byte[] digest( @Nonnull String algorithm, @Nonnull InputStream contents )
+        throws IOException
+    {
+        try
+        {
+            final MessageDigest md = newMessageDigest( algorithm );
+            final byte[] buffer = new byte[8192];
+            for ( int n = contents.read( buffer ); n != -1; n = contents.read( buffer ) )
+            {
+                md.update( buffer, 0, n );
+            }
+            return md.digest();
+        }
+        finally
+        {
+            contents.close();
+        }
+    }
+
+    static MessageDigest newMessageDigest( String algorithm )
+        throws IOException
+    {
+        try
+        {
+            return MessageDigest.getInstance( algorithm );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            final IOException ioe = new IOException( "Digest algorithm not available: " + algorithm );
+            ioe.initCause( e );
+            throw ioe;
+        }
+    }
+
+    private class DigestingInputStream
+        extends FilterInputStream
+    {
+        private final MessageDigest md;
+
+        private final String key;
+
+        private boolean skipped;
+
+        DigestingInputStream( InputStream in, MessageDigest md, String key )
+        {
+            super( in );
+            this.md = md;
+            this.key = key;
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            final int b = super.read();
+            if ( b == -1 )
+            {
+                done();
+            }
+            else
+            {
+                md.update( (byte) b );
+            }
+            return b;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len )
+            throws IOException
+        {
+            final int n = super.read( b, off, len );
+            if ( n == -1 )
+            {
+                done();
+            }
+            else
+            {
+                md.update( b, off, n );
+            }
+            return n;
+        }
+
+        @Override
+        public long skip( long n )
+            throws IOException
+        {
+            skipped = true;
+            return super.skip( n );
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+
+        private void done()
+        {
+            if ( skipped || digest != null )
+            {
+                return;
+            }
+            final byte[] result = md.digest();
+            digest = result;
+            if ( key != null )
+            {
+                cache.put( key, result );
+            }
+        }
+    }
+}
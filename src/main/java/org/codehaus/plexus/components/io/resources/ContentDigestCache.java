@@ -0,0 +1,195 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A persistent cache of content digests for plain files. An entry is keyed by the files path,
+ * size, modification time, and file key, so it is no longer found, once the file has been changed.
+ * The cache is loaded, when created, and stored by {@link #save()}, which keeps only the entries,
+ * which have been used, or added since. Requires Java 7.
+ * @see PlexusIoFileResourceCollection#setContentDigestCache(ContentDigestCache)
+ */
+public class ContentDigestCache
+{
+    private static final int MAGIC = 0x50494443;
+
+    private static final int VERSION = 1;
+
+    private final File cacheFile;
+
+    private final ConcurrentMap<String, byte[]> loaded = new ConcurrentHashMap<String, byte[]>();
+
+    private final ConcurrentMap<String, byte[]> used = new ConcurrentHashMap<String, byte[]>();
+
+    /**
+     * Creates a cache, and loads the given file. A file, which doesn't exist, or can't be read,
+     * yields an empty cache.
+     */
+    public ContentDigestCache( @Nonnull File cacheFile )
+    {
+        this.cacheFile = cacheFile;
+        if ( cacheFile.isFile() )
+        {
+            try
+            {
+                load();
+            }
+            catch ( IOException e )
+            {
+                loaded.clear();
+            }
+        }
+    }
+
+    /**
+     * @return The file, which holds the cache.
+     */
+    @Nonnull
+    public File getCacheFile()
+    {
+        return cacheFile;
+    }
+
+    private void load()
+        throws IOException
+    {
+        final DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( cacheFile ) ) );
+        try
+        {
+            if ( in.readInt() != MAGIC || in.readInt() != VERSION )
+            {
+                return;
+            }
+            for ( int i = in.readInt(); i > 0; i-- )
+            {
+                final String key = in.readUTF();
+                final byte[] digest = new byte[in.readUnsignedShort()];
+                in.readFully( digest );
+                loaded.put( key, digest );
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the key for the given files current state, or null, if the file doesn't exist.
+     */
+    @Nullable
+    String getKey( @Nonnull File file, @Nonnull String algorithm )
+        throws IOException
+    {
+        final BasicFileAttributes attrs;
+        try
+        {
+            attrs = Files.readAttributes( file.toPath(), BasicFileAttributes.class );
+        }
+        catch ( NoSuchFileException e )
+        {
+            return null;
+        }
+        final Object fileKey = attrs.fileKey();
+        return algorithm + '|' + attrs.size() + '|' + attrs.lastModifiedTime().toMillis() + '|'
+            + ( fileKey == null ? "" : fileKey.toString() ) + '|' + file.getAbsolutePath();
+    }
+
+    @Nullable
+    byte[] get( @Nonnull String key )
+    {
+        byte[] digest = used.get( key );
+        if ( digest == null )
+        {
+            digest = loaded.remove( key );
+            if ( digest != null )
+            {
+                used.put( key, digest );
+            }
+        }
+        return digest;
+    }
+
+    void put( @Nonnull String key, @Nonnull byte[] digest )
+    {
+        used.put( key, digest );
+    }
+
+    /**
+     * Writes the entries, which have been used, or added, since the cache was loaded,
+     * to a temporary file, which replaces the cache file, once complete.
+     */
+    public void save()
+        throws IOException
+    {
+        final File dir = cacheFile.getAbsoluteFile().getParentFile();
+        if ( !dir.isDirectory() && !dir.mkdirs() )
+        {
+            throw new IOException( "Unable to create directory " + dir );
+        }
+        final File tempFile = File.createTempFile( cacheFile.getName(), ".tmp", dir );
+        try
+        {
+            final DataOutputStream out =
+                new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempFile ) ) );
+            try
+            {
+                final Map<String, byte[]> entries = new HashMap<String, byte[]>( used );
+                out.writeInt( MAGIC );
+                out.writeInt( VERSION );
+                out.writeInt( entries.size() );
+                for ( Map.Entry<String, byte[]> entry : entries.entrySet() )
+                {
+                    out.writeUTF( entry.getKey() );
+                    out.writeShort( entry.getValue().length );
+                    out.write( entry.getValue() );
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+            Files.move( tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        finally
+        {
+            if ( tempFile.exists() && !tempFile.delete() )
+            {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+}
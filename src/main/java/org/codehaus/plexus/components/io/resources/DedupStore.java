@@ -0,0 +1,298 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares {@link ContentBuffer buffers} with identical contents, as identified by a digest of their bytes.
+ * Every resource, which shares a buffer, holds a {@link Reference reference} to it, and releases it,
+ * when its contents have been read, or when the {@link SpillManager} of the resource is closed.
+ * The buffer is discarded, when the last reference is released.
+ * @see BufferingPolicy#isDeduplicating()
+ */
+class DedupStore
+{
+    /**
+     * The digest, which identifies the contents.
+     */
+    static final String ALGORITHM = "SHA-256";
+
+    private final ConcurrentMap<Key, Shared> buffers = new ConcurrentHashMap<Key, Shared>();
+
+    private final AtomicLong deduplicatedBytes = new AtomicLong();
+
+    /**
+     * Returns a new reference to a shared buffer with the given contents. If there is a buffer
+     * with the same contents already, the given buffer is discarded.
+     * @param digest The {@link #ALGORITHM} digest of the buffers contents.
+     * @param buffer A closed buffer, which isn't tracked by a {@link SpillManager}.
+     * @param spills Tracks the reference, which is released, when the manager is closed, or null.
+     */
+    @Nonnull
+    Reference share( @Nonnull byte[] digest, @Nonnull ContentBuffer buffer, @Nullable SpillManager spills )
+    {
+        final Reference reference = new Reference( share( digest, buffer ), spills );
+        if ( spills != null )
+        {
+            spills.track( reference );
+        }
+        return reference;
+    }
+
+    private Shared share( byte[] digest, ContentBuffer buffer )
+    {
+        final Key key = new Key( digest, buffer.getSize() );
+        while ( true )
+        {
+            final Shared existing = buffers.get( key );
+            if ( existing != null && existing.retain() )
+            {
+                buffer.discard();
+                deduplicatedBytes.addAndGet( key.size );
+                return existing;
+            }
+            final Shared created = new Shared( key, buffer );
+            if ( existing == null ? buffers.putIfAbsent( key, created ) == null
+                : buffers.replace( key, existing, created ) )
+            {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * @return The number of bytes, which haven't been buffered, because the same contents were buffered already.
+     */
+    long getDeduplicatedBytes()
+    {
+        return deduplicatedBytes.get();
+    }
+
+    /**
+     * @return The number of distinct buffers, which are currently shared.
+     */
+    int getSharedBufferCount()
+    {
+        return buffers.size();
+    }
+
+    private static class Key
+    {
+        private final byte[] digest;
+
+        private final long size;
+
+        private final int hashCode;
+
+        Key( byte[] digest, long size )
+        {
+            this.digest = digest;
+            this.size = size;
+            this.hashCode = Arrays.hashCode( digest );
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( !( o instanceof Key ) )
+            {
+                return false;
+            }
+            final Key other = (Key) o;
+            return size == other.size && Arrays.equals( digest, other.digest );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+    }
+
+    /**
+     * A buffer, which is shared by several resources.
+     */
+    private class Shared
+    {
+        private final Key key;
+
+        private final ContentBuffer buffer;
+
+        private final AtomicInteger references = new AtomicInteger( 1 );
+
+        Shared( Key key, ContentBuffer buffer )
+        {
+            this.key = key;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Adds a reference, unless the buffer has been discarded already.
+         */
+        private boolean retain()
+        {
+            while ( true )
+            {
+                final int count = references.get();
+                if ( count == 0 )
+                {
+                    return false;
+                }
+                if ( references.compareAndSet( count, count + 1 ) )
+                {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Releases a reference, and discards the buffer, if that has been the last reference.
+         */
+        private void release()
+        {
+            if ( references.decrementAndGet() == 0 )
+            {
+                buffers.remove( key, this );
+                buffer.discard();
+            }
+        }
+    }
+
+    /**
+     * The reference of a single resource to a shared buffer.
+     */
+    class Reference
+        implements Discardable
+    {
+        private final Shared shared;
+
+        private final SpillManager spills;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Reference( Shared shared, SpillManager spills )
+        {
+            this.shared = shared;
+            this.spills = spills;
+        }
+
+        /**
+         * Releases the reference. The buffer is discarded, if that has been the last reference.
+         */
+        public void discard()
+        {
+            if ( released.compareAndSet( false, true ) )
+            {
+                if ( spills != null )
+                {
+                    spills.untrack( this );
+                }
+                shared.release();
+            }
+        }
+
+        /**
+         * @return True, if the reference has been released, and the buffer must not be read anymore.
+         */
+        boolean isDiscarded()
+        {
+            return released.get();
+        }
+
+        boolean isInMemory()
+        {
+            return shared.buffer.isInMemory();
+        }
+
+        /**
+         * Returns a stream, which reads the contents.
+         * @param releaseOnClose True to release the reference, when the stream is closed, false to
+         *   keep it for further reading.
+         */
+        @Nonnull
+        InputStream openStream( boolean releaseOnClose )
+            throws IOException
+        {
+            final InputStream in;
+            try
+            {
+                in = shared.buffer.openStream( false );
+            }
+            catch ( IOException e )
+            {
+                if ( releaseOnClose )
+                {
+                    discard();
+                }
+                throw e;
+            }
+            if ( !releaseOnClose )
+            {
+                return in;
+            }
+            return new FilterInputStream( in )
+            {
+                @Override
+                public void close()
+                    throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        discard();
+                    }
+                }
+            };
+        }
+
+        /**
+         * Returns a channel, which reads the spilled contents. The temporary file remains readable
+         * through the channel, if it is deleted meanwhile.
+         * @param release True to release the reference right away, false to keep it for further reading.
+         */
+        FileChannel openChannel( boolean release )
+            throws IOException
+        {
+            try
+            {
+                return shared.buffer.openChannel( false );
+            }
+            finally
+            {
+                if ( release )
+                {
+                    discard();
+                }
+            }
+        }
+    }
+}
@@ -15,82 +15,114 @@
  */
 package org.codehaus.plexus.components.io.resources;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.codehaus.plexus.components.io.functions.ContentDigestSupplier;
 import org.codehaus.plexus.components.io.functions.ContentSupplier;
+import org.codehaus.plexus.components.io.functions.FileChannelSupplier;
 import org.codehaus.plexus.components.io.functions.NameSupplier;
 import org.codehaus.plexus.components.io.functions.SizeSupplier;
+import org.codehaus.plexus.components.io.metrics.PlexusIoMetrics;
 import org.codehaus.plexus.components.io.resources.proxy.ProxyFactory;
 
 import javax.annotation.Nonnull;
-import java.io.ByteArrayInputStream;
-import java.io.FileInputStream;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
-class Deferred implements ContentSupplier, NameSupplier, SizeSupplier
+class Deferred implements ContentSupplier, NameSupplier, SizeSupplier, FileChannelSupplier, ContentDigestSupplier
 {
-    final DeferredFileOutputStream dfos;
+    final TransformedContent transformed;
+
+    /**
+     * The digest of the transformed contents, or null, if there is no transformer.
+     */
+    private final ContentDigest digest;
 
     final PlexusIoResource resource;
 
     final PlexusIoResourceCollection owner;
 
-    public Deferred( final PlexusIoResource resource, PlexusIoResourceCollection owner, boolean hasTransformer )
+    private final PlexusIoMetrics metrics;
+
+    /**
+     * @param spills Tracks the temporary file, if the transformed contents are spilled, or null.
+     * @param digestAlgorithm The digest algorithm, which is computed while buffering, or reading the
+     *   transformed contents, or null.
+     * @param metrics Receives the reads of the transformed contents, or null.
+     */
+    public Deferred( final PlexusIoResource resource, final PlexusIoResourceCollection owner, boolean hasTransformer,
+                     boolean transformOnRead, BufferingPolicy bufferingPolicy, @Nullable SpillManager spills,
+                     @Nullable String digestAlgorithm, @Nullable PlexusIoMetrics metrics )
         throws IOException
     {
         this.resource = resource;
         this.owner = owner;
-        dfos = hasTransformer ? new DeferredFileOutputStream( 5000000, "p-archiver", null, null ) : null;
-        if ( dfos != null )
+        this.metrics = metrics;
+        if ( hasTransformer )
         {
-            InputStream inputStream = owner.getInputStream( resource );
-            IOUtils.copy( inputStream, dfos );
-            IOUtils.closeQuietly( inputStream );
+            final ContentSupplier supplier = new ContentSupplier()
+            {
+                public InputStream getContents()
+                    throws IOException
+                {
+                    return owner.getInputStream( resource );
+                }
+            };
+            digest = new ContentDigest( digestAlgorithm, null, null );
+            transformed = transformOnRead
+                ? TransformedContent.onRead( supplier )
+                : TransformedContent.buffered( supplier, bufferingPolicy, spills, digest );
+        }
+        else
+        {
+            digest = null;
+            transformed = null;
         }
-
     }
 
     @Nonnull
     public InputStream getContents()
         throws IOException
     {
-        if ( dfos == null )
+        if ( transformed == null )
         {
             return resource.getContents();
         }
-        if ( dfos.isInMemory() )
+        final InputStream contents = digest.digesting( transformed.getContents() );
+        return metrics == null ? contents : new MeteredInputStream( contents, getName(), metrics );
+    }
+
+    /**
+     * @return True, if the transformed contents have been spilled to a temporary file.
+     */
+    boolean isSpilled()
+    {
+        return transformed != null && transformed.isSpilled();
+    }
+
+    @Nonnull
+    public byte[] getContentDigest( @Nonnull String algorithm )
+        throws IOException
+    {
+        if ( transformed == null )
         {
-            return new ByteArrayInputStream( dfos.getData() );
+            return resource instanceof ContentDigestSupplier
+                ? ( (ContentDigestSupplier) resource ).getContentDigest( algorithm )
+                : ContentDigest.digest( algorithm, resource.getContents() );
         }
-        else
+        return digest.get( algorithm, new ContentSupplier()
         {
-            return new FileInputStream( dfos.getFile() ){
-                @Override
-                public void close()
-                    throws IOException
-                {
-                    super.close();
-                    dfos.getFile().delete();
-                }
-            };
-        }
+            public InputStream getContents()
+                throws IOException
+            {
+                return transformed.getContents();
+            }
+        } );
     }
 
     public long getSize()
     {
-        if ( dfos == null )
-        {
-            return resource.getSize();
-        }
-        if ( dfos.isInMemory() )
-        {
-            return dfos.getByteCount();
-        }
-        else
-        {
-            return dfos.getFile().length();
-        }
+        return transformed == null ? resource.getSize() : transformed.getSize();
     }
 
     public String getName()
@@ -98,6 +130,30 @@ public String getName()
         return owner.getName( resource );
     }
 
+    public FileChannel openChannel()
+        throws IOException
+    {
+        if ( transformed == null )
+        {
+            return resource instanceof FileChannelSupplier ? ( (FileChannelSupplier) resource ).openChannel() : null;
+        }
+        return transformed.openChannel();
+    }
+
+    public long getChannelOffset()
+    {
+        return transformed == null && resource instanceof FileChannelSupplier
+            ? ( (FileChannelSupplier) resource ).getChannelOffset()
+            : 0;
+    }
+
+    public long getChannelLength()
+    {
+        return transformed == null && resource instanceof FileChannelSupplier
+            ? ( (FileChannelSupplier) resource ).getChannelLength()
+            : getSize();
+    }
+
 
     public PlexusIoResource asResource()
     {
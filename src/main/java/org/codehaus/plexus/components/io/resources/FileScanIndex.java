@@ -0,0 +1,365 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.attributes.Java7FileAttributes;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The file system state, which has been seen by an incremental scan: For every entry, that has been
+ * visited, the attributes, and a stamp (size, modification time, change time, file key) to detect changes.
+ * For every directory, that has been listed, the names of its entries. Names are relative to the base
+ * directory, and use '/' as separator. The index also records the time, when the scan started: A directory,
+ * whose modification time is that close to the scan, that an entry may have been added, or removed within the
+ * timestamp granularity of the file system after it was listed, is listed again by the next scan.
+ * <p>
+ * The index is stored in a compact binary format. An index, which can't be read, or belongs to another
+ * base directory, is treated as empty, so that the next scan is a full scan.
+ */
+class FileScanIndex
+{
+    private static final int MAGIC = 0x50494458;
+
+    private static final int VERSION = 2;
+
+    private static final int LISTED = 1;
+
+    private static final int SYMLINK = 2;
+
+    private static final int HAS_FILE_KEY = 4;
+
+    private static final int ATTR_SYMLINK = 8;
+
+    private static final int ATTR_EXISTING = 16;
+
+    private static final int ATTR_DIRECTORY = 32;
+
+    private static final int ATTR_REGULAR_FILE = 64;
+
+    private static final int HAS_UID = 128;
+
+    private static final int HAS_GID = 256;
+
+    private static final int HAS_USER_NAME = 512;
+
+    private static final int HAS_GROUP_NAME = 1024;
+
+    static final int ADDED = 0;
+
+    static final int MODIFIED = 1;
+
+    static final int UNCHANGED = 2;
+
+    /**
+     * The coarsest timestamp granularity of a common file system (FAT), in milliseconds.
+     */
+    static final long TIMESTAMP_GRANULARITY = 2000;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    private long scanTime;
+
+    static class Entry
+    {
+        final String name;
+
+        final long size;
+
+        final long lastModified;
+
+        final long changeTime;
+
+        final String fileKey;
+
+        final boolean symbolicLink;
+
+        final Java7FileAttributes attributes;
+
+        /**
+         * True, if the entries of this directory are recorded in the index.
+         */
+        boolean listed;
+
+        /**
+         * The names of the directories entries, if listed, after reading the index.
+         */
+        List<String> children;
+
+        /**
+         * How the entry differs from the previous scan, one of {@link #ADDED}, {@link #MODIFIED},
+         * or {@link #UNCHANGED}.
+         */
+        int status;
+
+        Entry( @Nonnull String name, long size, long lastModified, long changeTime, @Nullable String fileKey,
+               boolean symbolicLink, @Nonnull Java7FileAttributes attributes )
+        {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.changeTime = changeTime;
+            this.fileKey = fileKey;
+            this.symbolicLink = symbolicLink;
+            this.attributes = attributes;
+        }
+
+        /**
+         * Returns, whether the given stamp is the same as the stamp of this entry. The stamp of a symbolic link
+         * is that of the link itself, but its attributes describe the target, so symbolic links match only,
+         * if the target doesn't matter.
+         * @param linkStampSufficient True, if symbolic links match by their own stamp, false, if they never do.
+         */
+        boolean hasStamp( long size, long lastModified, long changeTime, @Nullable String fileKey,
+                          boolean symbolicLink, boolean linkStampSufficient )
+        {
+            return symbolicLink == this.symbolicLink && ( !symbolicLink || linkStampSufficient )
+                && this.size == size && this.lastModified == lastModified
+                && this.changeTime == changeTime
+                && ( this.fileKey == null ? fileKey == null : this.fileKey.equals( fileKey ) );
+        }
+    }
+
+    /**
+     * @return The time, when the scan, which created this index, started, or 0, if unknown.
+     */
+    long getScanTime()
+    {
+        return scanTime;
+    }
+
+    void setScanTime( long scanTime )
+    {
+        this.scanTime = scanTime;
+    }
+
+    /**
+     * Returns, whether the listing of the given directory may be outdated, although its modification
+     * time is unchanged: If the directory has been modified within the timestamp granularity before the
+     * scan started, a later modification may have left the same timestamp.
+     */
+    boolean isRacilyListed( @Nonnull Entry dir )
+    {
+        return dir.lastModified + TIMESTAMP_GRANULARITY >= scanTime;
+    }
+
+    @Nullable
+    Entry get( @Nonnull String name )
+    {
+        return entries.get( name );
+    }
+
+    void add( @Nonnull Entry entry )
+    {
+        entries.put( entry.name, entry );
+    }
+
+    @Nonnull
+    Collection<Entry> getEntries()
+    {
+        return entries.values();
+    }
+
+    /**
+     * Reads the index, or returns an empty index, if the file doesn't exist, can't be read,
+     * or belongs to another base directory.
+     */
+    @Nonnull
+    static FileScanIndex read( @Nonnull File indexFile, @Nonnull File baseDir )
+    {
+        final FileScanIndex index = new FileScanIndex();
+        if ( !indexFile.isFile() )
+        {
+            return index;
+        }
+        try
+        {
+            final DataInputStream in =
+                new DataInputStream( new BufferedInputStream( new FileInputStream( indexFile ) ) );
+            try
+            {
+                if ( in.readInt() != MAGIC || in.readInt() != VERSION
+                    || !in.readUTF().equals( baseDir.getAbsolutePath() ) )
+                {
+                    return index;
+                }
+                index.scanTime = in.readLong();
+                for ( int i = in.readInt(); i > 0; i-- )
+                {
+                    index.add( readEntry( in ) );
+                }
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            return new FileScanIndex();
+        }
+        for ( Entry entry : index.entries.values() )
+        {
+            if ( entry.name.length() > 0 )
+            {
+                final int offset = entry.name.lastIndexOf( '/' );
+                final Entry parent = index.get( offset == -1 ? "" : entry.name.substring( 0, offset ) );
+                if ( parent != null && parent.listed )
+                {
+                    if ( parent.children == null )
+                    {
+                        parent.children = new ArrayList<String>();
+                    }
+                    parent.children.add( entry.name.substring( offset + 1 ) );
+                }
+            }
+        }
+        return index;
+    }
+
+    private static Entry readEntry( DataInputStream in )
+        throws IOException
+    {
+        final String name = in.readUTF();
+        final int flags = in.readInt();
+        final long size = in.readLong();
+        final long lastModified = in.readLong();
+        final long changeTime = in.readLong();
+        final String fileKey = ( flags & HAS_FILE_KEY ) != 0 ? in.readUTF() : null;
+        final Integer uid = ( flags & HAS_UID ) != 0 ? in.readInt() : null;
+        final Integer gid = ( flags & HAS_GID ) != 0 ? in.readInt() : null;
+        final String userName = ( flags & HAS_USER_NAME ) != 0 ? in.readUTF() : null;
+        final String groupName = ( flags & HAS_GROUP_NAME ) != 0 ? in.readUTF() : null;
+        final int octalMode = in.readInt();
+        final long attrSize = in.readLong();
+        final long attrLastModified = in.readLong();
+        final Java7FileAttributes attributes =
+            new Java7FileAttributes( uid, userName, gid, groupName, octalMode, ( flags & ATTR_SYMLINK ) != 0,
+                                     ( flags & ATTR_EXISTING ) != 0, ( flags & ATTR_DIRECTORY ) != 0,
+                                     ( flags & ATTR_REGULAR_FILE ) != 0, attrSize, attrLastModified );
+        final Entry entry =
+            new Entry( name, size, lastModified, changeTime, fileKey, ( flags & SYMLINK ) != 0, attributes );
+        entry.listed = ( flags & LISTED ) != 0;
+        return entry;
+    }
+
+    /**
+     * Writes the index to a temporary file, which replaces the index file, once complete.
+     */
+    void write( @Nonnull File indexFile, @Nonnull File baseDir )
+        throws IOException
+    {
+        final File dir = indexFile.getAbsoluteFile().getParentFile();
+        if ( !dir.isDirectory() && !dir.mkdirs() )
+        {
+            throw new IOException( "Unable to create directory " + dir );
+        }
+        final File tempFile = File.createTempFile( indexFile.getName(), ".tmp", dir );
+        try
+        {
+            final DataOutputStream out =
+                new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempFile ) ) );
+            try
+            {
+                out.writeInt( MAGIC );
+                out.writeInt( VERSION );
+                out.writeUTF( baseDir.getAbsolutePath() );
+                out.writeLong( scanTime );
+                out.writeInt( entries.size() );
+                for ( Entry entry : entries.values() )
+                {
+                    writeEntry( out, entry );
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+            Files.move( tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        finally
+        {
+            if ( tempFile.exists() && !tempFile.delete() )
+            {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+
+    private static void writeEntry( DataOutputStream out, Entry entry )
+        throws IOException
+    {
+        final Java7FileAttributes attributes = entry.attributes;
+        int flags = 0;
+        flags |= entry.listed ? LISTED : 0;
+        flags |= entry.symbolicLink ? SYMLINK : 0;
+        flags |= entry.fileKey != null ? HAS_FILE_KEY : 0;
+        flags |= attributes.isSymbolicLink() ? ATTR_SYMLINK : 0;
+        flags |= attributes.isExisting() ? ATTR_EXISTING : 0;
+        flags |= attributes.isDirectory() ? ATTR_DIRECTORY : 0;
+        flags |= attributes.isRegularFile() ? ATTR_REGULAR_FILE : 0;
+        flags |= attributes.getUserId() != null ? HAS_UID : 0;
+        flags |= attributes.getGroupId() != null ? HAS_GID : 0;
+        flags |= attributes.getUserName() != null ? HAS_USER_NAME : 0;
+        flags |= attributes.getGroupName() != null ? HAS_GROUP_NAME : 0;
+
+        out.writeUTF( entry.name );
+        out.writeInt( flags );
+        out.writeLong( entry.size );
+        out.writeLong( entry.lastModified );
+        out.writeLong( entry.changeTime );
+        if ( entry.fileKey != null )
+        {
+            out.writeUTF( entry.fileKey );
+        }
+        if ( attributes.getUserId() != null )
+        {
+            out.writeInt( attributes.getUserId() );
+        }
+        if ( attributes.getGroupId() != null )
+        {
+            out.writeInt( attributes.getGroupId() );
+        }
+        if ( attributes.getUserName() != null )
+        {
+            out.writeUTF( attributes.getUserName() );
+        }
+        if ( attributes.getGroupName() != null )
+        {
+            out.writeUTF( attributes.getGroupName() );
+        }
+        out.writeInt( attributes.getOctalMode() );
+        out.writeLong( attributes.getSize() );
+        out.writeLong( attributes.getLastModified() );
+    }
+}
@@ -0,0 +1,252 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.attributes.Java7AttributeUtils;
+import org.codehaus.plexus.components.io.attributes.Java7FileAttributes;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+
+/**
+ * Walks the base directory of a {@link PlexusIoFileResourceCollection} like the
+ * {@link StreamingFileResourceIterator}, but compares every entry with the {@link FileScanIndex}
+ * of the previous scan. Every entry is still stat'ed, because writing a file doesn't change the
+ * modification time of its directory. But the directory listing is reused for every directory,
+ * whose stamp is unchanged (unless it was modified just before the previous scan), and the attributes
+ * (including owner, and group) are reused for every entry, whose stamp is unchanged. Symbolic links are
+ * compared by their own stamp, unless the collection follows them.
+ */
+class IncrementalFileResourceScanner
+{
+    private static final String UNIX_STAMP = "unix:size,lastModifiedTime,ctime,isSymbolicLink,fileKey";
+
+    private final PlexusIoFileResourceCollection collection;
+
+    private final ScanPatterns patterns;
+
+    private final FileScanIndex previous;
+
+    private final FileScanIndex current = new FileScanIndex();
+
+    private final ScanChanges changes = new ScanChanges();
+
+    private final boolean unix;
+
+    private IncrementalFileResourceScanner( PlexusIoFileResourceCollection collection, ScanPatterns patterns,
+                                            FileScanIndex previous, boolean unix )
+    {
+        this.collection = collection;
+        this.patterns = patterns;
+        this.previous = previous;
+        this.unix = unix;
+        current.setScanTime( System.currentTimeMillis() );
+    }
+
+    /**
+     * Scans the collections base directory. The index file is replaced with the result
+     * only, when the changes are {@link ScanChanges#commit() committed}.
+     */
+    @Nonnull
+    static ScanChanges scan( @Nonnull PlexusIoFileResourceCollection collection, @Nonnull ScanPatterns patterns,
+                             @Nonnull File indexFile )
+        throws IOException
+    {
+        final File baseDir = collection.getBaseDir();
+        if ( baseDir == null || !baseDir.isDirectory() )
+        {
+            throw new IOException( "The base directory " + baseDir + " does not exist or is no directory." );
+        }
+        final Path base = baseDir.toPath();
+        final IncrementalFileResourceScanner scanner =
+            new IncrementalFileResourceScanner( collection, patterns, FileScanIndex.read( indexFile, baseDir ),
+                                                Java7AttributeUtils.isUnix( base ) );
+        scanner.walk( base );
+        scanner.changes.setIndex( scanner.current, indexFile, baseDir );
+        return scanner.changes;
+    }
+
+    private void walk( Path base )
+        throws IOException
+    {
+        final FileScanIndex.Entry root = stat( "", base );
+        if ( root == null )
+        {
+            throw new IOException( "The base directory " + base + " does not exist." );
+        }
+        if ( collection.isIncludingEmptyDirectories() )
+        {
+            select( root );
+        }
+        descend( root, base );
+
+        for ( FileScanIndex.Entry entry : previous.getEntries() )
+        {
+            if ( current.get( entry.name ) == null && ( entry.attributes.isRegularFile()
+                || ( entry.attributes.isDirectory() && collection.isIncludingEmptyDirectories() ) ) )
+            {
+                final String name = entry.name.replace( '/', File.separatorChar );
+                if ( patterns.isIncluded( name ) )
+                {
+                    changes.addRemoved( collection.getName( name ) );
+                }
+            }
+        }
+    }
+
+    private void descend( FileScanIndex.Entry dir, Path path )
+        throws IOException
+    {
+        final FileScanIndex.Entry old = previous.get( dir.name );
+        final String[] children;
+        if ( dir.status == FileScanIndex.UNCHANGED && old != null && old.listed && !previous.isRacilyListed( old ) )
+        {
+            children = old.children == null ? new String[0] : old.children.toArray( new String[old.children.size()] );
+        }
+        else
+        {
+            children = StreamingFileResourceIterator.list( path );
+        }
+        dir.listed = true;
+
+        final String prefix = dir.name.length() == 0 ? "" : dir.name + "/";
+        for ( String child : children )
+        {
+            final Path childPath = path.resolve( child );
+            final FileScanIndex.Entry entry = stat( prefix + child, childPath );
+            if ( entry == null )
+            {
+                continue;
+            }
+            if ( entry.attributes.isDirectory() )
+            {
+                if ( collection.isIncludingEmptyDirectories() )
+                {
+                    select( entry );
+                }
+                if ( collection.isDescending( patterns, entry.name.replace( '/', File.separatorChar ) )
+                    && ( collection.isFollowingSymLinks() || !entry.attributes.isSymbolicLink() ) )
+                {
+                    descend( entry, childPath );
+                }
+            }
+            else if ( entry.attributes.isRegularFile() )
+            {
+                select( entry );
+            }
+        }
+    }
+
+    private void select( FileScanIndex.Entry entry )
+        throws IOException
+    {
+        final String name = entry.name.replace( '/', File.separatorChar );
+        if ( !patterns.isIncluded( name ) )
+        {
+            return;
+        }
+        final PlexusIoResource resource = collection.createResource( name, entry.attributes );
+        if ( resource == null )
+        {
+            return;
+        }
+        switch ( entry.status )
+        {
+            case FileScanIndex.ADDED:
+                changes.addAdded( resource );
+                break;
+            case FileScanIndex.MODIFIED:
+                changes.addModified( resource );
+                break;
+            default:
+                changes.addUnchanged( resource );
+        }
+    }
+
+    /**
+     * Reads the stamp of the given entry, and creates its index entry. The attributes are read
+     * only, if the stamp differs from the previous scan.
+     * @return The new index entry, or null, if the entry doesn't exist anymore.
+     */
+    @Nullable
+    private FileScanIndex.Entry stat( String name, Path path )
+        throws IOException
+    {
+        final long size;
+        final long lastModified;
+        final long changeTime;
+        final Object fileKey;
+        final boolean symbolicLink;
+        try
+        {
+            if ( unix )
+            {
+                final Map<String, Object> stamp = Files.readAttributes( path, UNIX_STAMP, LinkOption.NOFOLLOW_LINKS );
+                size = (Long) stamp.get( "size" );
+                lastModified = ( (FileTime) stamp.get( "lastModifiedTime" ) ).toMillis();
+                changeTime = ( (FileTime) stamp.get( "ctime" ) ).toMillis();
+                fileKey = stamp.get( "fileKey" );
+                symbolicLink = (Boolean) stamp.get( "isSymbolicLink" );
+            }
+            else
+            {
+                final BasicFileAttributes stamp =
+                    Files.readAttributes( path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS );
+                size = stamp.size();
+                lastModified = stamp.lastModifiedTime().toMillis();
+                changeTime = -1;
+                fileKey = stamp.fileKey();
+                symbolicLink = stamp.isSymbolicLink();
+            }
+        }
+        catch ( NoSuchFileException e )
+        {
+            return null;
+        }
+        final String key = fileKey == null ? null : fileKey.toString();
+
+        final FileScanIndex.Entry old = previous.get( name );
+        final FileScanIndex.Entry entry;
+        if ( old != null
+            && old.hasStamp( size, lastModified, changeTime, key, symbolicLink, !collection.isFollowingSymLinks() ) )
+        {
+            entry = new FileScanIndex.Entry( name, size, lastModified, changeTime, key, symbolicLink, old.attributes );
+            entry.status = FileScanIndex.UNCHANGED;
+        }
+        else
+        {
+            final Java7FileAttributes attributes = collection.readAttributes( path.toFile() );
+            if ( attributes == null )
+            {
+                return null;
+            }
+            entry = new FileScanIndex.Entry( name, size, lastModified, changeTime, key, symbolicLink, attributes );
+            entry.status = old == null ? FileScanIndex.ADDED : FileScanIndex.MODIFIED;
+        }
+        current.add( entry );
+        return entry;
+    }
+}
@@ -0,0 +1,161 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Computes the last modification time of a {@link PlexusIoFileResourceCollection} from the
+ * {@link BasicFileAttributes} of the selected files only. Walks the same names as the
+ * {@link StreamingFileResourceIterator}, but creates no resources. The walk stops, as soon
+ * as a modification time after the threshold has been seen.
+ */
+class LastModifiedWalker
+{
+    private final PlexusIoFileResourceCollection collection;
+
+    private final ScanPatterns patterns;
+
+    private final long threshold;
+
+    private long lastModified = PlexusIoResource.UNKNOWN_MODIFICATION_DATE;
+
+    private boolean unknown;
+
+    private boolean complete;
+
+    private LastModifiedWalker( PlexusIoFileResourceCollection collection, ScanPatterns patterns, long threshold )
+    {
+        this.collection = collection;
+        this.patterns = patterns;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Walks the collections base directory.
+     * @param threshold The walk stops at the first modification time after this.
+     *   Use {@link Long#MAX_VALUE} to walk completely.
+     */
+    @Nonnull
+    static LastModifiedWalker walk( @Nonnull PlexusIoFileResourceCollection collection,
+                                    @Nonnull ScanPatterns patterns, long threshold )
+        throws IOException
+    {
+        final File baseDir = collection.getBaseDir();
+        if ( baseDir == null || !baseDir.isDirectory() )
+        {
+            throw new IOException( "The base directory " + baseDir + " does not exist or is no directory." );
+        }
+        final LastModifiedWalker walker = new LastModifiedWalker( collection, patterns, threshold );
+        final Path base = baseDir.toPath();
+        if ( !( collection.isIncludingEmptyDirectories() && patterns.isIncluded( "" )
+            && walker.stop( Files.readAttributes( base, BasicFileAttributes.class ) ) ) )
+        {
+            walker.complete = !walker.descend( "", base );
+        }
+        return walker;
+    }
+
+    /**
+     * @return The greatest modification time, which has been seen, or
+     * {@link PlexusIoResource#UNKNOWN_MODIFICATION_DATE}, if there are no files, or some file has
+     * an unknown modification time.
+     */
+    long getLastModified()
+    {
+        return unknown ? PlexusIoResource.UNKNOWN_MODIFICATION_DATE : lastModified;
+    }
+
+    /**
+     * @return True, if some file has been modified after the given time, or has an unknown modification time.
+     */
+    boolean isNewerThan( long timestamp )
+    {
+        return unknown || lastModified > timestamp;
+    }
+
+    /**
+     * @return True, if every selected file has been seen.
+     */
+    boolean isComplete()
+    {
+        return complete;
+    }
+
+    /**
+     * @return True, if the walk has been stopped.
+     */
+    private boolean descend( String dirName, Path dir )
+        throws IOException
+    {
+        final String prefix = dirName.length() == 0 ? "" : dirName + File.separator;
+        for ( String child : StreamingFileResourceIterator.list( dir ) )
+        {
+            final String name = prefix + child;
+            final Path path = dir.resolve( child );
+            final BasicFileAttributes attrs;
+            try
+            {
+                attrs = Files.readAttributes( path, BasicFileAttributes.class );
+            }
+            catch ( NoSuchFileException e )
+            {
+                // Removed meanwhile, or a dangling symbolic link
+                continue;
+            }
+            if ( attrs.isDirectory() )
+            {
+                if ( collection.isIncludingEmptyDirectories() && patterns.isIncluded( name ) && stop( attrs ) )
+                {
+                    return true;
+                }
+                if ( collection.isDescending( patterns, name )
+                    && ( collection.isFollowingSymLinks() || !Files.isSymbolicLink( path ) )
+                    && descend( name, path ) )
+                {
+                    return true;
+                }
+            }
+            else if ( attrs.isRegularFile() && patterns.isIncluded( name ) && stop( attrs ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean stop( BasicFileAttributes attrs )
+    {
+        final long l = attrs.lastModifiedTime().toMillis();
+        if ( l == PlexusIoResource.UNKNOWN_MODIFICATION_DATE )
+        {
+            unknown = true;
+            return true;
+        }
+        if ( l > lastModified )
+        {
+            lastModified = l;
+        }
+        return lastModified > threshold;
+    }
+}
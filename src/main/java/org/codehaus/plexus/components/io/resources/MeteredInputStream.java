@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.plexus.components.io.resources;
+
+
+import org.codehaus.plexus.components.io.metrics.PlexusIoMetrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes, which are read from a resources contents, and reports them, together with
+ * the time the stream has been open, when it is closed.
+ */
+class MeteredInputStream
+    extends FilterInputStream
+{
+    private final String name;
+
+    private final PlexusIoMetrics metrics;
+
+    private final long start = System.nanoTime();
+
+    private long count;
+
+    private boolean closed;
+
+    MeteredInputStream( InputStream in, String name, PlexusIoMetrics metrics )
+    {
+        super( in );
+        this.name = name;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        final int b = super.read();
+        if ( b != -1 )
+        {
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len )
+        throws IOException
+    {
+        final int n = super.read( b, off, len );
+        if ( n > 0 )
+        {
+            count += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip( long n )
+        throws IOException
+    {
+        final long skipped = super.skip( n );
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return false;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            if ( !closed )
+            {
+                closed = true;
+                metrics.contentsRead( name, count, System.nanoTime() - start );
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.attributes.Java7FileAttributes;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scans the base directory of a {@link PlexusIoFileResourceCollection} with a fork/join pool.
+ * Subdirectories are walked concurrently, and the entries of large directories are
+ * split into chunks, whose attributes are read concurrently. The partial results are
+ * merged in name order, so the result is the same as that of
+ * {@link StreamingFileResourceIterator}, regardless of the number of threads.
+ */
+class ParallelFileResourceScanner
+{
+    /**
+     * The number of directory entries, which are processed by one task.
+     */
+    private static final int CHUNK_SIZE = 32;
+
+    private final PlexusIoFileResourceCollection collection;
+
+    private final ScanPatterns patterns;
+
+    private ParallelFileResourceScanner( PlexusIoFileResourceCollection collection, ScanPatterns patterns )
+    {
+        this.collection = collection;
+        this.patterns = patterns;
+    }
+
+    /**
+     * Scans the collections base directory with a pool, which is created for this scan only.
+     * @param parallelism The number of threads, or 0 for one thread per processor.
+     */
+    static List<PlexusIoResource> scan( @Nonnull PlexusIoFileResourceCollection collection,
+                                        @Nonnull ScanPatterns patterns, int parallelism )
+        throws IOException
+    {
+        final File baseDir = collection.getBaseDir();
+        if ( baseDir == null || !baseDir.isDirectory() )
+        {
+            throw new IOException( "The base directory " + baseDir + " does not exist or is no directory." );
+        }
+        final ParallelFileResourceScanner scanner = new ParallelFileResourceScanner( collection, patterns );
+        final ForkJoinPool pool = parallelism > 0 ? new ForkJoinPool( parallelism ) : new ForkJoinPool();
+        try
+        {
+            final List<PlexusIoResource> result = new ArrayList<PlexusIoResource>();
+            if ( collection.isIncludingEmptyDirectories() )
+            {
+                PlexusIoResource root = scanner.select( "", null );
+                if ( root != null )
+                {
+                    result.add( root );
+                }
+            }
+            result.addAll( pool.invoke( scanner.new DirectoryTask( baseDir.toPath(), "" ) ) );
+            return result;
+        }
+        catch ( RuntimeException e )
+        {
+            // The pool may rethrow a copy of the tasks exception, with the original as its cause
+            for ( Throwable t = e; t != null; t = t.getCause() )
+            {
+                if ( t instanceof ScanException )
+                {
+                    throw ( (ScanException) t ).getIOException();
+                }
+            }
+            throw e;
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @param attrs The attributes of the file, or null to read them.
+     */
+    private PlexusIoResource select( String name, Java7FileAttributes attrs )
+        throws IOException
+    {
+        return patterns.isIncluded( name ) ? collection.createResource( name, attrs ) : null;
+    }
+
+    /**
+     * Processes a range of entries of one directory. Subdirectories are forked as new
+     * tasks, while files are handled by the current task.
+     */
+    private class ChunkTask
+        extends RecursiveTask<List<PlexusIoResource>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+
+        private final String vpath;
+
+        private final String[] children;
+
+        private final int from, to;
+
+        ChunkTask( Path dir, String vpath, String[] children, int from, int to )
+        {
+            this.dir = dir;
+            this.vpath = vpath;
+            this.children = children;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<PlexusIoResource> compute()
+        {
+            try
+            {
+                return process();
+            }
+            catch ( IOException e )
+            {
+                throw new ScanException( e );
+            }
+        }
+
+        private List<PlexusIoResource> process()
+            throws IOException
+        {
+            final List<Object> parts = new ArrayList<Object>( to - from );
+            for ( int i = from; i < to; i++ )
+            {
+                final String name = vpath + children[i];
+                final Path path = dir.resolve( children[i] );
+                // One read tells directories from files, and provides the resources state
+                final Java7FileAttributes attrs = collection.readAttributes( path.toFile() );
+                if ( attrs == null )
+                {
+                    continue;
+                }
+                if ( attrs.isDirectory() )
+                {
+                    if ( collection.isIncludingEmptyDirectories() )
+                    {
+                        addIfSelected( parts, name, attrs );
+                    }
+                    if ( collection.isDescending( patterns, name )
+                        && ( collection.isFollowingSymLinks() || !attrs.isSymbolicLink() ) )
+                    {
+                        DirectoryTask subdir = new DirectoryTask( path, name + File.separator );
+                        subdir.fork();
+                        parts.add( subdir );
+                    }
+                }
+                else if ( attrs.isRegularFile() )
+                {
+                    addIfSelected( parts, name, attrs );
+                }
+            }
+
+            final List<PlexusIoResource> result = new ArrayList<PlexusIoResource>( parts.size() );
+            for ( Object part : parts )
+            {
+                if ( part instanceof DirectoryTask )
+                {
+                    result.addAll( ( (DirectoryTask) part ).join() );
+                }
+                else
+                {
+                    result.add( (PlexusIoResource) part );
+                }
+            }
+            return result;
+        }
+
+        private void addIfSelected( List<Object> parts, String name, Java7FileAttributes attrs )
+            throws IOException
+        {
+            PlexusIoResource resource = select( name, attrs );
+            if ( resource != null )
+            {
+                parts.add( resource );
+            }
+        }
+    }
+
+    /**
+     * Lists a directory and splits its entries into chunks.
+     */
+    private class DirectoryTask
+        extends RecursiveTask<List<PlexusIoResource>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+
+        private final String vpath;
+
+        DirectoryTask( Path dir, String vpath )
+        {
+            this.dir = dir;
+            this.vpath = vpath;
+        }
+
+        @Override
+        protected List<PlexusIoResource> compute()
+        {
+            final String[] children = StreamingFileResourceIterator.list( dir );
+            if ( children.length <= CHUNK_SIZE )
+            {
+                return new ChunkTask( dir, vpath, children, 0, children.length ).compute();
+            }
+
+            final List<ChunkTask> chunks = new ArrayList<ChunkTask>();
+            for ( int from = 0; from < children.length; from += CHUNK_SIZE )
+            {
+                chunks.add( new ChunkTask( dir, vpath, children, from,
+                                           Math.min( from + CHUNK_SIZE, children.length ) ) );
+            }
+            invokeAll( chunks );
+
+            final List<PlexusIoResource> result = new ArrayList<PlexusIoResource>();
+            for ( ChunkTask chunk : chunks )
+            {
+                result.addAll( chunk.join() );
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Carries an {@link IOException} of a task through the pool, so that {@link #scan} can rethrow it.
+     */
+    private static class ScanException
+        extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        ScanException( IOException cause )
+        {
+            super( cause );
+        }
+
+        IOException getIOException()
+        {
+            return (IOException) getCause();
+        }
+    }
+}
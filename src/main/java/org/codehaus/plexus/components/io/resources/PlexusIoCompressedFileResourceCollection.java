@@ -19,9 +19,9 @@
 import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
 import org.codehaus.plexus.components.io.functions.ContentSupplier;
 import org.codehaus.plexus.components.io.functions.InputStreamTransformer;
-import org.codehaus.plexus.components.io.functions.PlexusIoResourceConsumer;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
@@ -35,7 +35,7 @@
  * resource collections.
  */
 public abstract class PlexusIoCompressedFileResourceCollection
-    implements PlexusIoArchivedResourceCollection, Iterable<PlexusIoResource>
+    implements PlexusIoArchivedResourceCollection, Iterable<PlexusIoResource>, Closeable
 {
     private File file;
 
@@ -43,6 +43,10 @@
 
     private InputStreamTransformer streamTransformers = AbstractPlexusIoResourceCollection.identityTransformer;
 
+    private BufferingPolicy bufferingPolicy = BufferingPolicy.getDefault();
+
+    private SpillManager spillManager;
+
 
     public File getFile()
     {
@@ -77,23 +81,65 @@ public void setStreamTransformer( InputStreamTransformer streamTransformers )
         this.streamTransformers = streamTransformers;
     }
 
+    /**
+     * Sets the policy, which controls how the output of the stream transformer is buffered.
+     * @param bufferingPolicy The policy, or null for {@link BufferingPolicy#getDefault()}.
+     * @see AbstractPlexusIoResourceCollection#setBufferingPolicy(BufferingPolicy)
+     */
+    public void setBufferingPolicy( BufferingPolicy bufferingPolicy )
+    {
+        this.bufferingPolicy = bufferingPolicy != null ? bufferingPolicy : BufferingPolicy.getDefault();
+    }
+
+    /**
+     * @return The policy, which controls how the output of the stream transformer is buffered.
+     */
+    @Nonnull
+    public BufferingPolicy getBufferingPolicy()
+    {
+        return bufferingPolicy;
+    }
+
+    /**
+     * Sets the manager, which tracks the buffered output of the stream transformer.
+     * @param spillManager The manager, or null.
+     * @see AbstractPlexusIoResourceCollection#setSpillManager(SpillManager)
+     */
+    public void setSpillManager( @Nullable SpillManager spillManager )
+    {
+        this.spillManager = spillManager;
+    }
+
+    /**
+     * @return The manager, which tracks the buffered output of the stream transformer, or null.
+     */
+    @Nullable
+    public SpillManager getSpillManager()
+    {
+        return spillManager;
+    }
+
+    /**
+     * Closes the {@link #setSpillManager(SpillManager) spill manager}, if any.
+     * @see AbstractPlexusIoResourceCollection#close()
+     */
+    public void close()
+        throws IOException
+    {
+        if ( spillManager != null )
+        {
+            spillManager.close();
+        }
+    }
+
     public Stream stream()
     {
-        return new Stream()
+        return new AbstractStream()
         {
-            public void forEach( PlexusIoResourceConsumer resourceConsumer )
+            protected Iterator<PlexusIoResource> resources()
                 throws IOException
             {
-
-                final Iterator<PlexusIoResource> it = getResources();
-                while( it.hasNext())
-                {
-                    resourceConsumer.accept( it.next() );
-                }
-                if (it instanceof Closeable )
-                {
-                    ((Closeable)it).close();
-                }
+                return getResources();
             }
         };
     }
@@ -158,7 +204,8 @@ public PlexusIoResource resolve( final PlexusIoResource resource )
         throws IOException
     {
         final Deferred deferred = new Deferred( resource, this, streamTransformers
-            != AbstractPlexusIoResourceCollection.identityTransformer );
+            != AbstractPlexusIoResourceCollection.identityTransformer, false, getBufferingPolicy(),
+                                                getSpillManager(), null, null );
         return deferred.asResource();
     }
 
@@ -187,6 +234,17 @@ public long getLastModified()
         return f == null ? PlexusIoResource.UNKNOWN_MODIFICATION_DATE : f.lastModified();
     }
 
+    /**
+     * Returns, whether the compressed file has been modified after the given time.
+     * @see AbstractPlexusIoResourceCollection#isNewerThan(long)
+     */
+    public boolean isNewerThan( long timestamp )
+        throws IOException
+    {
+        final long lastModified = getLastModified();
+        return lastModified == PlexusIoResource.UNKNOWN_MODIFICATION_DATE || lastModified > timestamp;
+    }
+
     public boolean isConcurrentAccessSupported() {
 	// There is a single resource in the collection so it is safe
 	return true;
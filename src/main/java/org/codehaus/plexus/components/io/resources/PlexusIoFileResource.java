@@ -16,31 +16,34 @@
  * limitations under the License.
  */
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.output.DeferredFileOutputStream;
 import org.codehaus.plexus.components.io.attributes.Java7AttributeUtils;
+import org.codehaus.plexus.components.io.attributes.Java7FileAttributes;
 import org.codehaus.plexus.components.io.attributes.Java7Reflector;
 import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+import org.codehaus.plexus.components.io.functions.ContentDigestSupplier;
 import org.codehaus.plexus.components.io.functions.ContentSupplier;
+import org.codehaus.plexus.components.io.functions.FileChannelSupplier;
 import org.codehaus.plexus.components.io.functions.FileSupplier;
 import org.codehaus.plexus.components.io.functions.InputStreamTransformer;
 import org.codehaus.plexus.components.io.functions.ResourceAttributeSupplier;
+import org.codehaus.plexus.components.io.metrics.PlexusIoMetrics;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Implementation of {@link PlexusIoResource} for files.
  */
 public class PlexusIoFileResource
     extends AbstractPlexusIoResource
-    implements ResourceAttributeSupplier, FileSupplier
+    implements ResourceAttributeSupplier, FileSupplier, FileChannelSupplier, ContentDigestSupplier
 
 {
     @Nonnull
@@ -51,8 +54,30 @@
 
     private final ContentSupplier contentSupplier;
 
-    private final DeferredFileOutputStream dfos;
+    /**
+     * True, if the contents are read from the file, rather than from a given content supplier.
+     */
+    private final boolean fileContents;
 
+    /**
+     * The transformed contents, or null, if there is no transformer.
+     */
+    private final TransformedContent transformed;
+
+    /**
+     * True, if the file state was read up front, and the getters must not hit the file system again.
+     */
+    private final boolean snapshot;
+
+    /**
+     * The digest of the contents, or null, if no digest has been requested, or configured yet.
+     */
+    private volatile ContentDigest digest;
+
+    /**
+     * Receives the reads of the contents, or null.
+     */
+    private final PlexusIoMetrics metrics;
 
     protected PlexusIoFileResource( @Nonnull File file, @Nonnull String name, @Nonnull PlexusIoResourceAttributes attrs )
         throws IOException
@@ -64,30 +89,83 @@ protected PlexusIoFileResource( @Nonnull File file, @Nonnull String name, @Nonnu
     PlexusIoFileResource( @Nonnull final File file, @Nonnull String name, @Nonnull PlexusIoResourceAttributes attrs, final ContentSupplier contentSupplier, final InputStreamTransformer streamTransformer )
         throws IOException
     {
-        super( name, file.lastModified(), file.length(), file.isFile(), file.isDirectory(), file.exists() );
+        // The getters ask the file, so there's no point in reading its state up front.
+        super( name, UNKNOWN_MODIFICATION_DATE, UNKNOWN_RESOURCE_SIZE, false, false, false );
         this.file = file;
+        this.snapshot = false;
+        this.metrics = null;
 
         this.contentSupplier = contentSupplier != null ? contentSupplier : getRootContentSupplier( file );
+        this.fileContents = contentSupplier == null;
 
         boolean hasTransformer = streamTransformer != null && streamTransformer != identityTransformer;
         InputStreamTransformer transToUse = streamTransformer != null ? streamTransformer : identityTransformer;
 
-        dfos = hasTransformer && file.isFile() ? asDeferredStream( this.contentSupplier, transToUse, this ) : null;
+        transformed = hasTransformer && file.isFile()
+            ? transform( this.contentSupplier, transToUse, false, BufferingPolicy.getDefault(), null, null )
+            : null;
         if (attrs == null) throw new IllegalArgumentException( "attrs is null for file " + file.getName() );
         this.attributes = attrs;
     }
 
-    private static DeferredFileOutputStream asDeferredStream( @Nonnull ContentSupplier supplier, @Nonnull InputStreamTransformer transToUse,
-                                                             PlexusIoResource resource )
+    /**
+     * Creates a resource, which takes its file state from the given attributes, instead of
+     * asking the file system again. The getters return the state at the time the attributes were read.
+     * @param attrs The attributes to report, possibly merged with defaults and overrides.
+     * @param fileAttrs The attributes, which have been read from the file.
+     * @param transformOnRead True to run the transformer, whenever the contents are read,
+     *   false to run it once, now, and buffer the result.
+     * @param bufferingPolicy Controls the buffering, unless the transformer runs on read.
+     * @param spills Tracks the temporary file, if the transformed contents are spilled, or null.
+     * @param digest Computes the digest of the contents, while they are read, or null.
+     * @param metrics Receives the reads of the contents, or null.
+     */
+    @SuppressWarnings( "ConstantConditions" )
+    PlexusIoFileResource( @Nonnull final File file, @Nonnull String name, @Nonnull PlexusIoResourceAttributes attrs,
+                          @Nonnull Java7FileAttributes fileAttrs, final ContentSupplier contentSupplier,
+                          final InputStreamTransformer streamTransformer, boolean transformOnRead,
+                          @Nonnull BufferingPolicy bufferingPolicy, @Nullable SpillManager spills,
+                          @Nullable ContentDigest digest, @Nullable PlexusIoMetrics metrics )
         throws IOException
     {
-        DeferredFileOutputStream dfos = new DeferredFileOutputStream( 5000000, "p-archiver", null, null );
-        InputStream inputStream = supplier.getContents();
-        InputStream transformed = transToUse.transform( resource, inputStream );
-        IOUtils.copy( transformed, dfos );
-        IOUtils.closeQuietly( inputStream );
-        IOUtils.closeQuietly( transformed );
-        return dfos;
+        super( name, fileAttrs.getLastModified(), fileAttrs.getSize(), fileAttrs.isRegularFile(),
+               fileAttrs.isDirectory(), fileAttrs.isExisting() );
+        this.file = file;
+        this.snapshot = true;
+        this.digest = digest;
+        this.metrics = metrics;
+
+        this.contentSupplier = contentSupplier != null ? contentSupplier : getRootContentSupplier( file );
+        this.fileContents = contentSupplier == null;
+
+        boolean hasTransformer = streamTransformer != null && streamTransformer != identityTransformer;
+        InputStreamTransformer transToUse = streamTransformer != null ? streamTransformer : identityTransformer;
+
+        transformed = hasTransformer && fileAttrs.isRegularFile()
+            ? transform( this.contentSupplier, transToUse, transformOnRead, bufferingPolicy, spills, digest )
+            : null;
+        if (attrs == null) throw new IllegalArgumentException( "attrs is null for file " + file.getName() );
+        this.attributes = attrs;
+    }
+
+    private TransformedContent transform( @Nonnull final ContentSupplier supplier,
+                                          @Nonnull final InputStreamTransformer transToUse, boolean onRead,
+                                          @Nonnull BufferingPolicy bufferingPolicy, SpillManager spills,
+                                          ContentDigest digest )
+        throws IOException
+    {
+        final ContentSupplier transformedSupplier = new ContentSupplier()
+        {
+            public InputStream getContents()
+                throws IOException
+            {
+                InputStream inputStream = supplier.getContents();
+                return new ClosingInputStream( transToUse.transform( PlexusIoFileResource.this, inputStream ),
+                                               inputStream );
+            }
+        };
+        return onRead ? TransformedContent.onRead( transformedSupplier )
+            : TransformedContent.buffered( transformedSupplier, bufferingPolicy, spills, digest );
     }
 
     private static ContentSupplier getRootContentSupplier(final File file){
@@ -119,28 +197,79 @@ public File getFile()
     public InputStream getContents()
         throws IOException
     {
-            if ( dfos == null )
-            {
-                return contentSupplier.getContents();
-            }
-            if ( dfos.isInMemory() )
+        final ContentDigest contentDigest = digest;
+        final InputStream contents =
+            contentDigest == null ? getUndigestedContents() : contentDigest.digesting( getUndigestedContents() );
+        return metrics == null ? contents : new MeteredInputStream( contents, getName(), metrics );
+    }
+
+    /**
+     * @return True, if the transformed contents have been spilled to a temporary file.
+     */
+    boolean isSpilled()
+    {
+        return transformed != null && transformed.isSpilled();
+    }
+
+    private InputStream getUndigestedContents()
+        throws IOException
+    {
+        return transformed == null ? contentSupplier.getContents() : transformed.getContents();
+    }
+
+    /**
+     * Returns the digest, which has been computed while the contents were read, or has been cached.
+     * Otherwise, reads the contents for computing it.
+     */
+    @Nonnull
+    public byte[] getContentDigest( @Nonnull String algorithm )
+        throws IOException
+    {
+        ContentDigest contentDigest = digest;
+        if ( contentDigest == null )
+        {
+            synchronized ( this )
             {
-                return new ByteArrayInputStream( dfos.getData() );
+                if ( digest == null )
+                {
+                    digest = new ContentDigest( null, null, null );
+                }
+                contentDigest = digest;
             }
-            else
+        }
+        return contentDigest.get( algorithm, new ContentSupplier()
+        {
+            public InputStream getContents()
+                throws IOException
             {
-                return new FileInputStream( dfos.getFile() )
-                {
-                    @SuppressWarnings( "ResultOfMethodCallIgnored" )
-                    @Override
-                    public void close()
-                        throws IOException
-                    {
-                        super.close();
-                        dfos.getFile().delete();
-                    }
-                };
+                return getUndigestedContents();
             }
+        } );
+    }
+
+    /**
+     * Returns a channel for the file, if the contents are neither transformed, nor supplied otherwise,
+     * or for the temporary file, which holds the transformed contents, if they have been spilled
+     * and not been read yet.
+     */
+    public FileChannel openChannel()
+        throws IOException
+    {
+        if ( transformed != null )
+        {
+            return transformed.openChannel();
+        }
+        return fileContents && isFile() ? new FileInputStream( file ).getChannel() : null;
+    }
+
+    public long getChannelOffset()
+    {
+        return 0;
+    }
+
+    public long getChannelLength()
+    {
+        return getSize();
     }
 
     @Nonnull
@@ -152,33 +281,26 @@ public URL getURL()
 
     public long getSize()
     {
-        if ( dfos == null )
-        {
-            return getFile().length();
-        }
-        if ( dfos.isInMemory() )
+        if ( transformed == null )
         {
-            return dfos.getByteCount();
-        }
-        else
-        {
-            return dfos.getFile().length();
+            return snapshot ? super.getSize() : getFile().length();
         }
+        return transformed.getSize();
     }
 
     public boolean isDirectory()
     {
-        return getFile().isDirectory();
+        return snapshot ? super.isDirectory() : getFile().isDirectory();
     }
 
     public boolean isExisting()
     {
-        return getFile().exists();
+        return snapshot ? super.isExisting() : getFile().exists();
     }
 
     public boolean isFile()
     {
-        return getFile().isFile();
+        return snapshot ? super.isFile() : getFile().isFile();
     }
 
     @Nonnull public PlexusIoResourceAttributes getAttributes()
@@ -188,6 +310,10 @@ public boolean isFile()
 
     public long getLastModified()
     {
+        if ( snapshot )
+        {
+            return super.getLastModified();
+        }
         if ( Java7Reflector.isAtLeastJava7() )
         {
             return Java7AttributeUtils.getLastModified( getFile() );
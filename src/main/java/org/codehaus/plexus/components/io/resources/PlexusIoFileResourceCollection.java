@@ -16,26 +16,33 @@
  * limitations under the License.
  */
 
+import org.codehaus.plexus.components.io.attributes.AttributeProvider;
 import org.codehaus.plexus.components.io.attributes.Java7FileAttributes;
 import org.codehaus.plexus.components.io.attributes.Java7Reflector;
 import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributeUtils;
 import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+import org.codehaus.plexus.components.io.attributes.PosixAttributeProvider;
+import org.codehaus.plexus.components.io.attributes.PrincipalNameCache;
 import org.codehaus.plexus.components.io.attributes.SimpleResourceAttributes;
-import org.codehaus.plexus.components.io.functions.PlexusIoResourceConsumer;
+import org.codehaus.plexus.components.io.attributes.UnixAttributeProvider;
+import org.codehaus.plexus.components.io.metrics.PlexusIoMetrics;
 import org.codehaus.plexus.util.DirectoryScanner;
 import org.codehaus.plexus.util.StringUtils;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
 
 /**
  * Implementation of {@link PlexusIoResourceCollection} for the set
@@ -53,6 +60,29 @@
 
     private boolean isFollowingSymLinks = true;
 
+    private boolean streaming;
+
+    private boolean parallelScan;
+
+    private int scanParallelism;
+
+    private PrincipalNameCache principalNameCache = PrincipalNameCache.getShared();
+
+    private AttributeProvider[] attributeProviders;
+
+    /**
+     * The provider, which has been chosen for the base directory, or null, if not chosen yet.
+     */
+    private volatile ChosenProvider chosenProvider;
+
+    private File indexFile;
+
+    private ContentDigestCache contentDigestCache;
+
+    private boolean cachingLastModified;
+
+    private CachedWalk lastModifiedCache;
+
     public PlexusIoFileResourceCollection()
     {
     }
@@ -113,6 +143,266 @@ public void setFollowingSymLinks( boolean pIsFollowingSymLinks )
         isFollowingSymLinks = pIsFollowingSymLinks;
     }
 
+    /**
+     * @return Returns, whether {@link #getResources()} walks the base directory lazily.
+     * Defaults to false.
+     */
+    public boolean isStreaming()
+    {
+        return streaming;
+    }
+
+    /**
+     * Sets, whether {@link #getResources()} walks the base directory lazily, instead of
+     * scanning it completely up front. In streaming mode, the returned iterator is
+     * {@link Closeable}, resources are created as they are requested, and a directory is
+     * returned before its contents. Requires java7; older versions always scan up front.
+     * @param streaming true to walk lazily
+     */
+    public void setStreaming( boolean streaming )
+    {
+        this.streaming = streaming;
+    }
+
+    /**
+     * @return Returns, whether {@link #getResources()} scans the base directory with
+     * multiple threads. Defaults to false.
+     */
+    public boolean isParallelScan()
+    {
+        return parallelScan;
+    }
+
+    /**
+     * Sets, whether {@link #getResources()} scans the base directory with a fork/join pool.
+     * Subdirectories are walked, and file attributes are read, concurrently. The resources
+     * are returned in the same order as in streaming mode, regardless of the number of threads.
+     * File selectors and file mappers must be thread safe, if this is enabled. Ignored in
+     * streaming mode. Requires java7; older versions always scan with a single thread.
+     * @param parallelScan true to scan with multiple threads
+     * @see #setScanParallelism(int)
+     */
+    public void setParallelScan( boolean parallelScan )
+    {
+        this.parallelScan = parallelScan;
+    }
+
+    /**
+     * @return Returns the number of threads for parallel scans, or 0 for one thread per processor.
+     */
+    public int getScanParallelism()
+    {
+        return scanParallelism;
+    }
+
+    /**
+     * Sets the number of threads for parallel scans. Every scan uses threads of its own,
+     * which are released, when the scan is complete. Defaults to 0, which means one thread per processor.
+     * @param scanParallelism the number of threads, or 0
+     * @throws IllegalArgumentException The number is negative.
+     * @see #setParallelScan(boolean)
+     */
+    public void setScanParallelism( int scanParallelism )
+    {
+        if ( scanParallelism < 0 )
+        {
+            throw new IllegalArgumentException( "Invalid parallelism: " + scanParallelism );
+        }
+        this.scanParallelism = scanParallelism;
+    }
+
+    /**
+     * @return Returns the cache, which is used to resolve user and group names.
+     */
+    public PrincipalNameCache getPrincipalNameCache()
+    {
+        return principalNameCache;
+    }
+
+    /**
+     * Sets the cache, which is used to resolve user and group names. Defaults to
+     * {@link PrincipalNameCache#getShared()}, so that every name is resolved once per JVM.
+     * @param principalNameCache the cache to use
+     */
+    public void setPrincipalNameCache( PrincipalNameCache principalNameCache )
+    {
+        this.principalNameCache = principalNameCache;
+        chosenProvider = null;
+    }
+
+    /**
+     * @return The providers, which are asked for the attributes of the scanned files, in order.
+     * By default, a {@link UnixAttributeProvider}, which uses the {@link #getPrincipalNameCache()
+     * principal name cache}, and a {@link PosixAttributeProvider}.
+     */
+    @Nonnull
+    public AttributeProvider[] getAttributeProviders()
+    {
+        return attributeProviders != null
+            ? attributeProviders.clone()
+            : new AttributeProvider[]{ new UnixAttributeProvider( getPrincipalNameCache() ),
+                new PosixAttributeProvider() };
+    }
+
+    /**
+     * Sets the providers, which are asked for the attributes of the scanned files, in order. The first
+     * provider, which supports the base directory, is used for all files below it. If none does, the
+     * attributes are read like by a {@link UnixAttributeProvider}, as far as the file system supports it.
+     * Only used on Java 7, or later.
+     * @param attributeProviders The providers, or null for the defaults.
+     */
+    public void setAttributeProviders( AttributeProvider[] attributeProviders )
+    {
+        this.attributeProviders = attributeProviders == null ? null : attributeProviders.clone();
+        chosenProvider = null;
+    }
+
+    /**
+     * Returns the first provider, which supports the base directory, or the given file,
+     * if there is no base directory.
+     */
+    @Nullable
+    private AttributeProvider getAttributeProvider( @Nonnull File f )
+    {
+        final File dir = getBaseDir();
+        ChosenProvider chosen = chosenProvider;
+        if ( chosen == null || dir == null || !dir.equals( chosen.baseDir ) )
+        {
+            chosen = new ChosenProvider( dir, null );
+            for ( AttributeProvider provider : getAttributeProviders() )
+            {
+                if ( provider.isSupported( dir == null ? f : dir ) )
+                {
+                    chosen = new ChosenProvider( dir, provider );
+                    break;
+                }
+            }
+            chosenProvider = chosen;
+        }
+        return chosen.provider;
+    }
+
+    private static class ChosenProvider
+    {
+        final File baseDir;
+
+        final AttributeProvider provider;
+
+        ChosenProvider( File baseDir, AttributeProvider provider )
+        {
+            this.baseDir = baseDir;
+            this.provider = provider;
+        }
+    }
+
+    /**
+     * @return Returns the index file of incremental scans, or null, if every scan is a full scan.
+     */
+    public File getIndexFile()
+    {
+        return indexFile;
+    }
+
+    /**
+     * Sets the index file, which enables incremental scans. A successful {@link #scanChanges()} records
+     * the state of the base directory in the index file. Later scans, including {@link #getResources()},
+     * list only the directories, which have changed since, and read the attributes only of the files,
+     * which have changed since. {@link #getResources()} doesn't modify the index file. The resources are
+     * returned in the same order as in streaming mode. Requires java7; ignored on older versions.
+     * @param indexFile the index file, or null to disable incremental scans
+     * @see #scanChanges()
+     */
+    public void setIndexFile( File indexFile )
+    {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * @return Returns the persistent cache of content digests, or null.
+     */
+    public ContentDigestCache getContentDigestCache()
+    {
+        return contentDigestCache;
+    }
+
+    /**
+     * Sets a persistent cache of content digests. The digests of untransformed files are taken from
+     * the cache, as long as the files size, modification time, and file key are unchanged, and
+     * digests, which are computed, are added to it. The caller must {@link ContentDigestCache#save() save}
+     * the cache. Requires java7; ignored on older versions.
+     * @param contentDigestCache The cache, or null.
+     * @see #setContentDigestAlgorithm(String)
+     */
+    public void setContentDigestCache( ContentDigestCache contentDigestCache )
+    {
+        this.contentDigestCache = contentDigestCache;
+    }
+
+    /**
+     * Scans the base directory incrementally, and returns, how the selected resources differ
+     * from the previous scan. The state of the base directory is recorded in the index file, once the
+     * scan is complete.
+     * @return The selected resources, and the changes.
+     * @throws IllegalStateException No index file has been set.
+     * @see #setIndexFile(File)
+     */
+    public ScanChanges scanChanges()
+        throws IOException
+    {
+        return scanChanges( true );
+    }
+
+    /**
+     * Like {@link #scanChanges()}, but the index file is updated only, when the caller
+     * {@link ScanChanges#commit() commits} the changes, typically after processing them successfully.
+     * Until then, further scans report the changes since the previous committed scan.
+     * @param commit True to update the index file now, false to leave that to the caller.
+     * @return The selected resources, and the changes.
+     * @throws IllegalStateException No index file has been set.
+     */
+    public ScanChanges scanChanges( boolean commit )
+        throws IOException
+    {
+        if ( indexFile == null )
+        {
+            throw new IllegalStateException( "No index file has been set." );
+        }
+        final PlexusIoMetrics metrics = getMetrics();
+        final long start = metrics == null ? 0 : System.nanoTime();
+        final ScanChanges changes = IncrementalFileResourceScanner.scan( this, ScanPatterns.from( this ), indexFile );
+        if ( metrics != null )
+        {
+            metrics.directoryScanned( getBaseDir(), changes.getResources().size(), System.nanoTime() - start );
+        }
+        if ( commit )
+        {
+            changes.commit();
+        }
+        return changes;
+    }
+
+    /**
+     * @return Returns, whether {@link #getLastModified()}, and {@link #isNewerThan(long)}
+     * remember their result until the next scan. Defaults to false.
+     */
+    public boolean isCachingLastModified()
+    {
+        return cachingLastModified;
+    }
+
+    /**
+     * Sets, whether {@link #getLastModified()}, and {@link #isNewerThan(long)} remember the result of a
+     * complete walk, until {@link #getResources()} is invoked again, or the configuration (base directory,
+     * patterns, mappers, and so on) changes. Useful for repeated uptodate checks against a directory,
+     * which doesn't change meanwhile.
+     * @param cachingLastModified true to cache the last modification time
+     */
+    public void setCachingLastModified( boolean cachingLastModified )
+    {
+        this.cachingLastModified = cachingLastModified;
+        lastModifiedCache = null;
+    }
+
     public void setDefaultAttributes( final int uid, final String userName, final int gid, final String groupName,
                                       final int fileMode, final int dirMode )
     {
@@ -169,9 +459,14 @@ private void addResources( List<PlexusIoResource> result, String[] resources,
 
             String remappedName = getName( name );
 
-            PlexusIoResource resource = ResourceFactory.createResource( f, remappedName, null, getStreamTransformer(), attrs );
+            // Select before transforming, so that no transformer runs for a resource, which isn't selected
+            PlexusIoResource resource = ResourceFactory.createResource( f, remappedName, null, null, attrs );
             if ( isSelected( resource ) )
             {
+                if ( getStreamTransformer() != identityTransformer )
+                {
+                    resource = ResourceFactory.createResource( f, remappedName, null, getStreamTransformer(), attrs );
+                }
                 result.add( resolve(resource) );
             }
         }
@@ -181,84 +476,222 @@ private void addResources( List<PlexusIoResource> result, String[] resources,
     private void addResourcesJava7( List<PlexusIoResource> result, String[] resources )
         throws IOException
     {
-
-        final File dir = getBaseDir();
-        final HashMap<Integer, String> cache1 = new HashMap<Integer, String>();
-        final HashMap<Integer, String> cache2 = new HashMap<Integer, String>();
         for ( String name : resources )
         {
-            String sourceDir = name.replace( '\\', '/' );
-            File f = new File( dir, sourceDir );
+            PlexusIoResource resource = createResource( name );
+            if ( resource != null )
+            {
+                result.add( resource );
+            }
+        }
+    }
 
-            PlexusIoResourceAttributes attrs = new Java7FileAttributes( f, cache1, cache2 );
-            attrs = mergeAttributes( attrs, f.isDirectory() );
+    /**
+     * Creates the resource for a name relative to the base directory.
+     * @return The resource, or null, if it isn't selected.
+     */
+    PlexusIoResource createResource( String name )
+        throws IOException
+    {
+        return createResource( name, null );
+    }
 
-            String remappedName = getName( name );
+    /**
+     * Creates the resource for a name relative to the base directory. The file selectors
+     * see the untransformed resource; the stream transformer runs for selected resources only.
+     * @param fileAttrs The files attributes, or null to read them.
+     * @return The resource, or null, if it isn't selected.
+     */
+    PlexusIoResource createResource( String name, Java7FileAttributes fileAttrs )
+        throws IOException
+    {
+        String sourceDir = name.replace( '\\', '/' );
+        File f = new File( getBaseDir(), sourceDir );
 
-            PlexusIoResource resource = ResourceFactory.createResource( f, remappedName, null, getStreamTransformer(), attrs );
+        final PlexusIoMetrics metrics = getMetrics();
+        if ( fileAttrs == null )
+        {
+            fileAttrs = readAttributes( f );
+            if ( fileAttrs == null )
+            {
+                throw new NoSuchFileException( f.getPath() );
+            }
+        }
+        PlexusIoResourceAttributes attrs =
+            mergeAttributes( fileAttrs.getCompactAttributes(), fileAttrs.isDirectory() );
 
-            if ( isSelected( resource ) )
+        String remappedName = getName( name );
+
+        ContentDigest digest = null;
+        final boolean untransformed = getStreamTransformer() == identityTransformer;
+        if ( fileAttrs.isRegularFile() && ( getContentDigestAlgorithm() != null || contentDigestCache != null ) )
+        {
+            digest = new ContentDigest( getContentDigestAlgorithm(), contentDigestCache, untransformed ? f : null );
+        }
+
+        PlexusIoResource resource =
+            ResourceFactory.createResource( f, remappedName, null, null, attrs, fileAttrs, isTransformOnRead(),
+                                            getBufferingPolicy(), getSpillManager(), untransformed ? digest : null,
+                                            metrics );
+        if ( !isSelected( resource ) )
+        {
+            return null;
+        }
+        if ( untransformed || !fileAttrs.isRegularFile() || fileAttrs.isSymbolicLink() )
+        {
+            return resource;
+        }
+
+        final boolean timed = metrics != null && !isTransformOnRead();
+        final long start = timed ? System.nanoTime() : 0;
+        resource = ResourceFactory.createResource( f, remappedName, null, getStreamTransformer(), attrs, fileAttrs,
+                                                   isTransformOnRead(), getBufferingPolicy(), getSpillManager(),
+                                                   digest, metrics );
+        if ( timed )
+        {
+            metrics.contentsTransformed( remappedName, fileAttrs.getSize(), resource.getSize(),
+                                         ( (PlexusIoFileResource) resource ).isSpilled(), System.nanoTime() - start );
+        }
+        return resource;
+    }
+
+    /**
+     * Reads the attributes of a file, which a walker has found, so that the walker can tell
+     * files from directories, and pass the attributes on to {@link #createResource(String, Java7FileAttributes)}
+     * without reading them again. The attributes are read by the {@link #setAttributeProviders(AttributeProvider[])
+     * attribute provider}.
+     * @return The attributes, or null, if the file doesn't exist anymore.
+     */
+    Java7FileAttributes readAttributes( @Nonnull File f )
+        throws IOException
+    {
+        final PlexusIoMetrics metrics = getMetrics();
+        final long start = metrics == null ? 0 : System.nanoTime();
+        final Java7FileAttributes fileAttrs;
+        try
+        {
+            final AttributeProvider provider = getAttributeProvider( f );
+            final PlexusIoResourceAttributes attrs = provider == null ? null : provider.getAttributes( f );
+            if ( attrs == null )
             {
-                result.add( resource );
+                fileAttrs = new Java7FileAttributes( f, getPrincipalNameCache() );
+            }
+            else if ( attrs instanceof Java7FileAttributes )
+            {
+                fileAttrs = (Java7FileAttributes) attrs;
+            }
+            else
+            {
+                fileAttrs = withFileState( attrs, f );
+            }
+        }
+        catch ( NoSuchFileException e )
+        {
+            return null;
+        }
+        if ( metrics != null )
+        {
+            metrics.attributesRead( f, System.nanoTime() - start );
+        }
+        return fileAttrs;
+    }
+
+    /**
+     * Adds the file state (type, size, last modification time) to attributes, which a provider has read
+     * without it. Like <code>java.io.File</code>, the file state of a symbolic link is that of its target.
+     */
+    private static Java7FileAttributes withFileState( @Nonnull PlexusIoResourceAttributes attrs, @Nonnull File f )
+        throws IOException
+    {
+        BasicFileAttributes state = null;
+        try
+        {
+            state = Files.readAttributes( f.toPath(), BasicFileAttributes.class );
+        }
+        catch ( NoSuchFileException e )
+        {
+            if ( !attrs.isSymbolicLink() )
+            {
+                throw e;
             }
+            // Dangling symbolic link
         }
+        return new Java7FileAttributes( attrs.getUserId(), attrs.getUserName(), attrs.getGroupId(),
+                                        attrs.getGroupName(), attrs.getOctalMode(), attrs.isSymbolicLink(),
+                                        state != null, state != null && state.isDirectory(),
+                                        state != null && state.isRegularFile(), state == null ? 0 : state.size(),
+                                        state == null ? 0 : state.lastModifiedTime().toMillis() );
+    }
+
+    /**
+     * Returns, whether a walker must descend into the given directory, because the patterns,
+     * and the file selectors might select something below it. The selectors are only asked,
+     * if there are no file mappers, because a mapped directory name says nothing about the names below.
+     * @param dirName The directories name relative to the base directory.
+     */
+    boolean isDescending( @Nonnull ScanPatterns patterns, @Nonnull String dirName )
+    {
+        return patterns.couldHoldIncluded( dirName ) && ( getFileMappers() != null
+            || couldSelectBelow( getName( dirName ) ) );
     }
 
     public Stream stream()
     {
-        return new Stream()
+        return new AbstractStream()
         {
-            public void forEach( PlexusIoResourceConsumer resourceConsumer )
+            protected Iterator<PlexusIoResource> resources()
                 throws IOException
             {
-                Iterator<PlexusIoResource> resources = getResources();
-                while ( resources.hasNext() )
-                {
-                    PlexusIoResource next = resources.next();
-                    if ( isSelected( next ) )
-                    {
-                        resourceConsumer.accept( next );
-                    }
-                }
-                if ( resources instanceof Closeable )
-                {
-                    ( (Closeable) resources ).close();
-                }
-
+                return getResources();
             }
 
-            public void forEach( ExecutorService es, final PlexusIoResourceConsumer resourceConsumer )
+            protected boolean isIncluded( PlexusIoResource resource )
                 throws IOException
             {
-                Iterator<PlexusIoResource> resources = getResources();
-                while ( resources.hasNext() )
-                {
-                    final PlexusIoResource next = resources.next();
-                    Callable future = new Callable()
-                    {
-                        public Object call()
-                            throws Exception
-                        {
-                            resourceConsumer.accept( next );
-                            return this;
-                        }
-                    };
-                    es.submit( future );
-                }
-                if ( resources instanceof Closeable )
-                {
-                    ( (Closeable) resources ).close();
-                }
-
+                return isSelected( resource );
             }
         };
-
     }
 
     public Iterator<PlexusIoResource> getResources()
         throws IOException
     {
-        final DirectoryScanner ds = new DirectoryScanner();
+        lastModifiedCache = null;
+        if ( getIndexFile() != null && Java7Reflector.isAtLeastJava7() )
+        {
+            return scanChanges( false ).getResources().iterator();
+        }
+        if ( isStreaming() && Java7Reflector.isAtLeastJava7() )
+        {
+            return new StreamingFileResourceIterator( this, ScanPatterns.from( this ) );
+        }
+        if ( isParallelScan() && Java7Reflector.isAtLeastJava7() )
+        {
+            final PlexusIoMetrics metrics = getMetrics();
+            final long start = metrics == null ? 0 : System.nanoTime();
+            final List<PlexusIoResource> resources =
+                ParallelFileResourceScanner.scan( this, ScanPatterns.from( this ), getScanParallelism() );
+            if ( metrics != null )
+            {
+                metrics.directoryScanned( getBaseDir(), resources.size(), System.nanoTime() - start );
+            }
+            return resources.iterator();
+        }
+
+        final ScanPatterns patterns = ScanPatterns.from( this );
+        final DirectoryScanner ds = new DirectoryScanner()
+        {
+            @Override
+            protected void scandir( File dir, String vpath, boolean fast )
+            {
+                // The directory itself has been selected (or not) by the caller, skip its contents only.
+                // The scanner would walk excluded directories otherwise.
+                if ( vpath.length() == 0 || isDescending( patterns, vpath.substring( 0, vpath.length() - 1 ) ) )
+                {
+                    super.scandir( dir, vpath, fast );
+                }
+            }
+        };
         final File dir = getBaseDir();
         ds.setBasedir( dir );
         final String[] inc = getIncludes();
@@ -277,7 +710,15 @@ public Iterator<PlexusIoResource> getResources()
         }
         ds.setCaseSensitive( isCaseSensitive() );
         ds.setFollowSymlinks( isFollowingSymLinks() );
+        final PlexusIoMetrics metrics = getMetrics();
+        final long start = metrics == null ? 0 : System.nanoTime();
         ds.scan();
+        if ( metrics != null )
+        {
+            final int count = ds.getIncludedFiles().length
+                + ( isIncludingEmptyDirectories() ? ds.getIncludedDirectories().length : 0 );
+            metrics.directoryScanned( dir, count, System.nanoTime() - start );
+        }
 
         if ( Java7Reflector.isAtLeastJava7() )
         {
@@ -294,8 +735,13 @@ public Iterator<PlexusIoResource> getResources()
         }
         else
         {
+            final long attributesStart = metrics == null ? 0 : System.nanoTime();
             Map<String, PlexusIoResourceAttributes> attributesByPath =
                 PlexusIoResourceAttributeUtils.getFileAttributesByPath( getBaseDir() );
+            if ( metrics != null )
+            {
+                metrics.attributesRead( getBaseDir(), System.nanoTime() - attributesStart );
+            }
 
             final List<PlexusIoResource> result = new ArrayList<PlexusIoResource>();
             if ( isIncludingEmptyDirectories() )
@@ -310,6 +756,89 @@ public Iterator<PlexusIoResource> getResources()
         }
     }
 
+    /**
+     * Returns the modification time of the file, which has been modified at last. Unless file selectors
+     * are configured, the base directory is walked without creating resources, or reading more than the
+     * files basic attributes.
+     */
+    @Override
+    public long getLastModified()
+        throws IOException
+    {
+        final LastModifiedWalker walker = walkLastModified( Long.MAX_VALUE );
+        return walker == null ? super.getLastModified() : walker.getLastModified();
+    }
+
+    /**
+     * Like {@link #getLastModified()}, but the walk stops at the first file, which has been modified
+     * after the given time.
+     */
+    @Override
+    public boolean isNewerThan( long timestamp )
+        throws IOException
+    {
+        final LastModifiedWalker walker = walkLastModified( timestamp );
+        return walker == null ? super.isNewerThan( timestamp ) : walker.isNewerThan( timestamp );
+    }
+
+    /**
+     * @return The (possibly cached) result of a walk, or null, if the resources must be created
+     * to apply the file selectors.
+     */
+    private LastModifiedWalker walkLastModified( long threshold )
+        throws IOException
+    {
+        if ( getFileSelectors() != null || !Java7Reflector.isAtLeastJava7() )
+        {
+            return null;
+        }
+        final List<Object> configuration = getWalkConfiguration();
+        final CachedWalk cached = lastModifiedCache;
+        if ( cached != null && cached.configuration.equals( configuration ) )
+        {
+            return cached.walker;
+        }
+        final LastModifiedWalker walker = LastModifiedWalker.walk( this, ScanPatterns.from( this ), threshold );
+        if ( isCachingLastModified() && ( walker.isComplete() || walker.getLastModified()
+            == PlexusIoResource.UNKNOWN_MODIFICATION_DATE ) )
+        {
+            lastModifiedCache = new CachedWalk( configuration, walker );
+        }
+        return walker;
+    }
+
+    /**
+     * Returns the settings, which affect the result of a {@link LastModifiedWalker}. A cached walk
+     * is valid only, as long as they are equal.
+     */
+    private List<Object> getWalkConfiguration()
+    {
+        return Arrays.<Object>asList( getBaseDir(), copy( getIncludes() ), copy( getExcludes() ),
+                                      isUsingDefaultExcludes(), isCaseSensitive(), copy( getFileMappers() ),
+                                      isIncludingEmptyDirectories(), isFollowingSymLinks() );
+    }
+
+    private static List<Object> copy( Object[] array )
+    {
+        return array == null ? null : new ArrayList<Object>( Arrays.asList( array ) );
+    }
+
+    /**
+     * The result of a walk, and the configuration, which it is valid for.
+     */
+    private static class CachedWalk
+    {
+        final List<Object> configuration;
+
+        final LastModifiedWalker walker;
+
+        CachedWalk( List<Object> configuration, LastModifiedWalker walker )
+        {
+            this.configuration = configuration;
+            this.walker = walker;
+        }
+    }
+
     public boolean isConcurrentAccessSupported() {
 	return true;
     }
@@ -1,10 +1,13 @@
 package org.codehaus.plexus.components.io.resources;
 
+import org.codehaus.plexus.components.io.attributes.Java7FileAttributes;
 import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
 import org.codehaus.plexus.components.io.attributes.SymlinkUtils;
 import org.codehaus.plexus.components.io.functions.SymlinkDestinationSupplier;
+import org.codehaus.plexus.components.io.metrics.PlexusIoMetrics;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 
@@ -21,6 +24,15 @@
         this.symnlinkDestination = null;
     }
 
+    PlexusIoSymlinkResource( @Nonnull File symlinkfile, String name, @Nonnull PlexusIoResourceAttributes attrs,
+                             @Nonnull Java7FileAttributes fileAttrs, @Nullable PlexusIoMetrics metrics )
+        throws IOException
+    {
+        super( symlinkfile, name, attrs, fileAttrs, null, null, false, BufferingPolicy.getDefault(), null, null,
+               metrics );
+        this.symnlinkDestination = null;
+    }
+
     public String getSymlinkDestination()
         throws IOException
     {
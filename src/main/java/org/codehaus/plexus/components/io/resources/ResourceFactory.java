@@ -1,12 +1,17 @@
 package org.codehaus.plexus.components.io.resources;
 
+import org.codehaus.plexus.components.io.attributes.AttributeProvider;
+import org.codehaus.plexus.components.io.attributes.Java7FileAttributes;
+import org.codehaus.plexus.components.io.attributes.Java7Reflector;
 import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
 import org.codehaus.plexus.components.io.functions.ContentSupplier;
 import org.codehaus.plexus.components.io.functions.InputStreamTransformer;
+import org.codehaus.plexus.components.io.metrics.PlexusIoMetrics;
 
 import java.io.File;
 import java.io.IOException;
 
+import static org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributeUtils.getAttributeProvider;
 import static org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributeUtils.getFileAttributes;
 import static org.codehaus.plexus.components.io.resources.PlexusIoFileResource.getName;
 
@@ -18,13 +23,13 @@
     public static PlexusIoResource createResource( File f )
         throws IOException
     {
-        return createResource( f, getName( f ), null, null, getFileAttributes( f )  );
+        return createFromFile( f, getName( f ), null, null );
     }
 
     public static PlexusIoResource createResource( File f, String name )
         throws IOException
     {
-        return createResource( f, name, null, null, getFileAttributes( f ) );
+        return createFromFile( f, name, null, null );
     }
 
     public static PlexusIoResource createResource( File f, String name, final ContentSupplier contentSupplier,
@@ -37,14 +42,14 @@ public static PlexusIoResource createResource( File f, String name, final Conten
     public static PlexusIoResource createResource( File f, InputStreamTransformer inputStreamTransformer )
         throws IOException
     {
-        return createResource( f, getName( f ), null, inputStreamTransformer, getFileAttributes( f ) );
+        return createFromFile( f, getName( f ), null, inputStreamTransformer );
     }
 
     public static PlexusIoResource createResource( File f, String name,  final ContentSupplier contentSupplier,
                                                    InputStreamTransformer inputStreamTransformer  )
         throws IOException
     {
-        return createResource( f, name, contentSupplier, inputStreamTransformer, getFileAttributes( f ) );
+        return createFromFile( f, name, contentSupplier, inputStreamTransformer );
     }
 
     public static PlexusIoResource createResource( File f, String name, final ContentSupplier contentSupplier,
@@ -57,4 +62,52 @@ public static PlexusIoResource createResource( File f, String name, final Conten
             :  new PlexusIoFileResource(f, name, attributes, contentSupplier, inputStreamTransformer);
     }
 
+    /**
+     * Reads the attributes of the given file once. If they include the file state, the resource
+     * takes its size, type, and last modification time from there, instead of asking the file system again.
+     */
+    private static PlexusIoResource createFromFile( File f, String name, ContentSupplier contentSupplier,
+                                                    InputStreamTransformer inputStreamTransformer )
+        throws IOException
+    {
+        if ( Java7Reflector.isAtLeastJava7() )
+        {
+            AttributeProvider provider = getAttributeProvider( f );
+            PlexusIoResourceAttributes attributes =
+                provider != null ? provider.getAttributes( f ) : Java7FileAttributes.uncached( f );
+            if ( attributes instanceof Java7FileAttributes )
+            {
+                Java7FileAttributes fileAttributes = (Java7FileAttributes) attributes;
+                return createResource( f, name, contentSupplier, inputStreamTransformer,
+                                       fileAttributes.getCompactAttributes(), fileAttributes, false,
+                                       BufferingPolicy.getDefault(), null, null, null );
+            }
+            return createResource( f, name, contentSupplier, inputStreamTransformer, attributes );
+        }
+        return createResource( f, name, contentSupplier, inputStreamTransformer, getFileAttributes( f ) );
+    }
+
+    /**
+     * Creates a resource, which takes its file state (size, type, last modification time)
+     * from the given file attributes, so that no further file system calls are made.
+     * @param transformOnRead Whether the transformer runs, whenever the contents are read,
+     *   rather than once, when the resource is created.
+     * @param bufferingPolicy Controls the buffering of the transformed contents, unless transforming on read.
+     * @param spills Tracks the temporary files of spilled contents, or null.
+     * @param digest Computes the digest of the contents, while they are read, or null.
+     * @param metrics Receives the reads of the contents, or null.
+     */
+    static PlexusIoResource createResource( File f, String name, final ContentSupplier contentSupplier,
+                                            InputStreamTransformer inputStreamTransformer,
+                                            PlexusIoResourceAttributes attributes, Java7FileAttributes fileAttributes,
+                                            boolean transformOnRead, BufferingPolicy bufferingPolicy,
+                                            SpillManager spills, ContentDigest digest, PlexusIoMetrics metrics )
+        throws IOException
+    {
+        boolean symbolicLink = attributes.isSymbolicLink();
+        return symbolicLink ? new PlexusIoSymlinkResource( f, name, attributes, fileAttributes, metrics )
+            :  new PlexusIoFileResource(f, name, attributes, fileAttributes, contentSupplier, inputStreamTransformer,
+                                        transformOnRead, bufferingPolicy, spills, digest, metrics );
+    }
+
 }
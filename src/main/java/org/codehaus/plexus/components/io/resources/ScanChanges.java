@@ -0,0 +1,141 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of an incremental scan of a {@link PlexusIoFileResourceCollection}: The selected
+ * resources, and how they differ from the previous scan, which has been recorded in the index file.
+ * The index file is updated, when the changes are {@link #commit() committed}, so that the next
+ * scan reports the changes since this one.
+ * @see PlexusIoFileResourceCollection#setIndexFile(java.io.File)
+ */
+public class ScanChanges
+{
+    private final List<PlexusIoResource> resources = new ArrayList<PlexusIoResource>();
+
+    private final List<PlexusIoResource> added = new ArrayList<PlexusIoResource>();
+
+    private final List<PlexusIoResource> modified = new ArrayList<PlexusIoResource>();
+
+    private final List<PlexusIoResource> unchanged = new ArrayList<PlexusIoResource>();
+
+    private final List<String> removed = new ArrayList<String>();
+
+    private FileScanIndex index;
+
+    private File indexFile;
+
+    private File baseDir;
+
+    void setIndex( @Nonnull FileScanIndex index, @Nonnull File indexFile, @Nonnull File baseDir )
+    {
+        this.index = index;
+        this.indexFile = indexFile;
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * Records the scanned state in the index file, so that the next scan reports the changes since
+     * this scan. Without a commit, the next scan reports the changes since the last committed scan again,
+     * for example, if processing the changes has failed. Subsequent invocations do nothing.
+     * @throws IOException Writing the index file failed.
+     */
+    public synchronized void commit()
+        throws IOException
+    {
+        if ( index != null )
+        {
+            index.write( indexFile, baseDir );
+            index = null;
+        }
+    }
+
+    void addAdded( @Nonnull PlexusIoResource resource )
+    {
+        resources.add( resource );
+        added.add( resource );
+    }
+
+    void addModified( @Nonnull PlexusIoResource resource )
+    {
+        resources.add( resource );
+        modified.add( resource );
+    }
+
+    void addUnchanged( @Nonnull PlexusIoResource resource )
+    {
+        resources.add( resource );
+        unchanged.add( resource );
+    }
+
+    void addRemoved( @Nonnull String name )
+    {
+        removed.add( name );
+    }
+
+    /**
+     * @return All selected resources, in the order of {@link PlexusIoFileResourceCollection#getResources()}.
+     */
+    @Nonnull
+    public List<PlexusIoResource> getResources()
+    {
+        return Collections.unmodifiableList( resources );
+    }
+
+    /**
+     * @return The resources, which didn't exist at the time of the previous scan.
+     */
+    @Nonnull
+    public List<PlexusIoResource> getAdded()
+    {
+        return Collections.unmodifiableList( added );
+    }
+
+    /**
+     * @return The resources, whose size, modification time, or attributes have changed since the previous scan.
+     */
+    @Nonnull
+    public List<PlexusIoResource> getModified()
+    {
+        return Collections.unmodifiableList( modified );
+    }
+
+    /**
+     * @return The resources, which haven't changed since the previous scan.
+     */
+    @Nonnull
+    public List<PlexusIoResource> getUnchanged()
+    {
+        return Collections.unmodifiableList( unchanged );
+    }
+
+    /**
+     * @return The names of the resources, which have been found by the previous scan, but don't exist anymore.
+     */
+    @Nonnull
+    public List<String> getRemoved()
+    {
+        return Collections.unmodifiableList( removed );
+    }
+}
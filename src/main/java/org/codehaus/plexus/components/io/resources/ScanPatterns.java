@@ -0,0 +1,115 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.fileselectors.CompiledPatterns;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+
+/**
+ * The include/exclude patterns of a file collection, normalized the same way
+ * {@link DirectoryScanner} does it, so that walkers other than the scanner select
+ * exactly the same names. Names are relative to the base directory and use
+ * {@link File#separatorChar}.
+ */
+class ScanPatterns
+{
+    private static final String REGEX_HANDLER_PREFIX = "%regex[";
+
+    private final CompiledPatterns includes;
+
+    private final CompiledPatterns excludes;
+
+    ScanPatterns( @Nullable String[] includes, @Nullable String[] excludes, boolean useDefaultExcludes,
+                  boolean caseSensitive )
+    {
+        this.includes = CompiledPatterns.compile( includes == null || includes.length == 0
+                                                      ? new String[]{ "**" }
+                                                      : normalize( includes ), caseSensitive );
+        String[] allExcludes = excludes == null ? new String[0] : normalize( excludes );
+        if ( useDefaultExcludes )
+        {
+            final String[] defaults = DirectoryScanner.DEFAULTEXCLUDES;
+            String[] temp = new String[allExcludes.length + defaults.length];
+            System.arraycopy( allExcludes, 0, temp, 0, allExcludes.length );
+            for ( int i = 0; i < defaults.length; i++ )
+            {
+                temp[allExcludes.length + i] = defaults[i].replace( '/', File.separatorChar );
+            }
+            allExcludes = temp;
+        }
+        this.excludes = CompiledPatterns.compile( allExcludes, caseSensitive );
+    }
+
+    static ScanPatterns from( @Nonnull AbstractPlexusIoResourceCollection collection )
+    {
+        return new ScanPatterns( collection.getIncludes(), collection.getExcludes(),
+                                 collection.isUsingDefaultExcludes(), collection.isCaseSensitive() );
+    }
+
+    /**
+     * Returns, whether the given name matches an include pattern, and no exclude pattern.
+     */
+    boolean isIncluded( @Nonnull String name )
+    {
+        return includes.matches( name ) && !excludes.matches( name );
+    }
+
+    /**
+     * Returns, whether names below the given directory might be included. That is not the case, if
+     * no include pattern can match below the directory, or an exclude pattern matches everything below it.
+     */
+    boolean couldHoldIncluded( @Nonnull String dirName )
+    {
+        return includes.couldMatchBelow( dirName ) && !excludes.matchesAllBelow( dirName );
+    }
+
+    private static String[] normalize( @Nonnull String[] patterns )
+    {
+        String[] result = new String[patterns.length];
+        for ( int i = 0; i < patterns.length; i++ )
+        {
+            result[i] = normalize( patterns[i] );
+        }
+        return result;
+    }
+
+    private static String normalize( @Nonnull String pPattern )
+    {
+        String pattern = pPattern.trim();
+
+        if ( pattern.startsWith( REGEX_HANDLER_PREFIX ) )
+        {
+            if ( File.separatorChar == '\\' )
+            {
+                return StringUtils.replace( pattern, "/", "\\\\" );
+            }
+            return StringUtils.replace( pattern, "\\\\", "/" );
+        }
+
+        pattern = pattern.replace( File.separatorChar == '/' ? '\\' : '/', File.separatorChar );
+        if ( pattern.endsWith( File.separator ) )
+        {
+            pattern += "**";
+        }
+        return pattern;
+    }
+}
@@ -0,0 +1,285 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A scope for the buffers of transformed contents, which a caller may configure on a collection
+ * (see {@link AbstractPlexusIoResourceCollection#setSpillManager(SpillManager)}). Without a manager,
+ * contents, which have been spilled to a temporary file, are read once, and the file is deleted,
+ * when the stream is closed. With a manager, spilled contents may be read any number of times, and
+ * remain on disk, until the manager is closed.
+ * <p>
+ * Closing the manager discards every buffer, which is still held by its resources: The memory
+ * is returned to the budget of the {@link BufferingPolicy}, references to shared buffers are released,
+ * and the temporary files are deleted. The files, which are still tracked, when the JVM exits, are
+ * deleted by a shutdown hook; there is one hook per manager, while it has files. Without a manager,
+ * a temporary file is deleted, once it has been read, or its resource has become unreachable.
+ * The manager provides the number of spilled files, and bytes, too.
+ * <p>
+ * A closed manager may be used again; it tracks the buffers, which are created afterwards.
+ * Instances are thread safe.
+ * @see AbstractPlexusIoResourceCollection#close()
+ */
+public class SpillManager
+    implements Closeable
+{
+    private static final String PREFIX = "p-archiver";
+
+    /**
+     * Keeps the temporary files without a manager, which couldn't be deleted right away.
+     */
+    private static final SpillManager UNMANAGED = new SpillManager();
+
+    private final ConcurrentMap<File, Long> files = new ConcurrentHashMap<File, Long>();
+
+    private final ConcurrentMap<Discardable, Boolean> buffers = new ConcurrentHashMap<Discardable, Boolean>();
+
+    private final AtomicLong spilledBytes = new AtomicLong();
+
+    private final AtomicInteger spillCount = new AtomicInteger();
+
+    /**
+     * The files, which couldn't be deleted yet, because they are still mapped (on Windows).
+     */
+    private final ConcurrentMap<File, Boolean> undeleted = new ConcurrentHashMap<File, Boolean>();
+
+    /**
+     * Deletes the tracked files on exit of the JVM, or null, if not registered.
+     */
+    private Thread shutdownHook;
+
+    /**
+     * Creates a new temporary file. The caller is responsible for deleting it.
+     * @param directory The directory, or null for the systems temporary directory.
+     */
+    @Nonnull
+    static File createTempFile( @Nullable File directory )
+        throws IOException
+    {
+        return File.createTempFile( PREFIX, null, directory );
+    }
+
+    /**
+     * Deletes a temporary file, which no manager tracks. If the file can't be deleted yet, it is
+     * deleted later, like the files of a manager.
+     */
+    static void deleteTempFile( @Nonnull File file )
+    {
+        UNMANAGED.retryDeletes();
+        if ( !deleteFile( file ) )
+        {
+            UNMANAGED.files.put( file, 0L );
+            UNMANAGED.undeleted.put( file, Boolean.TRUE );
+            UNMANAGED.registerShutdownHook();
+        }
+    }
+
+    /**
+     * Deletes the given file, if possible. A mapped, or open file may not be deletable, before the
+     * mapping is garbage collected, or the file closed (on Windows).
+     * @return True, if the file doesn't exist anymore.
+     */
+    private static boolean deleteFile( @Nonnull File file )
+    {
+        return file.delete() || !file.exists();
+    }
+
+    /**
+     * Creates, and tracks a new temporary file.
+     * @param directory The directory, or null for the systems temporary directory.
+     */
+    @Nonnull
+    File createFile( @Nullable File directory )
+        throws IOException
+    {
+        final File file = createTempFile( directory );
+        files.put( file, 0L );
+        spillCount.incrementAndGet();
+        registerShutdownHook();
+        return file;
+    }
+
+    /**
+     * Records the number of bytes, which have been written to the given file.
+     */
+    void spilled( @Nonnull File file, long bytes )
+    {
+        if ( files.replace( file, bytes ) != null )
+        {
+            spilledBytes.addAndGet( bytes );
+        }
+    }
+
+    /**
+     * Deletes the given file, and stops tracking it. If the file can't be deleted yet, the manager
+     * tries again, when it is closed, and on exit.
+     */
+    void delete( @Nonnull File file )
+    {
+        if ( deleteFile( file ) )
+        {
+            files.remove( file );
+        }
+        else
+        {
+            undeleted.put( file, Boolean.TRUE );
+        }
+    }
+
+    private synchronized void registerShutdownHook()
+    {
+        if ( shutdownHook != null )
+        {
+            return;
+        }
+        final Thread hook = new Thread( "SpillManager cleanup" )
+        {
+            @Override
+            public void run()
+            {
+                for ( File file : files.keySet() )
+                {
+                    deleteFile( file );
+                }
+            }
+        };
+        try
+        {
+            Runtime.getRuntime().addShutdownHook( hook );
+            shutdownHook = hook;
+        }
+        catch ( IllegalStateException e )
+        {
+            // The JVM is shutting down already
+        }
+    }
+
+    private synchronized void removeShutdownHook()
+    {
+        if ( shutdownHook == null || !files.isEmpty() )
+        {
+            return;
+        }
+        try
+        {
+            Runtime.getRuntime().removeShutdownHook( shutdownHook );
+        }
+        catch ( IllegalStateException e )
+        {
+            // The JVM is shutting down already, and runs the hook
+        }
+        shutdownHook = null;
+    }
+
+    /**
+     * Tracks a buffer, or a reference to a shared buffer, which is discarded, when the manager is closed.
+     */
+    void track( @Nonnull Discardable buffer )
+    {
+        buffers.put( buffer, Boolean.TRUE );
+    }
+
+    /**
+     * Stops tracking a buffer, which has been discarded.
+     */
+    void untrack( @Nonnull Discardable buffer )
+    {
+        buffers.remove( buffer );
+    }
+
+    /**
+     * @return The number of temporary files, which currently exist.
+     */
+    public int getSpillFileCount()
+    {
+        return files.size();
+    }
+
+    /**
+     * @return The number of bytes in the temporary files, which currently exist.
+     */
+    public long getSpilledBytesOnDisk()
+    {
+        long result = 0;
+        for ( Long bytes : files.values() )
+        {
+            result += bytes;
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of temporary files, which have been created in total.
+     */
+    public int getTotalSpillCount()
+    {
+        return spillCount.get();
+    }
+
+    /**
+     * @return The number of bytes, which have been spilled in total.
+     */
+    public long getTotalSpilledBytes()
+    {
+        return spilledBytes.get();
+    }
+
+    /**
+     * Discards every buffer, which is still tracked: Releases the memory, and the references to
+     * shared buffers, and deletes the temporary files. Resources, whose buffers have been discarded,
+     * run their stream transformer again, when their contents are read. Contents must not be read
+     * concurrently with closing the manager. Once no temporary file is left, the shutdown hook is removed.
+     */
+    public void close()
+    {
+        for ( Discardable buffer : buffers.keySet() )
+        {
+            if ( buffers.remove( buffer ) != null )
+            {
+                buffer.discard();
+            }
+        }
+        retryDeletes();
+    }
+
+    /**
+     * Tries again to delete the files, which couldn't be deleted before, and removes
+     * the shutdown hook, once no file is left.
+     */
+    private void retryDeletes()
+    {
+        for ( File file : undeleted.keySet() )
+        {
+            if ( deleteFile( file ) )
+            {
+                undeleted.remove( file );
+                files.remove( file );
+            }
+        }
+        removeShutdownHook();
+    }
+}
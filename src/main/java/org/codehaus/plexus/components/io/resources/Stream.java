@@ -15,9 +15,11 @@
  * limitations under the License.
  */
 
+import org.codehaus.plexus.components.io.functions.OrderedResourceProcessor;
 import org.codehaus.plexus.components.io.functions.PlexusIoResourceConsumer;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 public interface Stream
 {
@@ -28,4 +30,48 @@
      */
     public void forEach(PlexusIoResourceConsumer resourceConsumer) throws IOException;
 
+    /**
+     * Invokes the #PlexusIoResourceConsumer for each resource in this collection, using at most
+     * {@link AbstractStream#DEFAULT_CONCURRENCY} concurrent tasks of the given executor.
+     * @see #forEach(ExecutorService, int, PlexusIoResourceConsumer)
+     */
+    public void forEach( ExecutorService executor, PlexusIoResourceConsumer resourceConsumer )
+        throws IOException;
+
+    /**
+     * Invokes the #PlexusIoResourceConsumer for each resource in this collection, using the given executor.
+     * At most maxConcurrency resources are processed, or waiting to be processed, at the same time. If that
+     * many are, the iteration blocks until one of them is done. After the first failure, no more resources
+     * are submitted. The method returns, when every submitted resource is done.
+     * @param executor The executor, which invokes the consumer.
+     * @param maxConcurrency The maximum number of resources, which are in flight at the same time.
+     * @param resourceConsumer The consumer of the resource, which must be thread safe.
+     * @throws java.io.IOException The first failure of the iteration, or the consumer.
+     */
+    public void forEach( ExecutorService executor, int maxConcurrency, PlexusIoResourceConsumer resourceConsumer )
+        throws IOException;
+
+    /**
+     * Invokes the #PlexusIoResourceConsumer for each resource in this collection, each on its own
+     * virtual thread, if the runtime supports virtual threads, or on a platform thread otherwise.
+     * This suits consumers, which mostly block on I/O. At most maxConcurrency resources are in flight,
+     * which limits the number of open files.
+     * @see VirtualThreads
+     * @see #forEach(ExecutorService, int, PlexusIoResourceConsumer)
+     */
+    public void forEach( int maxConcurrency, PlexusIoResourceConsumer resourceConsumer )
+        throws IOException;
+
+    /**
+     * Like {@link #forEach(ExecutorService, int, PlexusIoResourceConsumer)}, but the results are
+     * completed in the order of the iteration, on the calling thread.
+     * @param executor The executor, which invokes {@link OrderedResourceProcessor#process(PlexusIoResource)}.
+     * @param maxConcurrency The maximum number of resources, which are in flight at the same time.
+     * @param processor Processes the resources concurrently, and completes them in order.
+     * @throws java.io.IOException The first failure of the iteration, or the processor.
+     */
+    public <T> void forEachOrdered( ExecutorService executor, int maxConcurrency,
+                                    OrderedResourceProcessor<T> processor )
+        throws IOException;
+
 }
@@ -0,0 +1,230 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.codehaus.plexus.components.io.attributes.Java7FileAttributes;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily walks the base directory of a {@link PlexusIoFileResourceCollection}, depth first.
+ * Only the listing of the directories on the current path is held in memory, and
+ * resources are created (and selected) one at a time, as the caller asks for them.
+ * Entries are visited in name order, and a directory is always returned before its contents.
+ */
+class StreamingFileResourceIterator
+    implements Iterator<PlexusIoResource>, Closeable
+{
+    private final PlexusIoFileResourceCollection collection;
+
+    private final ScanPatterns patterns;
+
+    private final List<Frame> stack = new ArrayList<Frame>();
+
+    private boolean rootPending;
+
+    private PlexusIoResource next;
+
+    StreamingFileResourceIterator( @Nonnull PlexusIoFileResourceCollection collection, @Nonnull ScanPatterns patterns )
+        throws IOException
+    {
+        final File baseDir = collection.getBaseDir();
+        if ( baseDir == null || !baseDir.isDirectory() )
+        {
+            throw new IOException( "The base directory " + baseDir + " does not exist or is no directory." );
+        }
+        this.collection = collection;
+        this.patterns = patterns;
+        this.rootPending = collection.isIncludingEmptyDirectories();
+        stack.add( new Frame( baseDir.toPath(), "" ) );
+    }
+
+    public boolean hasNext()
+    {
+        if ( next == null )
+        {
+            try
+            {
+                next = getNextResource();
+            }
+            catch ( IOException e )
+            {
+                throw new RuntimeException( e );
+            }
+        }
+        return next != null;
+    }
+
+    public PlexusIoResource next()
+    {
+        if ( !hasNext() )
+        {
+            throw new NoSuchElementException();
+        }
+        PlexusIoResource ret = next;
+        next = null;
+        return ret;
+    }
+
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public void close()
+        throws IOException
+    {
+        stack.clear();
+        rootPending = false;
+        next = null;
+    }
+
+    private PlexusIoResource getNextResource()
+        throws IOException
+    {
+        if ( rootPending )
+        {
+            rootPending = false;
+            PlexusIoResource root = select( "", null );
+            if ( root != null )
+            {
+                return root;
+            }
+        }
+        while ( !stack.isEmpty() )
+        {
+            final Frame frame = stack.get( stack.size() - 1 );
+            final String child = frame.nextChild();
+            if ( child == null )
+            {
+                stack.remove( stack.size() - 1 );
+                continue;
+            }
+
+            final String name = frame.vpath + child;
+            final Path path = frame.dir.resolve( child );
+            // One read tells directories from files, and provides the resources state
+            final Java7FileAttributes attrs = collection.readAttributes( path.toFile() );
+            if ( attrs == null )
+            {
+                continue;
+            }
+            if ( attrs.isDirectory() )
+            {
+                if ( collection.isDescending( patterns, name )
+                    && ( collection.isFollowingSymLinks() || !attrs.isSymbolicLink() ) )
+                {
+                    stack.add( new Frame( path, name + File.separator ) );
+                }
+                if ( collection.isIncludingEmptyDirectories() )
+                {
+                    PlexusIoResource dir = select( name, attrs );
+                    if ( dir != null )
+                    {
+                        return dir;
+                    }
+                }
+            }
+            else if ( attrs.isRegularFile() )
+            {
+                PlexusIoResource file = select( name, attrs );
+                if ( file != null )
+                {
+                    return file;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param attrs The attributes of the file, or null to read them.
+     */
+    private PlexusIoResource select( String name, Java7FileAttributes attrs )
+        throws IOException
+    {
+        return patterns.isIncluded( name ) ? collection.createResource( name, attrs ) : null;
+    }
+
+    /**
+     * Lists the names in a directory, sorted. An unreadable directory is treated as
+     * empty, just like {@link org.codehaus.plexus.util.DirectoryScanner} does.
+     */
+    static String[] list( @Nonnull Path dir )
+    {
+        final List<String> names = new ArrayList<String>();
+        try
+        {
+            final DirectoryStream<Path> children = Files.newDirectoryStream( dir );
+            try
+            {
+                for ( Path child : children )
+                {
+                    names.add( child.getFileName().toString() );
+                }
+            }
+            finally
+            {
+                children.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            return new String[0];
+        }
+        final String[] result = names.toArray( new String[names.size()] );
+        Arrays.sort( result );
+        return result;
+    }
+
+    private static class Frame
+    {
+        final Path dir;
+
+        final String vpath;
+
+        private String[] children;
+
+        private int index;
+
+        Frame( Path dir, String vpath )
+        {
+            this.dir = dir;
+            this.vpath = vpath;
+        }
+
+        String nextChild()
+        {
+            if ( children == null )
+            {
+                children = list( dir );
+            }
+            return index < children.length ? children[index++] : null;
+        }
+    }
+}
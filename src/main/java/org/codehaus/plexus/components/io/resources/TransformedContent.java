@@ -0,0 +1,374 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.commons.io.IOUtils;
+import org.codehaus.plexus.components.io.functions.ContentSupplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+
+/**
+ * The contents of a resource after applying a stream transformer. The
+ * {@link #buffered(ContentSupplier, BufferingPolicy, SpillManager, ContentDigest) buffered} variant transforms
+ * the contents up front, and keeps the result as prescribed by the {@link BufferingPolicy}. The
+ * {@link #onRead(ContentSupplier) on read} variant transforms the contents whenever they are requested,
+ * and calculates the size only, if it is requested before the contents have been read completely.
+ */
+abstract class TransformedContent
+{
+    /**
+     * @param transformed Supplies the transformed contents.
+     * @param spills Tracks the buffered contents, which are kept for repeated reads then, until the
+     *   manager is closed, or null to release them, once they are read.
+     * @param digest Computes the digest of the transformed contents while buffering, or null.
+     */
+    static TransformedContent buffered( @Nonnull ContentSupplier transformed, @Nonnull BufferingPolicy policy,
+                                        @Nullable SpillManager spills, @Nullable ContentDigest digest )
+        throws IOException
+    {
+        return new Buffered( transformed, policy, spills, digest );
+    }
+
+    /**
+     * @param transformed Supplies the transformed contents.
+     */
+    static TransformedContent onRead( @Nonnull ContentSupplier transformed )
+    {
+        return new OnRead( transformed );
+    }
+
+    @Nonnull
+    abstract InputStream getContents()
+        throws IOException;
+
+    abstract long getSize();
+
+    /**
+     * @return True, if the transformed contents have been spilled to a temporary file.
+     */
+    boolean isSpilled()
+    {
+        return false;
+    }
+
+    /**
+     * Returns a channel, which provides the transformed contents, if they are available
+     * from a file, or null.
+     */
+    FileChannel openChannel()
+        throws IOException
+    {
+        return null;
+    }
+
+    private static class Buffered
+        extends TransformedContent
+    {
+        private final ContentSupplier transformed;
+
+        private final long size;
+
+        private final boolean spilled;
+
+        /**
+         * Tracks the buffer, which is kept for repeated reads then, or null.
+         */
+        private final SpillManager spills;
+
+        private ContentBuffer buffer;
+
+        /**
+         * The reference to the buffer, if it is shared with other resources, which have identical contents.
+         */
+        private DedupStore.Reference shared;
+
+        Buffered( ContentSupplier transformed, BufferingPolicy policy, SpillManager spills, ContentDigest digest )
+            throws IOException
+        {
+            this.transformed = transformed;
+            this.spills = spills;
+            final ContentBuffer contentBuffer = new ContentBuffer( policy, spills );
+            final DedupStore dedupStore = policy.getDedupStore();
+            final MessageDigest md = dedupStore == null ? null : ContentDigest.newMessageDigest( DedupStore.ALGORITHM );
+            InputStream inputStream =
+                digest == null ? transformed.getContents() : digest.digesting( transformed.getContents() );
+            if ( md != null )
+            {
+                inputStream = new DigestInputStream( inputStream, md );
+            }
+            try
+            {
+                IOUtils.copy( inputStream, contentBuffer );
+                contentBuffer.close();
+            }
+            catch ( IOException e )
+            {
+                IOUtils.closeQuietly( contentBuffer );
+                contentBuffer.discard();
+                throw e;
+            }
+            finally
+            {
+                IOUtils.closeQuietly( inputStream );
+            }
+            this.size = contentBuffer.getSize();
+            this.spilled = !contentBuffer.isInMemory();
+            if ( md != null )
+            {
+                this.shared = dedupStore.share( md.digest(), contentBuffer, spills );
+                policy.discardWhenUnreachable( this, shared );
+            }
+            else
+            {
+                this.buffer = contentBuffer;
+                if ( spills != null )
+                {
+                    spills.track( contentBuffer );
+                }
+                policy.discardWhenUnreachable( this, contentBuffer );
+            }
+        }
+
+        /**
+         * Drops the buffer, if the {@link SpillManager} has discarded it meanwhile.
+         */
+        private void dropDiscarded()
+        {
+            if ( buffer != null && buffer.isDiscarded() )
+            {
+                buffer = null;
+            }
+            if ( shared != null && shared.isDiscarded() )
+            {
+                shared = null;
+            }
+        }
+
+        /**
+         * Returns the buffered contents. Contents in memory are kept, and returned by every call.
+         * Spilled contents are deleted, when the returned stream is closed, so subsequent calls run
+         * the transformer again, unless they are tracked by a {@link SpillManager}. In that case,
+         * they are kept, until the manager is closed.
+         */
+        @Nonnull
+        InputStream getContents()
+            throws IOException
+        {
+            final ContentBuffer contentBuffer;
+            final DedupStore.Reference sharedBuffer;
+            final boolean keep;
+            synchronized ( this )
+            {
+                dropDiscarded();
+                contentBuffer = buffer;
+                sharedBuffer = shared;
+                keep = spills != null || ( contentBuffer != null ? contentBuffer.isInMemory()
+                    : sharedBuffer != null && sharedBuffer.isInMemory() );
+                if ( !keep )
+                {
+                    buffer = null;
+                    shared = null;
+                }
+            }
+            if ( sharedBuffer != null )
+            {
+                return keepingReachable( sharedBuffer.openStream( !keep ) );
+            }
+            if ( contentBuffer == null )
+            {
+                return transformed.getContents();
+            }
+            return keepingReachable( contentBuffer.openStream( !keep ) );
+        }
+
+        /**
+         * Wraps a stream, which reads the buffer, so that the buffer isn't
+         * {@link BufferingPolicy#discardWhenUnreachable(Object, Discardable) discarded}, while the
+         * stream is still in use, even if the resource itself isn't referenced anymore.
+         */
+        private InputStream keepingReachable( InputStream in )
+        {
+            return new FilterInputStream( in )
+            {
+                @SuppressWarnings( "unused" )
+                private final Buffered owner = Buffered.this;
+            };
+        }
+
+        /**
+         * Returns a channel, if the contents have been spilled to a file, and not been read yet,
+         * or are kept for repeated reads. Like {@link #getContents()}, that releases the buffer,
+         * unless it is kept.
+         */
+        FileChannel openChannel()
+            throws IOException
+        {
+            final ContentBuffer contentBuffer;
+            final DedupStore.Reference sharedBuffer;
+            final boolean keep = spills != null;
+            synchronized ( this )
+            {
+                dropDiscarded();
+                if ( shared != null && !shared.isInMemory() )
+                {
+                    contentBuffer = null;
+                    sharedBuffer = shared;
+                }
+                else if ( buffer != null && !buffer.isInMemory() )
+                {
+                    contentBuffer = buffer;
+                    sharedBuffer = null;
+                }
+                else
+                {
+                    return null;
+                }
+                if ( !keep )
+                {
+                    buffer = null;
+                    shared = null;
+                }
+            }
+            if ( sharedBuffer != null )
+            {
+                return sharedBuffer.openChannel( !keep );
+            }
+            return contentBuffer.openChannel( !keep );
+        }
+
+        long getSize()
+        {
+            return size;
+        }
+
+        boolean isSpilled()
+        {
+            return spilled;
+        }
+    }
+
+    private static class OnRead
+        extends TransformedContent
+    {
+        private final ContentSupplier transformed;
+
+        private volatile long size = PlexusIoResource.UNKNOWN_RESOURCE_SIZE;
+
+        OnRead( ContentSupplier transformed )
+        {
+            this.transformed = transformed;
+        }
+
+        @Nonnull
+        InputStream getContents()
+            throws IOException
+        {
+            return new FilterInputStream( transformed.getContents() )
+            {
+                private long count;
+
+                @Override
+                public int read()
+                    throws IOException
+                {
+                    final int b = super.read();
+                    if ( b == -1 )
+                    {
+                        size = count;
+                    }
+                    else
+                    {
+                        count++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read( byte[] b, int off, int len )
+                    throws IOException
+                {
+                    final int n = super.read( b, off, len );
+                    if ( n == -1 )
+                    {
+                        size = count;
+                    }
+                    else
+                    {
+                        count += n;
+                    }
+                    return n;
+                }
+
+                @Override
+                public long skip( long n )
+                    throws IOException
+                {
+                    final long skipped = super.skip( n );
+                    count += skipped;
+                    return skipped;
+                }
+
+                @Override
+                public boolean markSupported()
+                {
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * Returns the size of the transformed contents, which is known after the contents
+         * have been read completely once. Otherwise, the contents are transformed just for counting.
+         */
+        long getSize()
+        {
+            long result = size;
+            if ( result == PlexusIoResource.UNKNOWN_RESOURCE_SIZE )
+            {
+                try
+                {
+                    final InputStream contents = getContents();
+                    try
+                    {
+                        final byte[] buffer = new byte[8192];
+                        while ( contents.read( buffer ) != -1 )
+                        {
+                            // Counted by the stream
+                        }
+                    }
+                    finally
+                    {
+                        contents.close();
+                    }
+                    result = size;
+                }
+                catch ( IOException e )
+                {
+                    return PlexusIoResource.UNKNOWN_RESOURCE_SIZE;
+                }
+            }
+            return result;
+        }
+    }
+}
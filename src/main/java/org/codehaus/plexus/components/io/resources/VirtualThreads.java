@@ -0,0 +1,80 @@
+package org.codehaus.plexus.components.io.resources;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates executors, which run every task on a new virtual thread, if the runtime supports
+ * virtual threads. Like the {@link org.codehaus.plexus.components.io.attributes.Java7Reflector},
+ * this uses reflection only, because plexus-io is built for older runtimes.
+ */
+public final class VirtualThreads
+{
+    private static final Method NEW_EXECUTOR = findNewExecutor();
+
+    private VirtualThreads()
+    {
+    }
+
+    private static Method findNewExecutor()
+    {
+        try
+        {
+            return Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+        }
+        catch ( Exception e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return True, if the runtime supports virtual threads.
+     */
+    public static boolean isSupported()
+    {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * Returns an executor, which runs every task on a new virtual thread. If the runtime doesn't
+     * support virtual threads, returns a cached thread pool instead. In either case, the number of
+     * concurrent tasks should be bounded by the caller, for example by
+     * {@link Stream#forEach(ExecutorService, int, org.codehaus.plexus.components.io.functions.PlexusIoResourceConsumer)}.
+     * The caller must shut down the executor.
+     */
+    @Nonnull
+    public static ExecutorService newThreadPerTaskExecutor()
+    {
+        if ( NEW_EXECUTOR != null )
+        {
+            try
+            {
+                return (ExecutorService) NEW_EXECUTOR.invoke( null );
+            }
+            catch ( Exception e )
+            {
+                // Fall through to platform threads
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+}
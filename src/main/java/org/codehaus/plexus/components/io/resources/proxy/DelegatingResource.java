@@ -0,0 +1,217 @@
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.plexus.components.io.resources.proxy;
+
+import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+import org.codehaus.plexus.components.io.functions.ContentDigestSupplier;
+import org.codehaus.plexus.components.io.functions.ContentSupplier;
+import org.codehaus.plexus.components.io.functions.FileChannelSupplier;
+import org.codehaus.plexus.components.io.functions.FileSupplier;
+import org.codehaus.plexus.components.io.functions.NameSupplier;
+import org.codehaus.plexus.components.io.functions.ResourceAttributeSupplier;
+import org.codehaus.plexus.components.io.functions.SizeSupplier;
+import org.codehaus.plexus.components.io.functions.SymlinkDestinationSupplier;
+import org.codehaus.plexus.components.io.resources.ContentDigest;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+
+/**
+ * A resource, which delegates to another resource, unless an alternative supplier
+ * provides the value. This class implements the methods of the optional interfaces
+ * ({@link SymlinkDestinationSupplier}, {@link FileSupplier}, {@link ResourceAttributeSupplier})
+ * as well, but only the subclasses created by {@link ProxyFactory} declare them, depending
+ * on the interfaces the target implements. The {@link FileChannelSupplier} is always implemented,
+ * because a null channel tells the caller to read the contents as a stream. So is the
+ * {@link ContentDigestSupplier}, because any contents can be digested.
+ */
+class DelegatingResource
+    implements PlexusIoResource, FileChannelSupplier, ContentDigestSupplier
+{
+    private final PlexusIoResource target;
+
+    private final ContentSupplier contentSupplier;
+
+    private final NameSupplier nameSupplier;
+
+    private final SizeSupplier sizeSupplier;
+
+    private final SymlinkDestinationSupplier symlinkDestinationSupplier;
+
+    private final ResourceAttributeSupplier resourceAttributeSupplier;
+
+    private final FileChannelSupplier fileChannelSupplier;
+
+    private final ContentDigestSupplier contentDigestSupplier;
+
+    DelegatingResource( @Nonnull PlexusIoResource target, Object alternativeHandler )
+    {
+        this.target = target;
+        this.contentSupplier = asOrNull( alternativeHandler, ContentSupplier.class );
+        this.nameSupplier = asOrNull( alternativeHandler, NameSupplier.class );
+        this.sizeSupplier = asOrNull( alternativeHandler, SizeSupplier.class );
+        this.symlinkDestinationSupplier = asOrNull( alternativeHandler, SymlinkDestinationSupplier.class );
+        this.resourceAttributeSupplier = asOrNull( alternativeHandler, ResourceAttributeSupplier.class );
+        this.fileChannelSupplier = asOrNull( alternativeHandler, FileChannelSupplier.class );
+        this.contentDigestSupplier = asOrNull( alternativeHandler, ContentDigestSupplier.class );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static <T> T asOrNull( Object instance, Class<T> clazz )
+    {
+        return clazz.isInstance( instance ) ? (T) instance : null;
+    }
+
+    public long getLastModified()
+    {
+        return target.getLastModified();
+    }
+
+    public boolean isExisting()
+    {
+        return target.isExisting();
+    }
+
+    public long getSize()
+    {
+        return sizeSupplier != null ? sizeSupplier.getSize() : target.getSize();
+    }
+
+    public boolean isFile()
+    {
+        return target.isFile();
+    }
+
+    public boolean isDirectory()
+    {
+        return target.isDirectory();
+    }
+
+    public boolean isSymbolicLink()
+    {
+        return target.isSymbolicLink();
+    }
+
+    @Nonnull
+    public InputStream getContents()
+        throws IOException
+    {
+        return contentSupplier != null ? contentSupplier.getContents() : target.getContents();
+    }
+
+    public URL getURL()
+        throws IOException
+    {
+        return target.getURL();
+    }
+
+    public String getName()
+    {
+        return nameSupplier != null ? nameSupplier.getName() : target.getName();
+    }
+
+    public String getSymlinkDestination()
+        throws IOException
+    {
+        return symlinkDestinationSupplier != null
+            ? symlinkDestinationSupplier.getSymlinkDestination()
+            : ( (SymlinkDestinationSupplier) target ).getSymlinkDestination();
+    }
+
+    public File getFile()
+    {
+        return ( (FileSupplier) target ).getFile();
+    }
+
+    public PlexusIoResourceAttributes getAttributes()
+    {
+        return resourceAttributeSupplier != null
+            ? resourceAttributeSupplier.getAttributes()
+            : ( (ResourceAttributeSupplier) target ).getAttributes();
+    }
+
+    /**
+     * Returns the channel supplier, which provides the contents, or null, if the contents are
+     * supplied otherwise.
+     */
+    private FileChannelSupplier getFileChannelSupplier()
+    {
+        if ( fileChannelSupplier != null )
+        {
+            return fileChannelSupplier;
+        }
+        return contentSupplier == null && target instanceof FileChannelSupplier
+            ? (FileChannelSupplier) target
+            : null;
+    }
+
+    public FileChannel openChannel()
+        throws IOException
+    {
+        final FileChannelSupplier supplier = getFileChannelSupplier();
+        return supplier != null ? supplier.openChannel() : null;
+    }
+
+    public long getChannelOffset()
+    {
+        final FileChannelSupplier supplier = getFileChannelSupplier();
+        return supplier != null ? supplier.getChannelOffset() : 0;
+    }
+
+    public long getChannelLength()
+    {
+        final FileChannelSupplier supplier = getFileChannelSupplier();
+        return supplier != null ? supplier.getChannelLength() : getSize();
+    }
+
+    @Nonnull
+    public byte[] getContentDigest( @Nonnull String algorithm )
+        throws IOException
+    {
+        if ( contentDigestSupplier != null )
+        {
+            return contentDigestSupplier.getContentDigest( algorithm );
+        }
+        if ( contentSupplier == null && target instanceof ContentDigestSupplier )
+        {
+            return ( (ContentDigestSupplier) target ).getContentDigest( algorithm );
+        }
+        return ContentDigest.digest( algorithm, getContents() );
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        return target.equals( obj );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return target.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return target.toString();
+    }
+}
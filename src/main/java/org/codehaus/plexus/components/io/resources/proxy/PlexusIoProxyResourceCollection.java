@@ -26,12 +26,14 @@
 import org.codehaus.plexus.components.io.functions.ResourceAttributeSupplier;
 import org.codehaus.plexus.components.io.resources.AbstractPlexusIoResourceCollection;
 import org.codehaus.plexus.components.io.resources.AbstractPlexusIoResourceCollectionWithAttributes;
+import org.codehaus.plexus.components.io.resources.BufferingPolicy;
 import org.codehaus.plexus.components.io.resources.EncodingSupported;
 import org.codehaus.plexus.components.io.resources.PlexusIoResource;
 import org.codehaus.plexus.components.io.resources.PlexusIoResourceCollection;
 import org.codehaus.plexus.components.io.resources.Stream;
 
 import javax.annotation.Nonnull;
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Iterator;
@@ -83,6 +85,24 @@ public void setStreamTransformer( InputStreamTransformer streamTransformer )
         super.setStreamTransformer( streamTransformer );
     }
 
+    @Override
+    public void setTransformOnRead( boolean transformOnRead )
+    {
+        if (src instanceof AbstractPlexusIoResourceCollection ){
+            ((AbstractPlexusIoResourceCollection)src).setTransformOnRead( transformOnRead );
+        }
+        super.setTransformOnRead( transformOnRead );
+    }
+
+    @Override
+    public void setBufferingPolicy( BufferingPolicy bufferingPolicy )
+    {
+        if (src instanceof AbstractPlexusIoResourceCollection ){
+            ((AbstractPlexusIoResourceCollection)src).setBufferingPolicy( bufferingPolicy );
+        }
+        super.setBufferingPolicy( bufferingPolicy );
+    }
+
     protected FileSelector getDefaultFileSelector()
     {
         final IncludeExcludeFileSelector fileSelector = new IncludeExcludeFileSelector();
@@ -168,6 +188,26 @@ public PlexusIoResourceAttributes getAttributes()
         }
     }
 
+    /**
+     * Deletes the temporary files of this collection, and closes the source collection.
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            if ( src instanceof Closeable )
+            {
+                ( (Closeable) src ).close();
+            }
+        }
+    }
+
     public Stream stream()
     {
         return getSrc().stream();
@@ -206,6 +246,18 @@ public long getLastModified()
         return src.getLastModified();
     }
 
+    @Override
+    public boolean isNewerThan( long timestamp )
+        throws IOException
+    {
+        if ( src instanceof AbstractPlexusIoResourceCollection )
+        {
+            return ( (AbstractPlexusIoResourceCollection) src ).isNewerThan( timestamp );
+        }
+        final long lastModified = src.getLastModified();
+        return lastModified == PlexusIoResource.UNKNOWN_MODIFICATION_DATE || lastModified > timestamp;
+    }
+
     public void setEncoding( Charset charset )
     {
         if (src instanceof  EncodingSupported){
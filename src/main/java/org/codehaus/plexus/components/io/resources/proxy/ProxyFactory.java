@@ -21,23 +21,112 @@
 import org.codehaus.plexus.components.io.resources.PlexusIoResource;
 
 import javax.annotation.Nonnull;
-import java.lang.reflect.Proxy;
-import java.util.ArrayList;
-import java.util.List;
 
+/**
+ * Creates resources, which delegate to another resource, but take some of their values
+ * (contents, name, size, symlink destination, attributes) from an alternative supplier.
+ * The created resource implements the same optional interfaces as the target. Instead of
+ * reflective proxies, there is a concrete class for every combination of interfaces,
+ * so calls are plain virtual calls.
+ */
 public class ProxyFactory
 {
-    public static PlexusIoResource createProxy(@Nonnull PlexusIoResource target, Object alternateSupplier)
+    public static PlexusIoResource createProxy( @Nonnull PlexusIoResource target, Object alternateSupplier )
+    {
+        final boolean symlink = target instanceof SymlinkDestinationSupplier;
+        final boolean file = target instanceof FileSupplier;
+        final boolean attributes = target instanceof ResourceAttributeSupplier;
+
+        if ( symlink )
+        {
+            if ( file )
+            {
+                return attributes
+                    ? new SymlinkFileAttributesResource( target, alternateSupplier )
+                    : new SymlinkFileResource( target, alternateSupplier );
+            }
+            return attributes
+                ? new SymlinkAttributesResource( target, alternateSupplier )
+                : new SymlinkResource( target, alternateSupplier );
+        }
+        if ( file )
+        {
+            return attributes
+                ? new FileAttributesResource( target, alternateSupplier )
+                : new FileResource( target, alternateSupplier );
+        }
+        return attributes
+            ? new AttributesResource( target, alternateSupplier )
+            : new DelegatingResource( target, alternateSupplier );
+    }
+
+    private static class SymlinkResource
+        extends DelegatingResource
+        implements SymlinkDestinationSupplier
     {
+        SymlinkResource( PlexusIoResource target, Object alternativeHandler )
+        {
+            super( target, alternativeHandler );
+        }
+    }
 
-        List<Class> interfaces = new ArrayList<Class>(  );
-        interfaces.add( PlexusIoResource.class);
-        if (target instanceof SymlinkDestinationSupplier ) interfaces.add( SymlinkDestinationSupplier.class);
-        if (target instanceof FileSupplier ) interfaces.add( FileSupplier.class);
-        if (target instanceof ResourceAttributeSupplier) interfaces.add( ResourceAttributeSupplier.class);
+    private static class FileResource
+        extends DelegatingResource
+        implements FileSupplier
+    {
+        FileResource( PlexusIoResource target, Object alternativeHandler )
+        {
+            super( target, alternativeHandler );
+        }
+    }
+
+    private static class AttributesResource
+        extends DelegatingResource
+        implements ResourceAttributeSupplier
+    {
+        AttributesResource( PlexusIoResource target, Object alternativeHandler )
+        {
+            super( target, alternativeHandler );
+        }
+    }
 
-        return (PlexusIoResource) Proxy.newProxyInstance( PlexusIoResource.class.getClassLoader(),
-                                                                        interfaces.toArray(new Class[interfaces.size()]),
-                                                                        new ResourceInvocationHandler( target, alternateSupplier) );
+    private static class SymlinkFileResource
+        extends DelegatingResource
+        implements SymlinkDestinationSupplier, FileSupplier
+    {
+        SymlinkFileResource( PlexusIoResource target, Object alternativeHandler )
+        {
+            super( target, alternativeHandler );
+        }
+    }
+
+    private static class SymlinkAttributesResource
+        extends DelegatingResource
+        implements SymlinkDestinationSupplier, ResourceAttributeSupplier
+    {
+        SymlinkAttributesResource( PlexusIoResource target, Object alternativeHandler )
+        {
+            super( target, alternativeHandler );
+        }
+    }
+
+    private static class FileAttributesResource
+        extends DelegatingResource
+        implements FileSupplier, ResourceAttributeSupplier
+    {
+        FileAttributesResource( PlexusIoResource target, Object alternativeHandler )
+        {
+            super( target, alternativeHandler );
+        }
+    }
+
+    private static class SymlinkFileAttributesResource
+        extends DelegatingResource
+        implements SymlinkDestinationSupplier, FileSupplier, ResourceAttributeSupplier
+    {
+        SymlinkFileAttributesResource( PlexusIoResource target, Object alternativeHandler )
+        {
+            super( target, alternativeHandler );
+        }
     }
 }
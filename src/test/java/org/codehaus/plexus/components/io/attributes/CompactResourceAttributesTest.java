@@ -0,0 +1,85 @@
+package org.codehaus.plexus.components.io.attributes;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+public class CompactResourceAttributesTest
+    extends AbstractResourceAttributesTCK
+{
+
+    protected PlexusIoResourceAttributes newAttributes( int mode )
+    {
+        return CompactResourceAttributes.of( 1000, "user", 1000, "group", mode, false );
+    }
+
+    protected PlexusIoResourceAttributes newAttributes( String mode )
+    {
+        return newAttributes( Integer.parseInt( mode, 8 ) );
+    }
+
+    public void testEqualValuesShareInstance()
+    {
+        final CompactResourceAttributes a =
+            CompactResourceAttributes.of( 1000, new String( "user" ), null, "group", 0644, false );
+        final CompactResourceAttributes b = CompactResourceAttributes.of( 1000, "user", null, "group", 0644, false );
+        assertSame( a, b );
+        assertSame( a, CompactResourceAttributes.of( a ) );
+        assertNotSame( a, CompactResourceAttributes.of( 1000, "user", null, "group", 0644, true ) );
+        assertNotSame( a, CompactResourceAttributes.of( 1000, "user", 0, "group", 0644, false ) );
+
+        final SimpleResourceAttributes simple = new SimpleResourceAttributes( 1000, "user", null, "group", 0644 );
+        assertSame( a, CompactResourceAttributes.of( simple ) );
+        assertEquals( Integer.valueOf( 1000 ), a.getUserId() );
+        assertNull( a.getGroupId() );
+        assertEquals( 0644, a.getOctalMode() );
+    }
+
+    public void testUnknownModeHasNoPermissions()
+    {
+        final CompactResourceAttributes attrs =
+            CompactResourceAttributes.of( null, null, null, null, PlexusIoResourceAttributes.UNKNOWN_OCTAL_MODE,
+                                          false );
+        assertFalse( attrs.isOwnerReadable() );
+        assertFalse( attrs.isWorldExecutable() );
+        assertNull( attrs.getUserId() );
+    }
+
+    public void testFilesShareAttributes()
+        throws Exception
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        final File dir = new File( "target/compactAttributesTest" );
+        assertTrue( dir.isDirectory() || dir.mkdirs() );
+        final File a = new File( dir, "a.txt" );
+        final File b = new File( dir, "b.txt" );
+        new FileOutputStream( a ).close();
+        new FileOutputStream( b ).close();
+        Java7AttributeUtils.chmod( a, 0640 );
+        Java7AttributeUtils.chmod( b, 0640 );
+
+        final Java7FileAttributes attrsA = new Java7FileAttributes( a, PrincipalNameCache.getShared() );
+        final Java7FileAttributes attrsB = new Java7FileAttributes( b, PrincipalNameCache.getShared() );
+        assertSame( attrsA.getCompactAttributes(), attrsB.getCompactAttributes() );
+        assertEquals( attrsA.getOctalMode(), attrsB.getOctalMode() );
+        assertTrue( attrsA.isRegularFile() );
+    }
+}
@@ -50,4 +50,41 @@ public void testGetPosixFileAttributes()
         assertNotNull( fa );
     }
 
+    public void testNamesAreResolvedThroughCache()
+        throws Exception
+    {
+        if ( Os.isFamily( Os.FAMILY_WINDOWS ) || Os.isFamily( Os.FAMILY_WIN9X ) )
+        {
+            return;
+        }
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+
+        File file = new File( "." );
+        PrincipalNameCache cache = new PrincipalNameCache( 10 );
+        PlexusIoResourceAttributes fa = new Java7FileAttributes( file, cache );
+        assertEquals( fa.getUserName(), cache.getUserNames().get( fa.getUserId() ) );
+        assertEquals( fa.getGroupName(), cache.getGroupNames().get( fa.getGroupId() ) );
+
+        cache.getUserNames().put( fa.getUserId(), "cachedUser" );
+        cache.getGroupNames().put( fa.getGroupId(), "cachedGroup" );
+        fa = new Java7FileAttributes( file, cache );
+        assertEquals( "cachedUser", fa.getUserName() );
+        assertEquals( "cachedGroup", fa.getGroupName() );
+    }
+
+    public void testPrincipalNameCacheIsBounded()
+    {
+        PrincipalNameCache cache = new PrincipalNameCache( 3 );
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.getUserNames().put( i, "user" + i );
+        }
+        assertEquals( 3, cache.getUserNames().size() );
+        assertEquals( "user9", cache.getUserNames().get( 9 ) );
+        cache.getUserNames().put( 9, "user9" );
+        assertEquals( 3, cache.getUserNames().size() );
+    }
 }
@@ -136,6 +136,33 @@ public void testFolderJava7()
         assertNotNull(fileAttrs);
     }
 
+    public void testAttributeProviders()
+        throws IOException
+    {
+        if ( Os.isFamily( Os.FAMILY_WINDOWS ) || Os.isFamily( Os.FAMILY_WIN9X ) || !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        File dir = new File( "target/attributeProviderTest" );
+        File file = new File( dir, "a.txt" );
+        assertTrue( dir.isDirectory() || dir.mkdirs() );
+        assertTrue( file.isFile() || file.createNewFile() );
+        Java7AttributeUtils.chmod( file, 0751 );
+
+        PlexusIoResourceAttributes unix = new UnixAttributeProvider().getAttributes( file );
+        PlexusIoResourceAttributes posix = new PosixAttributeProvider().getAttributes( file );
+        assertEquals( 0751, posix.getOctalMode() );
+        assertEquals( unix.getOctalMode(), posix.getOctalMode() );
+        assertEquals( unix.getUserName(), posix.getUserName() );
+        assertEquals( unix.getGroupName(), posix.getGroupName() );
+        assertNull( posix.getUserId() );
+
+        PlexusIoResourceAttributes attrs = PlexusIoResourceAttributeUtils.getFileAttributesByPath(
+            file, false, new PosixAttributeProvider() ).get( file.getAbsolutePath() );
+        assertEquals( 0751, attrs.getOctalMode() );
+        assertNull( attrs.getUserId() );
+        assertNotNull( getFileAttributes( file ).getUserId() );
+    }
 
     public void testAttributeParsers()
     {
@@ -260,6 +287,40 @@ public void testMacOsWithSpace() throws Exception {
         String path = "/Users/kristian/lsrc/plexus/plexus-io/target/test-classes/org/codehaus/plexus/components/io/attributes/";
     }
 
+    public void testGroupWithSpaceAndLongIsoDate()
+        throws Exception
+    {
+        String output = "drwxr-xr-x+ 1 x575722 Domain Users 0 Oct 11 08:49 io\n"
+            + "-rw-r--r-- 1 user group 1533 2010-04-23 14:34 name with  spaces.txt\n"
+            + "-rw-r--r-- 1 user group 1533 23 okt. 2010 older.txt";
+        AttributeParser parser = getNameBasedParser1la();
+        parse( new ByteArrayInputStream( output.getBytes() ), parser );
+        Map<String, PlexusIoResourceAttributes> map = parser.getAttributesByPath();
+        assertEquals( "Domain Users", map.get( "io" ).getGroupName() );
+        assertEquals( "x575722", map.get( "io" ).getUserName() );
+        assertEquals( 0644, map.get( "name with  spaces.txt" ).getOctalMode() );
+        assertEquals( "group", map.get( "older.txt" ).getGroupName() );
+    }
+
+    public void testDeviceLines()
+        throws Exception
+    {
+        String output = "crw-rw---- 1 root tty 4, 0 Oct 17 10:00 tty0\n"
+            + "brw-rw----  1 root  Domain Users  8,   1 2016-10-17 10:00 sda1";
+        AttributeParser parser = getNameBasedParser1la();
+        parse( new ByteArrayInputStream( output.getBytes() ), parser );
+        Map<String, PlexusIoResourceAttributes> map = parser.getAttributesByPath();
+        assertEquals( "tty", map.get( "tty0" ).getGroupName() );
+        assertEquals( "root", map.get( "tty0" ).getUserName() );
+        assertEquals( 0660, map.get( "tty0" ).getOctalMode() );
+        assertEquals( "Domain Users", map.get( "sda1" ).getGroupName() );
+
+        String numeric = "crw-rw---- 1 0 5 4, 0 Oct 17 10:00 tty0";
+        parser = getNumericParser1nla();
+        parse( new ByteArrayInputStream( numeric.getBytes() ), parser );
+        assertEquals( 5, parser.getAttributesByPath().get( "tty0" ).getGroupId().intValue() );
+    }
+
     public void testMacOsLine()
         throws Exception
     {
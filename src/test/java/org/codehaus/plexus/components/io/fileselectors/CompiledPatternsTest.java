@@ -0,0 +1,122 @@
+package org.codehaus.plexus.components.io.fileselectors;
+
+/*
+ * Copyright 2016 The Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.MatchPatterns;
+
+import java.io.File;
+
+/**
+ * Test case for {@link CompiledPatterns}.
+ */
+public class CompiledPatternsTest
+    extends TestCase
+{
+    private static final String[] PATTERNS =
+        { "**/*.java", "a/**", "a/b/*.txt", "**/CVS/**", "**/target", "x/**/y/**/z", "?.txt", "**/**/deep",
+            "c*d/e?f", "**", "*", "lit/eral", "a/**/b", "%regex[.*\\.properties]", "%ant[q/**/*.xml]" };
+
+    private static final String[] NAMES =
+        { "A.java", "a", "a/b", "a/b/c.txt", "a/b/c/d.txt", "x/y/z", "x/1/y/2/3/z", "x/y/z/w", "1.txt", "12.txt",
+            "deep", "q/deep", "q/r/deep", "cd/eff", "cxxd/eXf", "cd/ef", "lit/eral", "lit/eral/x", "LIT/ERAL",
+            "src/CVS/Entries", "CVS", "src/target", "src/target/classes", "a/x/y/b", "b/x.properties",
+            "q/r/s.xml", "q/s.xml", "/a/b", "a//b", "a\\b\\c.txt" };
+
+    private static String canonical( String name )
+    {
+        if ( name.startsWith( "%regex[" ) )
+        {
+            return name;
+        }
+        return name.replace( '/', File.separatorChar ).replace( '\\', File.separatorChar );
+    }
+
+    public void testMatchesLikeMatchPatterns()
+    {
+        for ( boolean caseSensitive : new boolean[]{ true, false } )
+        {
+            for ( String pattern : PATTERNS )
+            {
+                final MatchPatterns expected = MatchPatterns.from( canonical( pattern ) );
+                final CompiledPatterns compiled = CompiledPatterns.compile( new String[]{ pattern }, caseSensitive );
+                for ( String name : NAMES )
+                {
+                    assertEquals( pattern + " vs. " + name, expected.matches( canonical( name ), caseSensitive ),
+                                  compiled.matches( name ) );
+                }
+            }
+            final String[] all = new String[PATTERNS.length];
+            for ( int i = 0; i < all.length; i++ )
+            {
+                all[i] = canonical( PATTERNS[i] );
+            }
+            final MatchPatterns expected = MatchPatterns.from( all );
+            final CompiledPatterns compiled = CompiledPatterns.compile( PATTERNS, caseSensitive );
+            for ( String name : NAMES )
+            {
+                assertEquals( name, expected.matches( canonical( name ), caseSensitive ), compiled.matches( name ) );
+            }
+        }
+    }
+
+    public void testDefaultExcludes()
+    {
+        final String[] defaultExcludes = FileUtils.getDefaultExcludes();
+        final CompiledPatterns compiled = CompiledPatterns.compile( defaultExcludes, true );
+        final MatchPatterns expected = MatchPatterns.from( defaultExcludes );
+        for ( String name : new String[]{ "a/.git", "a/.git/config", "b.txt~", ".svn/entries", "src/Foo.java",
+            "a/.DS_Store", "x/#y#" } )
+        {
+            assertEquals( name, expected.matches( canonical( name ), true ), compiled.matches( name ) );
+        }
+        assertTrue( compiled.matchesAllBelow( "a/.git" ) );
+        assertTrue( compiled.matchesAllBelow( "CVS" ) );
+        assertFalse( compiled.matchesAllBelow( "src" ) );
+    }
+
+    public void testCouldMatchBelow()
+    {
+        final CompiledPatterns compiled = CompiledPatterns.compile( new String[]{ "a/b/*.txt", "c/**/d" }, true );
+        assertTrue( compiled.couldMatchBelow( "" ) );
+        assertTrue( compiled.couldMatchBelow( "a" ) );
+        assertTrue( compiled.couldMatchBelow( "a/b" ) );
+        assertFalse( compiled.couldMatchBelow( "a/b/c" ) );
+        assertFalse( compiled.couldMatchBelow( "a/c" ) );
+        assertFalse( compiled.couldMatchBelow( "x" ) );
+        assertTrue( compiled.couldMatchBelow( "c/x/y" ) );
+
+        assertTrue( CompiledPatterns.compile( new String[]{ "**/*.java" }, true ).couldMatchBelow( "any/dir" ) );
+        assertTrue( CompiledPatterns.compile( new String[]{ "%regex[.*]" }, true ).couldMatchBelow( "x" ) );
+    }
+
+    public void testMatchesAllBelow()
+    {
+        final CompiledPatterns compiled =
+            CompiledPatterns.compile( new String[]{ "**/node_modules/**", "target/**", "x/*/y/**/**" }, false );
+        assertTrue( compiled.matchesAllBelow( "node_modules" ) );
+        assertTrue( compiled.matchesAllBelow( "a/b/node_modules" ) );
+        assertTrue( compiled.matchesAllBelow( "a/node_modules/c" ) );
+        assertTrue( compiled.matchesAllBelow( "TARGET" ) );
+        assertTrue( compiled.matchesAllBelow( "target/classes" ) );
+        assertFalse( compiled.matchesAllBelow( "a/target" ) );
+        assertTrue( compiled.matchesAllBelow( "x/1/y" ) );
+        assertFalse( compiled.matchesAllBelow( "x/1" ) );
+        assertFalse( compiled.matchesAllBelow( "" ) );
+    }
+}
@@ -0,0 +1,60 @@
+package org.codehaus.plexus.components.io.metrics;
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.components.io.attributes.Java7Reflector;
+import org.codehaus.plexus.components.io.functions.InputStreamTransformer;
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Iterator;
+
+public class JfrMetricsTest
+    extends TestCase
+{
+    public void testEventsDontBreakTheCollection()
+        throws Exception
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        File baseDir = new File( "target/plexus.io.jfrMetricsTest" );
+        FileUtils.deleteDirectory( baseDir );
+        assertTrue( baseDir.mkdirs() );
+        FileUtils.fileWrite( new File( baseDir, "a.txt" ), "UTF-8", "a" );
+
+        PlexusIoFileResourceCollection collection = new PlexusIoFileResourceCollection();
+        collection.setBaseDir( baseDir );
+        collection.setStreamTransformer( new InputStreamTransformer()
+        {
+            @Nonnull
+            public InputStream transform( @Nonnull PlexusIoResource resource, @Nonnull InputStream inputStream )
+                throws IOException
+            {
+                return new SequenceInputStream( inputStream, new ByteArrayInputStream( "!".getBytes( "UTF-8" ) ) );
+            }
+        } );
+        collection.setMetrics( new JfrMetrics() );
+        int count = 0;
+        for ( Iterator<PlexusIoResource> it = collection.getResources(); it.hasNext(); )
+        {
+            PlexusIoResource resource = it.next();
+            if ( resource.isFile() )
+            {
+                InputStream contents = resource.getContents();
+                assertEquals( "a!", IOUtil.toString( contents, "UTF-8" ) );
+                contents.close();
+                count++;
+            }
+        }
+        assertEquals( 1, count );
+    }
+}
@@ -0,0 +1,207 @@
+package org.codehaus.plexus.components.io.resources;
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+public class ContentBufferTest
+    extends TestCase
+{
+    private File spillDir;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        spillDir = new File( "target/plexus.io.contentBufferTest" );
+        FileUtils.deleteDirectory( spillDir );
+        assertTrue( spillDir.mkdirs() );
+    }
+
+    private static byte[] bytes( int length )
+    {
+        final byte[] result = new byte[length];
+        for ( int i = 0; i < length; i++ )
+        {
+            result[i] = (byte) ( i * 31 );
+        }
+        return result;
+    }
+
+    private static byte[] write( ContentBuffer buffer, byte[] data )
+        throws IOException
+    {
+        // Write in odd sized pieces to cross chunk boundaries
+        int off = 0;
+        while ( off < data.length )
+        {
+            final int len = Math.min( 1000, data.length - off );
+            buffer.write( data, off, len );
+            off += len;
+        }
+        buffer.close();
+        return data;
+    }
+
+    private static byte[] read( ContentBuffer buffer )
+        throws IOException
+    {
+        return readAll( buffer.openStream() );
+    }
+
+    private static byte[] readAll( InputStream in )
+        throws IOException
+    {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try
+        {
+            final byte[] b = new byte[777];
+            assertEquals( 0, in.read( b, 0, 0 ) );
+            for ( int n = in.read( b ); n != -1; n = in.read( b ) )
+            {
+                baos.write( b, 0, n );
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return baos.toByteArray();
+    }
+
+    public void testOffHeapInMemory()
+        throws IOException
+    {
+        final BufferingPolicy policy = new BufferingPolicy( 1000000, spillDir, BufferingPolicy.UNLIMITED, true );
+        final ContentBuffer buffer = new ContentBuffer( policy );
+        final byte[] data = write( buffer, bytes( 3 * BufferingPolicy.CHUNK_SIZE + 17 ) );
+        assertTrue( buffer.isInMemory() );
+        assertEquals( data.length, buffer.getSize() );
+        // The budget is charged for whole chunks
+        assertEquals( 4 * BufferingPolicy.CHUNK_SIZE, policy.getMemoryUsed() );
+
+        assertTrue( Arrays.equals( data, read( buffer ) ) );
+        assertEquals( 0, policy.getMemoryUsed() );
+
+        // The chunks are reused
+        final ContentBuffer second = new ContentBuffer( policy );
+        final byte[] other = write( second, "Hello, world".getBytes( "UTF-8" ) );
+        assertTrue( Arrays.equals( other, read( second ) ) );
+    }
+
+    public void testOffHeapBudgetCoversChunks()
+        throws IOException
+    {
+        final BufferingPolicy policy =
+            new BufferingPolicy( 1000000, spillDir, 2 * BufferingPolicy.CHUNK_SIZE + 100, true );
+        final ContentBuffer first = new ContentBuffer( policy );
+        write( first, bytes( BufferingPolicy.CHUNK_SIZE + 1 ) );
+        assertTrue( first.isInMemory() );
+        assertEquals( 2 * BufferingPolicy.CHUNK_SIZE, policy.getMemoryUsed() );
+
+        // Data below a chunk stays on the heap, and is charged for its size only
+        final ContentBuffer second = new ContentBuffer( policy );
+        write( second, bytes( 10 ) );
+        assertTrue( second.isInMemory() );
+        assertEquals( 2 * BufferingPolicy.CHUNK_SIZE + 10, policy.getMemoryUsed() );
+
+        // Two more chunks would exceed the budget
+        final ContentBuffer third = new ContentBuffer( policy );
+        write( third, bytes( BufferingPolicy.CHUNK_SIZE + 1 ) );
+        assertFalse( third.isInMemory() );
+        third.discard();
+        first.discard();
+        second.discard();
+        assertEquals( 0, policy.getMemoryUsed() );
+    }
+
+    public void testOffHeapDiscardWhileReading()
+        throws IOException
+    {
+        final BufferingPolicy policy = new BufferingPolicy( 1000000, spillDir, BufferingPolicy.UNLIMITED, true );
+        final ContentBuffer first = new ContentBuffer( policy );
+        final byte[] data = write( first, bytes( BufferingPolicy.CHUNK_SIZE + 1 ) );
+        final InputStream in = first.openStream( false );
+        assertEquals( data[0], (byte) in.read() );
+        first.discard();
+
+        // The chunks, which are still read, must not be handed out again
+        final ContentBuffer second = new ContentBuffer( policy );
+        final byte[] zeros = new byte[BufferingPolicy.CHUNK_SIZE + 1];
+        write( second, zeros );
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write( data[0] );
+        IOUtil.copy( in, baos );
+        in.close();
+        assertTrue( Arrays.equals( data, baos.toByteArray() ) );
+        assertTrue( Arrays.equals( zeros, read( second ) ) );
+    }
+
+    public void testOffHeapSpilledAndMapped()
+        throws IOException
+    {
+        final BufferingPolicy policy = new BufferingPolicy( 100000, spillDir, BufferingPolicy.UNLIMITED, true );
+        final ContentBuffer buffer = new ContentBuffer( policy );
+        final byte[] data = write( buffer, bytes( 250000 ) );
+        assertFalse( buffer.isInMemory() );
+        assertEquals( 0, policy.getMemoryUsed() );
+        assertEquals( 1, spillDir.list().length );
+
+        assertTrue( Arrays.equals( data, read( buffer ) ) );
+        assertEquals( 0, spillDir.list().length );
+    }
+
+    public void testHeapSpilled()
+        throws IOException
+    {
+        final BufferingPolicy policy = new BufferingPolicy( 100000, spillDir, BufferingPolicy.UNLIMITED );
+        final ContentBuffer buffer = new ContentBuffer( policy );
+        final byte[] data = write( buffer, bytes( 250000 ) );
+        assertFalse( buffer.isInMemory() );
+        assertTrue( Arrays.equals( data, read( buffer ) ) );
+        assertEquals( 0, spillDir.list().length );
+    }
+
+    public void testSpillManager()
+        throws IOException
+    {
+        final BufferingPolicy policy = new BufferingPolicy( 100000, spillDir, BufferingPolicy.UNLIMITED );
+        final SpillManager spills = new SpillManager();
+        final ContentBuffer buffer = new ContentBuffer( policy, spills );
+        final byte[] data = write( buffer, bytes( 250000 ) );
+        final ContentBuffer unread = new ContentBuffer( policy, spills );
+        write( unread, bytes( 150000 ) );
+        spills.track( buffer );
+        spills.track( unread );
+        final ContentBuffer inMemory = new ContentBuffer( policy, spills );
+        write( inMemory, bytes( 1000 ) );
+        spills.track( inMemory );
+        assertEquals( 1000, policy.getMemoryUsed() );
+        assertEquals( 2, spills.getSpillFileCount() );
+        assertEquals( 400000, spills.getSpilledBytesOnDisk() );
+
+        // The spill file is kept for repeated reads
+        assertTrue( Arrays.equals( data, readAll( buffer.openStream( false ) ) ) );
+        assertTrue( Arrays.equals( data, readAll( buffer.openStream( false ) ) ) );
+        assertEquals( 2, spillDir.list().length );
+
+        buffer.discard();
+        assertEquals( 1, spills.getSpillFileCount() );
+        assertEquals( 150000, spills.getSpilledBytesOnDisk() );
+
+        // Closing deletes the file, which has never been read, and releases the memory
+        spills.close();
+        assertTrue( inMemory.isDiscarded() );
+        assertEquals( 0, policy.getMemoryUsed() );
+        assertEquals( 0, spills.getSpillFileCount() );
+        assertEquals( 0, spillDir.list().length );
+        assertEquals( 2, spills.getTotalSpillCount() );
+        assertEquals( 400000, spills.getTotalSpilledBytes() );
+    }
+}
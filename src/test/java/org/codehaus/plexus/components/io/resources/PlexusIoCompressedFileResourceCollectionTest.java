@@ -0,0 +1,92 @@
+package org.codehaus.plexus.components.io.resources;
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.components.io.attributes.Java7Reflector;
+import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+import org.codehaus.plexus.components.io.attributes.SimpleResourceAttributes;
+import org.codehaus.plexus.components.io.functions.InputStreamTransformer;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+public class PlexusIoCompressedFileResourceCollectionTest
+    extends TestCase
+{
+    private File baseDir;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        baseDir = new File( "target/compressed-collection-test" );
+        FileUtils.deleteDirectory( baseDir );
+        assertTrue( baseDir.mkdirs() );
+    }
+
+    public void testBufferingPolicy()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        File file = new File( baseDir, "contents.txt.plain" );
+        FileUtils.fileWrite( file, "UTF-8", "contents" );
+        final File spillDir = new File( baseDir, "spill" );
+        assertTrue( spillDir.mkdirs() );
+
+        PlexusIoCompressedFileResourceCollection collection = new PlexusIoCompressedFileResourceCollection()
+        {
+            protected PlexusIoResourceAttributes getAttributes( File f )
+            {
+                return SimpleResourceAttributes.lastResortDummyAttributesForBrokenOS();
+            }
+
+            protected String getDefaultExtension()
+            {
+                return ".plain";
+            }
+
+            @Nonnull
+            protected InputStream getInputStream( File file )
+                throws IOException
+            {
+                return new FileInputStream( file );
+            }
+        };
+        collection.setFile( file );
+        collection.setStreamTransformer( new InputStreamTransformer()
+        {
+            @Nonnull
+            public InputStream transform( @Nonnull PlexusIoResource resource, @Nonnull InputStream inputStream )
+                throws IOException
+            {
+                return new SequenceInputStream( inputStream, new ByteArrayInputStream( "!!".getBytes( "UTF-8" ) ) );
+            }
+        } );
+        // "contents!!" exceeds the memory budget of 8 bytes, and is spilled into the configured directory.
+        SpillManager spillManager = new SpillManager();
+        collection.setBufferingPolicy( new BufferingPolicy( 1000, spillDir, 8 ) );
+        collection.setSpillManager( spillManager );
+
+        PlexusIoResource resource = collection.resolve( collection.getResources().next() );
+        for ( int i = 0; i < 2; i++ )
+        {
+            InputStream contents = resource.getContents();
+            assertEquals( "contents!!", IOUtil.toString( contents ) );
+            contents.close();
+        }
+        assertEquals( 1, spillManager.getSpillFileCount() );
+        assertEquals( 1, spillDir.list().length );
+
+        collection.close();
+        assertEquals( 0, spillDir.list().length );
+    }
+}
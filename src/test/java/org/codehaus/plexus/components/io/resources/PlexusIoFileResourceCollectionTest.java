@@ -0,0 +1,1115 @@
+package org.codehaus.plexus.components.io.resources;
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.components.io.attributes.AttributeProvider;
+import org.codehaus.plexus.components.io.attributes.CompactResourceAttributes;
+import org.codehaus.plexus.components.io.attributes.Java7Reflector;
+import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+import org.codehaus.plexus.components.io.filemappers.FileMapper;
+import org.codehaus.plexus.components.io.filemappers.IdentityMapper;
+import org.codehaus.plexus.components.io.fileselectors.AllFilesFileSelector;
+import org.codehaus.plexus.components.io.fileselectors.DirectoryDescentSelector;
+import org.codehaus.plexus.components.io.fileselectors.FileInfo;
+import org.codehaus.plexus.components.io.fileselectors.FileSelector;
+import org.codehaus.plexus.components.io.functions.ContentDigestSupplier;
+import org.codehaus.plexus.components.io.functions.FileChannelSupplier;
+import org.codehaus.plexus.components.io.functions.InputStreamTransformer;
+import org.codehaus.plexus.components.io.functions.OrderedResourceProcessor;
+import org.codehaus.plexus.components.io.functions.PlexusIoResourceConsumer;
+import org.codehaus.plexus.components.io.functions.ResourceAttributeSupplier;
+import org.codehaus.plexus.components.io.metrics.CountingMetrics;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PlexusIoFileResourceCollectionTest
+    extends TestCase
+{
+    private File baseDir;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        baseDir = new File( "target/plexus.io.fileCollectionTest" );
+        FileUtils.deleteDirectory( baseDir );
+        createFile( "a/b/c.txt" );
+        createFile( "a/b/d.java" );
+        createFile( "a/e.txt" );
+        createFile( "a/CVS/Entries" );
+        createFile( "f/g/h.java" );
+        createFile( "i.txt" );
+        assertTrue( new File( baseDir, "empty" ).mkdirs() );
+    }
+
+    private void createFile( String name )
+        throws IOException
+    {
+        File file = new File( baseDir, name );
+        assertTrue( file.getParentFile().isDirectory() || file.getParentFile().mkdirs() );
+        FileOutputStream fos = new FileOutputStream( file );
+        fos.write( name.getBytes( "UTF-8" ) );
+        fos.close();
+    }
+
+    private PlexusIoFileResourceCollection newCollection()
+    {
+        PlexusIoFileResourceCollection collection = new PlexusIoFileResourceCollection();
+        collection.setBaseDir( baseDir );
+        return collection;
+    }
+
+    private static List<String> names( Iterator<PlexusIoResource> resources )
+        throws IOException
+    {
+        List<String> result = new ArrayList<String>();
+        while ( resources.hasNext() )
+        {
+            result.add( resources.next().getName().replace( File.separatorChar, '/' ) );
+        }
+        if ( resources instanceof Closeable )
+        {
+            ( (Closeable) resources ).close();
+        }
+        return result;
+    }
+
+    public void testStreamingSelectsSameResourcesAsScanning()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        String[][] patterns = { null, { "**/*.java" }, { "a/**" }, { "**/*.txt", "empty/" } };
+        for ( String[] includes : patterns )
+        {
+            PlexusIoFileResourceCollection scanning = newCollection();
+            scanning.setIncludes( includes );
+            scanning.setExcludes( new String[]{ "a/b/c.txt" } );
+
+            PlexusIoFileResourceCollection streaming = newCollection();
+            streaming.setIncludes( includes );
+            streaming.setExcludes( new String[]{ "a/b/c.txt" } );
+            streaming.setStreaming( true );
+
+            assertEquals( new HashSet<String>( names( scanning.getResources() ) ),
+                          new HashSet<String>( names( streaming.getResources() ) ) );
+        }
+    }
+
+    /**
+     * The DirectoryScanner returns the links themselves, if not following them, but doesn't descend
+     * into linked directories. Dangling links are skipped. Every other mode must do the same.
+     */
+    public void testSymbolicLinksInEveryMode()
+        throws Exception
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        File dir = new File( "target/plexus.io.symlinkTest" );
+        FileUtils.deleteDirectory( dir );
+        FileUtils.copyDirectoryStructure( baseDir, new File( dir, "real" ) );
+        Path links = dir.toPath().resolve( "links" );
+        Files.createDirectories( links );
+        Files.createSymbolicLink( links.resolve( "toFile" ), Paths.get( "../real/i.txt" ) );
+        Files.createSymbolicLink( links.resolve( "toDir" ), Paths.get( "../real/a" ) );
+        Files.createSymbolicLink( links.resolve( "dangling" ), Paths.get( "../real/missing" ) );
+        // Newer than the links: The resources, and the walk must agree on whose time is used
+        assertTrue( new File( dir, "real/i.txt" ).setLastModified( System.currentTimeMillis() + 3600000L ) );
+        File indexFile = new File( "target/plexus.io.symlinkTest.index" );
+        for ( boolean following : new boolean[]{ false, true } )
+        {
+            List<String> expected = names( symlinkCollection( dir, following ).getResources() );
+            Collections.sort( expected );
+
+            PlexusIoFileResourceCollection linksOnly = symlinkCollection( dir, following );
+            linksOnly.setIncludes( new String[]{ "links/**" } );
+            long lastModified = 0;
+            for ( Iterator<PlexusIoResource> it = linksOnly.getResources(); it.hasNext(); )
+            {
+                lastModified = Math.max( lastModified, it.next().getLastModified() );
+            }
+            assertEquals( "following=" + following, lastModified, linksOnly.getLastModified() );
+
+            assertTrue( !indexFile.exists() || indexFile.delete() );
+            for ( int mode = 1; mode <= 3; mode++ )
+            {
+                PlexusIoFileResourceCollection collection = symlinkCollection( dir, following );
+                collection.setStreaming( mode == 1 );
+                collection.setParallelScan( mode == 2 );
+                collection.setIndexFile( mode == 3 ? indexFile : null );
+                List<String> actual = names( collection.getResources() );
+                Collections.sort( actual );
+                assertEquals( "following=" + following + ", mode=" + mode, expected, actual );
+            }
+        }
+    }
+
+    private static PlexusIoFileResourceCollection symlinkCollection( File dir, boolean following )
+    {
+        PlexusIoFileResourceCollection collection = new PlexusIoFileResourceCollection();
+        collection.setBaseDir( dir );
+        collection.setFollowingSymLinks( following );
+        return collection;
+    }
+
+    public void testStreamingReturnsDirectoriesBeforeTheirContents()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setStreaming( true );
+        collection.setPrefix( "p/" );
+
+        Iterator<PlexusIoResource> resources = collection.getResources();
+        assertTrue( resources instanceof Closeable );
+        List<String> names = names( resources );
+        assertEquals( "p/", names.get( 0 ) );
+        assertTrue( names.indexOf( "p/a" ) < names.indexOf( "p/a/b" ) );
+        assertTrue( names.indexOf( "p/a/b" ) < names.indexOf( "p/a/b/c.txt" ) );
+        assertFalse( names.contains( "p/a/CVS/Entries" ) );
+        assertTrue( names.contains( "p/empty" ) );
+    }
+
+    public void testParallelScanReturnsSameOrderAsStreaming()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        for ( int i = 0; i < 100; i++ )
+        {
+            createFile( "many/m" + i + ".txt" );
+            createFile( "many/d" + i + "/n.java" );
+        }
+        String[][] patterns = { null, { "**/*.java" }, { "a/**", "many/**" } };
+        for ( String[] includes : patterns )
+        {
+            PlexusIoFileResourceCollection streaming = newCollection();
+            streaming.setIncludes( includes );
+            streaming.setStreaming( true );
+
+            PlexusIoFileResourceCollection parallel = newCollection();
+            parallel.setIncludes( includes );
+            parallel.setParallelScan( true );
+
+            assertEquals( names( streaming.getResources() ), names( parallel.getResources() ) );
+        }
+    }
+
+    public void testParallelScanParallelism()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        PlexusIoFileResourceCollection streaming = newCollection();
+        streaming.setStreaming( true );
+        List<String> expected = names( streaming.getResources() );
+        for ( int parallelism : new int[]{ 1, 3 } )
+        {
+            PlexusIoFileResourceCollection collection = newCollection();
+            collection.setParallelScan( true );
+            collection.setScanParallelism( parallelism );
+            assertEquals( parallelism, collection.getScanParallelism() );
+            assertEquals( expected, names( collection.getResources() ) );
+        }
+        try
+        {
+            newCollection().setScanParallelism( -1 );
+            fail( "Expected exception" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // Ok
+        }
+    }
+
+    public void testParallelScanThrowsIOException()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        // The entries of a directory without execute permission can be listed, but not read
+        File dir = new File( baseDir, "a/b" );
+        assertTrue( dir.setExecutable( false, false ) );
+        try
+        {
+            boolean effective;
+            try
+            {
+                Files.readAttributes( new File( dir, "c.txt" ).toPath(), BasicFileAttributes.class );
+                effective = false; // Running as root
+            }
+            catch ( IOException e )
+            {
+                effective = true;
+            }
+            if ( effective )
+            {
+                PlexusIoFileResourceCollection collection = newCollection();
+                collection.setParallelScan( true );
+                try
+                {
+                    collection.getResources();
+                    fail( "Expected exception" );
+                }
+                catch ( IOException e )
+                {
+                    // Ok
+                }
+            }
+        }
+        finally
+        {
+            assertTrue( dir.setExecutable( true, false ) );
+        }
+
+        // A selector may fail, too
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setParallelScan( true );
+        collection.setFileSelectors( new FileSelector[]{ new FileSelector()
+        {
+            public boolean isSelected( @Nonnull FileInfo fileInfo )
+                throws IOException
+            {
+                if ( fileInfo.getName().endsWith( "h.java" ) )
+                {
+                    throw new IOException( "Unreadable: " + fileInfo.getName() );
+                }
+                return true;
+            }
+        } } );
+        try
+        {
+            collection.getResources();
+            fail( "Expected exception" );
+        }
+        catch ( IOException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().startsWith( "Unreadable: " ) );
+        }
+    }
+
+    public void testResourceStateIsReadOnlyOnce()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setIncludes( new String[]{ "i.txt" } );
+        Iterator<PlexusIoResource> resources = collection.getResources();
+        PlexusIoResource resource = resources.next();
+        assertFalse( resources.hasNext() );
+
+        File file = new File( baseDir, "i.txt" );
+        long lastModified = file.lastModified();
+        assertTrue( file.delete() );
+
+        // The getters report the state at scan time, without asking the file system again
+        assertTrue( resource.isExisting() );
+        assertTrue( resource.isFile() );
+        assertFalse( resource.isDirectory() );
+        assertEquals( "i.txt".length(), resource.getSize() );
+        assertEquals( lastModified, resource.getLastModified() );
+    }
+
+    public void testTransformOnRead()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        final int[] transformations = new int[1];
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setIncludes( new String[]{ "i.txt" } );
+        collection.setTransformOnRead( true );
+        collection.setStreamTransformer( new InputStreamTransformer()
+        {
+            @Nonnull
+            public InputStream transform( @Nonnull PlexusIoResource resource, @Nonnull InputStream inputStream )
+                throws IOException
+            {
+                transformations[0]++;
+                return new SequenceInputStream( inputStream, new ByteArrayInputStream( "!!".getBytes( "UTF-8" ) ) );
+            }
+        } );
+
+        PlexusIoResource resource = collection.getResources().next();
+        assertEquals( 0, transformations[0] );
+
+        assertEquals( "i.txt!!", IOUtil.toString( resource.getContents() ) );
+        assertEquals( 1, transformations[0] );
+        assertEquals( "i.txt!!".length(), resource.getSize() );
+        assertEquals( 1, transformations[0] );
+        assertEquals( "i.txt!!", IOUtil.toString( resource.getContents() ) );
+        assertEquals( 2, transformations[0] );
+    }
+
+    public void testBufferingPolicy()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        final File spillDir = new File( baseDir, "spill" );
+        assertTrue( spillDir.mkdirs() );
+        final BufferingPolicy policy = new BufferingPolicy( 1000, spillDir, 8 );
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setIncludes( new String[]{ "a/b/*" } );
+        collection.setBufferingPolicy( policy );
+        collection.setStreamTransformer( new InputStreamTransformer()
+        {
+            @Nonnull
+            public InputStream transform( @Nonnull PlexusIoResource resource, @Nonnull InputStream inputStream )
+                throws IOException
+            {
+                return new SequenceInputStream( inputStream, new ByteArrayInputStream( "!!".getBytes( "UTF-8" ) ) );
+            }
+        } );
+
+        // "a/b/c.txt!!" exceeds the memory budget of 8 bytes, and is spilled.
+        // Without a spill manager, a file is deleted, as soon as it has been read.
+        List<PlexusIoResource> resources = new ArrayList<PlexusIoResource>();
+        for ( Iterator<PlexusIoResource> it = collection.getResources(); it.hasNext(); )
+        {
+            resources.add( it.next() );
+        }
+        assertEquals( 2, resources.size() );
+        assertEquals( 2, spillDir.list().length );
+        assertEquals( 0, policy.getMemoryUsed() );
+        for ( PlexusIoResource resource : resources )
+        {
+            String expected = resource.getName().replace( File.separatorChar, '/' ) + "!!";
+            assertEquals( expected.length(), resource.getSize() );
+            InputStream contents = resource.getContents();
+            assertEquals( expected, IOUtil.toString( contents ) );
+            contents.close();
+        }
+        assertEquals( 0, spillDir.list().length );
+        // Reading again runs the transformer again
+        for ( PlexusIoResource resource : resources )
+        {
+            String expected = resource.getName().replace( File.separatorChar, '/' ) + "!!";
+            assertEquals( expected, IOUtil.toString( resource.getContents() ) );
+        }
+
+        // With a spill manager, the files are kept for repeated reads, until the collection is closed.
+        final SpillManager spillManager = new SpillManager();
+        collection.setSpillManager( spillManager );
+        resources.clear();
+        for ( Iterator<PlexusIoResource> it = collection.getResources(); it.hasNext(); )
+        {
+            resources.add( it.next() );
+        }
+        for ( PlexusIoResource resource : resources )
+        {
+            String expected = resource.getName().replace( File.separatorChar, '/' ) + "!!";
+            for ( int i = 0; i < 2; i++ )
+            {
+                InputStream contents = resource.getContents();
+                assertEquals( expected, IOUtil.toString( contents ) );
+                contents.close();
+            }
+        }
+        assertEquals( 2, spillDir.list().length );
+        assertEquals( 2, spillManager.getSpillFileCount() );
+        collection.close();
+        assertEquals( 0, spillDir.list().length );
+        assertEquals( 0, spillManager.getSpillFileCount() );
+    }
+
+    public void testBufferingPolicyMemoryBudget()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        final BufferingPolicy policy = new BufferingPolicy( 1000, null, 1000 );
+        final AtomicInteger transformations = new AtomicInteger();
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setIncludes( new String[]{ "i.txt", "a/b/*" } );
+        collection.setBufferingPolicy( policy );
+        collection.setStreamTransformer( new InputStreamTransformer()
+        {
+            @Nonnull
+            public InputStream transform( @Nonnull PlexusIoResource resource, @Nonnull InputStream inputStream )
+                throws IOException
+            {
+                transformations.incrementAndGet();
+                return inputStream;
+            }
+        } );
+        collection.setFileSelectors( new FileSelector[]{ new FileSelector()
+        {
+            public boolean isSelected( @Nonnull FileInfo fileInfo )
+            {
+                return "i.txt".equals( fileInfo.getName() );
+            }
+        } } );
+
+        // The deselected resources are neither transformed, nor buffered
+        Iterator<PlexusIoResource> resources = collection.getResources();
+        PlexusIoResource resource = resources.next();
+        assertFalse( resources.hasNext() );
+        assertEquals( 1, transformations.get() );
+        assertEquals( "i.txt".length(), policy.getMemoryUsed() );
+
+        // The contents in memory are kept for repeated reads
+        for ( int i = 0; i < 2; i++ )
+        {
+            InputStream contents = resource.getContents();
+            assertEquals( "i.txt", IOUtil.toString( contents ) );
+            contents.close();
+        }
+        assertEquals( 1, transformations.get() );
+        assertEquals( "i.txt".length(), policy.getMemoryUsed() );
+
+        // The memory is returned to the budget, once the resource is garbage collected
+        resources = null;
+        resource = null;
+        for ( int i = 0; i < 100 && policy.getMemoryUsed() != 0; i++ )
+        {
+            System.gc();
+            try
+            {
+                Thread.sleep( 10 );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        assertEquals( 0, policy.getMemoryUsed() );
+
+        // Closing the spill manager releases the memory of resources, which haven't been read
+        collection.setSpillManager( new SpillManager() );
+        resource = collection.getResources().next();
+        assertEquals( "i.txt".length(), policy.getMemoryUsed() );
+        collection.close();
+        assertEquals( 0, policy.getMemoryUsed() );
+        assertEquals( "i.txt", IOUtil.toString( resource.getContents() ) );
+    }
+
+    public void testDeduplicatingBufferingPolicy()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        final File spillDir = new File( baseDir, "spill" );
+        assertTrue( spillDir.mkdirs() );
+        final BufferingPolicy policy = new BufferingPolicy( 0, spillDir, BufferingPolicy.UNLIMITED, false, true );
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setIncludes( new String[]{ "**/*.java", "**/*.txt" } );
+        collection.setBufferingPolicy( policy );
+        collection.setStreamTransformer( new InputStreamTransformer()
+        {
+            @Nonnull
+            public InputStream transform( @Nonnull PlexusIoResource resource, @Nonnull InputStream inputStream )
+                throws IOException
+            {
+                String header = resource.getName().endsWith( ".java" ) ? "/* java */" : "# text";
+                return new ByteArrayInputStream( header.getBytes( "UTF-8" ) );
+            }
+        } );
+
+        List<PlexusIoResource> resources = new ArrayList<PlexusIoResource>();
+        for ( Iterator<PlexusIoResource> it = collection.getResources(); it.hasNext(); )
+        {
+            resources.add( it.next() );
+        }
+        // Two .java files, and three .txt files share two spilled buffers.
+        assertEquals( 5, resources.size() );
+        assertEquals( 2, spillDir.list().length );
+        assertEquals( 2, policy.getDedupStore().getSharedBufferCount() );
+        assertEquals( "/* java */".length() + 2 * "# text".length(), policy.getDeduplicatedBytes() );
+
+        for ( PlexusIoResource resource : resources )
+        {
+            String expected = resource.getName().endsWith( ".java" ) ? "/* java */" : "# text";
+            assertEquals( expected.length(), resource.getSize() );
+            InputStream contents = resource.getContents();
+            assertEquals( expected, IOUtil.toString( contents ) );
+            contents.close();
+        }
+        assertEquals( 0, policy.getDedupStore().getSharedBufferCount() );
+        assertEquals( 0, spillDir.list().length );
+
+        // Closing the spill manager releases the references, which are still held
+        collection.setSpillManager( new SpillManager() );
+        resources.clear();
+        for ( Iterator<PlexusIoResource> it = collection.getResources(); it.hasNext(); )
+        {
+            resources.add( it.next() );
+        }
+        assertEquals( 2, policy.getDedupStore().getSharedBufferCount() );
+        InputStream contents = resources.get( 0 ).getContents();
+        IOUtil.toString( contents );
+        contents.close();
+        assertEquals( 2, spillDir.list().length );
+        collection.close();
+        assertEquals( 0, policy.getDedupStore().getSharedBufferCount() );
+        assertEquals( 0, spillDir.list().length );
+    }
+
+    private static String transferTo( FileChannelSupplier supplier )
+        throws IOException
+    {
+        FileChannel channel = supplier.openChannel();
+        if ( channel == null )
+        {
+            return null;
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try
+        {
+            channel.transferTo( supplier.getChannelOffset(), supplier.getChannelLength(),
+                                Channels.newChannel( baos ) );
+        }
+        finally
+        {
+            channel.close();
+        }
+        return baos.toString( "UTF-8" );
+    }
+
+    public void testFileChannel()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setIncludes( new String[]{ "i.txt" } );
+        PlexusIoResource resource = collection.getResources().next();
+        assertEquals( "i.txt", transferTo( (FileChannelSupplier) resource ) );
+        PlexusIoResource resolved = collection.resolve( resource );
+        assertEquals( "i.txt", transferTo( (FileChannelSupplier) resolved ) );
+
+        // Transformed in memory
+        collection.setStreamTransformer( new InputStreamTransformer()
+        {
+            @Nonnull
+            public InputStream transform( @Nonnull PlexusIoResource resource, @Nonnull InputStream inputStream )
+                throws IOException
+            {
+                return new SequenceInputStream( inputStream, new ByteArrayInputStream( "!!".getBytes( "UTF-8" ) ) );
+            }
+        } );
+        resource = collection.getResources().next();
+        assertNull( transferTo( (FileChannelSupplier) resource ) );
+
+        // Transformed, and spilled
+        final File spillDir = new File( baseDir, "spill" );
+        assertTrue( spillDir.mkdirs() );
+        collection.setBufferingPolicy( new BufferingPolicy( 0, spillDir, BufferingPolicy.UNLIMITED ) );
+        resource = collection.getResources().next();
+        assertEquals( "i.txt!!", transferTo( (FileChannelSupplier) resource ) );
+        assertEquals( 0, spillDir.list().length );
+        assertNull( transferTo( (FileChannelSupplier) resource ) );
+
+        // With a spill manager, the spilled contents are kept, until the collection is closed
+        collection.setSpillManager( new SpillManager() );
+        resource = collection.getResources().next();
+        assertEquals( "i.txt!!", transferTo( (FileChannelSupplier) resource ) );
+        assertEquals( 1, spillDir.list().length );
+        assertEquals( "i.txt!!", transferTo( (FileChannelSupplier) resource ) );
+        assertEquals( "i.txt!!", IOUtil.toString( resource.getContents() ) );
+        collection.close();
+        assertEquals( 0, spillDir.list().length );
+    }
+
+    public void testDirectoryDescentSelectorPrunesSubtrees()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        for ( int mode = 0; mode < 3; mode++ )
+        {
+            final List<String> seen = new ArrayList<String>();
+            class PruningSelector
+                implements FileSelector, DirectoryDescentSelector
+            {
+                public boolean isSelected( @Nonnull FileInfo fileInfo )
+                {
+                    seen.add( fileInfo.getName().replace( File.separatorChar, '/' ) );
+                    return true;
+                }
+
+                public boolean shouldDescend( @Nonnull String directoryName )
+                {
+                    return !"p/a".equals( directoryName.replace( File.separatorChar, '/' ) );
+                }
+            }
+            PlexusIoFileResourceCollection collection = newCollection();
+            collection.setPrefix( "p/" );
+            collection.setStreaming( mode == 1 );
+            collection.setParallelScan( mode == 2 );
+            collection.setExcludes( new String[]{ "**/g/**" } );
+            collection.setFileSelectors( new FileSelector[]{ new PruningSelector() } );
+
+            List<String> names = names( collection.getResources() );
+            assertTrue( names.contains( "p/a" ) );
+            assertTrue( names.contains( "p/f" ) );
+            assertFalse( names.contains( "p/f/g" ) );
+            assertTrue( names.contains( "p/i.txt" ) );
+            for ( String name : seen )
+            {
+                assertFalse( name, name.startsWith( "p/a/" ) );
+                assertFalse( name, name.startsWith( "p/f/g/" ) );
+            }
+        }
+    }
+
+    public void testIncrementalScan()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        File indexFile = new File( "target/plexus.io.fileCollectionTest.idx" );
+        assertTrue( !indexFile.exists() || indexFile.delete() );
+
+        PlexusIoFileResourceCollection streaming = newCollection();
+        streaming.setStreaming( true );
+        streaming.setExcludes( new String[]{ "a/b/c.txt" } );
+        List<String> expected = names( streaming.getResources() );
+
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setExcludes( new String[]{ "a/b/c.txt" } );
+        collection.setIndexFile( indexFile );
+        assertEquals( expected, names( collection.getResources() ) );
+        assertFalse( indexFile.exists() );
+        assertEquals( expected, names( collection.scanChanges().getAdded().iterator() ) );
+        assertTrue( indexFile.isFile() );
+
+        ScanChanges changes = collection.scanChanges();
+        assertEquals( expected, names( changes.getResources().iterator() ) );
+        assertEquals( expected, names( changes.getUnchanged().iterator() ) );
+        assertTrue( changes.getAdded().isEmpty() );
+        assertTrue( changes.getModified().isEmpty() );
+        assertTrue( changes.getRemoved().isEmpty() );
+
+        FileOutputStream fos = new FileOutputStream( new File( baseDir, "a/e.txt" ) );
+        fos.write( "modified".getBytes( "UTF-8" ) );
+        fos.close();
+        createFile( "a/b/new.txt" );
+        assertTrue( new File( baseDir, "i.txt" ).delete() );
+
+        // Neither enumerating, nor an uncommitted scan loses the changes
+        names( collection.getResources() );
+        assertEquals( 1, collection.scanChanges( false ).getAdded().size() );
+        changes = collection.scanChanges( false );
+        assertEquals( names( streaming.getResources() ), names( changes.getResources().iterator() ) );
+        assertEquals( "[a/b/new.txt]", names( changes.getAdded().iterator() ).toString() );
+        List<String> modified = names( changes.getModified().iterator() );
+        assertTrue( modified.contains( "a/e.txt" ) );
+        assertFalse( modified.contains( "a/b/d.java" ) );
+        assertTrue( names( changes.getUnchanged().iterator() ).contains( "a/b/d.java" ) );
+        assertEquals( "[i.txt]", changes.getRemoved().toString() );
+        assertEquals( "a/b/new.txt".length(), changes.getAdded().get( 0 ).getSize() );
+
+        changes.commit();
+        changes = collection.scanChanges();
+        assertTrue( changes.getAdded().isEmpty() );
+        assertTrue( changes.getModified().isEmpty() );
+        assertTrue( changes.getRemoved().isEmpty() );
+    }
+
+    public void testIncrementalScanOfLinksAndRecentDirectories()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        File indexFile = new File( "target/plexus.io.fileCollectionTest.idx" );
+        assertTrue( !indexFile.exists() || indexFile.delete() );
+        Files.createSymbolicLink( new File( baseDir, "a/link.txt" ).toPath(), Paths.get( "e.txt" ) );
+        File dir = new File( baseDir, "a" );
+        final long dirModified = dir.lastModified();
+
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setFollowingSymLinks( false );
+        collection.setIndexFile( indexFile );
+        assertTrue( names( collection.scanChanges().getAdded().iterator() ).contains( "a/link.txt" ) );
+
+        // Without following, a symbolic link is unchanged, as long as the link itself is
+        ScanChanges changes = collection.scanChanges( false );
+        assertTrue( names( changes.getUnchanged().iterator() ).contains( "a/link.txt" ) );
+        assertTrue( changes.getModified().isEmpty() );
+
+        // A file, which is created right after the scan, may leave the directories timestamp unchanged
+        // on a file system with coarse timestamps, so the directory is listed again
+        FileScanIndex index = FileScanIndex.read( indexFile, baseDir );
+        assertTrue( index.isRacilyListed( index.get( "a" ) ) );
+        createFile( "a/racy.txt" );
+        assertTrue( dir.setLastModified( dirModified ) );
+        changes = collection.scanChanges();
+        assertEquals( "[a/racy.txt]", names( changes.getAdded().iterator() ).toString() );
+    }
+
+    public void testAttributeProviders()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        // A provider, which doesn't read the file state, like one for a posix only file system
+        final AttributeProvider posixOnly = new AttributeProvider()
+        {
+            public boolean isSupported( @Nonnull File file )
+            {
+                return true;
+            }
+
+            @Nonnull
+            public PlexusIoResourceAttributes getAttributes( @Nonnull File file )
+            {
+                return CompactResourceAttributes.of( null, "someone", null, "somegroup", 0612, false );
+            }
+        };
+        for ( int mode = 0; mode < 3; mode++ )
+        {
+            PlexusIoFileResourceCollection collection = newCollection();
+            collection.setStreaming( mode == 1 );
+            collection.setParallelScan( mode == 2 );
+            collection.setIncludingEmptyDirectories( false );
+            collection.setAttributeProviders( new AttributeProvider[]{ posixOnly } );
+            int count = 0;
+            for ( Iterator<PlexusIoResource> it = collection.getResources(); it.hasNext(); count++ )
+            {
+                PlexusIoResource resource = it.next();
+                PlexusIoResourceAttributes attrs = ( (ResourceAttributeSupplier) resource ).getAttributes();
+                assertEquals( 0612, attrs.getOctalMode() );
+                assertEquals( "someone", attrs.getUserName() );
+                assertTrue( resource.isFile() );
+                assertEquals( resource.getName().replace( File.separatorChar, '/' ).length(), resource.getSize() );
+            }
+            assertTrue( count > 0 );
+        }
+    }
+
+    public void testLastModifiedWithoutResources()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        final long time = 1400000000000L;
+        assertTrue( new File( baseDir, "a/b/d.java" ).setLastModified( time ) );
+        assertTrue( new File( baseDir, "a/CVS/Entries" ).setLastModified( time + 5000 ) );
+
+        PlexusIoFileResourceCollection collection = newCollection();
+        long expected = 0;
+        for ( Iterator<PlexusIoResource> it = collection.getResources(); it.hasNext(); )
+        {
+            expected = Math.max( expected, it.next().getLastModified() );
+        }
+        assertEquals( expected, collection.getLastModified() );
+
+        collection.setIncludes( new String[]{ "**/*.java" } );
+        collection.setExcludes( new String[]{ "f/**" } );
+        collection.setIncludingEmptyDirectories( false );
+        assertEquals( time, collection.getLastModified() );
+        assertTrue( collection.isNewerThan( time - 1000 ) );
+        assertFalse( collection.isNewerThan( time ) );
+
+        collection.setCachingLastModified( true );
+        assertFalse( collection.isNewerThan( time ) );
+        assertTrue( new File( baseDir, "a/b/d.java" ).setLastModified( time + 10000 ) );
+        assertEquals( time, collection.getLastModified() );
+        names( collection.getResources() );
+        assertEquals( time + 10000, collection.getLastModified() );
+        assertTrue( collection.isNewerThan( time ) );
+
+        // Changing the configuration invalidates the cached walk
+        assertTrue( new File( baseDir, "f/g/h.java" ).setLastModified( time + 20000 ) );
+        collection.setExcludes( null );
+        assertEquals( time + 20000, collection.getLastModified() );
+        collection.setIncludes( new String[]{ "a/**/*.java" } );
+        assertEquals( time + 10000, collection.getLastModified() );
+        collection.setBaseDir( new File( baseDir, "f" ) );
+        collection.setIncludes( new String[]{ "**/*.java" } );
+        assertEquals( time + 20000, collection.getLastModified() );
+    }
+
+    public void testMergedAttributesAreShared()
+        throws IOException
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setIncludes( new String[]{ "a/e.txt", "i.txt" } );
+        collection.setOverrideAttributes( -1, null, -1, null, 0640, 0750 );
+        List<PlexusIoResource> resources = new ArrayList<PlexusIoResource>();
+        for ( Iterator<PlexusIoResource> it = collection.getResources(); it.hasNext(); )
+        {
+            resources.add( it.next() );
+        }
+        assertEquals( 2, resources.size() );
+        PlexusIoResourceAttributes first = ( (ResourceAttributeSupplier) resources.get( 0 ) ).getAttributes();
+        PlexusIoResourceAttributes second = ( (ResourceAttributeSupplier) resources.get( 1 ) ).getAttributes();
+        assertEquals( 0640, first.getOctalMode() );
+        assertSame( first, second );
+
+        collection.setOverrideAttributes( -1, null, -1, null, 0600, 0700 );
+        Iterator<PlexusIoResource> it = collection.getResources();
+        assertEquals( 0600, ( (ResourceAttributeSupplier) it.next() ).getAttributes().getOctalMode() );
+    }
+
+    public void testParallelForEach()
+        throws Exception
+    {
+        final PlexusIoFileResourceCollection collection = newCollection();
+        final List<String> expected = names( collection.getResources() );
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try
+        {
+            final AtomicInteger inFlight = new AtomicInteger();
+            final AtomicInteger maxInFlight = new AtomicInteger();
+            final AtomicInteger count = new AtomicInteger();
+            collection.stream().forEach( executor, 2, new PlexusIoResourceConsumer()
+            {
+                public void accept( PlexusIoResource resource )
+                    throws IOException
+                {
+                    int current = inFlight.incrementAndGet();
+                    if ( current > maxInFlight.get() )
+                    {
+                        maxInFlight.set( current );
+                    }
+                    try
+                    {
+                        Thread.sleep( 10 );
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        throw new IOException( e.getMessage() );
+                    }
+                    count.incrementAndGet();
+                    inFlight.decrementAndGet();
+                }
+            } );
+            assertEquals( expected.size(), count.get() );
+            assertTrue( maxInFlight.get() <= 2 );
+
+            try
+            {
+                collection.stream().forEach( executor, 4, new PlexusIoResourceConsumer()
+                {
+                    public void accept( PlexusIoResource resource )
+                        throws IOException
+                    {
+                        if ( resource.getName().endsWith( ".java" ) )
+                        {
+                            throw new IOException( "Failed: " + resource.getName() );
+                        }
+                    }
+                } );
+                fail( "Expected IOException" );
+            }
+            catch ( IOException e )
+            {
+                assertTrue( e.getMessage().startsWith( "Failed: " ) );
+            }
+
+            final List<String> completed = new ArrayList<String>();
+            collection.stream().forEachOrdered( executor, 3, new OrderedResourceProcessor<String>()
+            {
+                public String process( PlexusIoResource resource )
+                {
+                    return resource.getName().replace( File.separatorChar, '/' );
+                }
+
+                public void complete( PlexusIoResource resource, String result )
+                {
+                    completed.add( result );
+                }
+            } );
+            assertEquals( expected, completed );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    public void testForEachOnVirtualThreads()
+        throws IOException
+    {
+        final PlexusIoFileResourceCollection collection = newCollection();
+        final List<String> expected = names( collection.getResources() );
+        final List<String> seen = new ArrayList<String>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        collection.stream().forEach( 3, new PlexusIoResourceConsumer()
+        {
+            public void accept( PlexusIoResource resource )
+            {
+                assertTrue( inFlight.incrementAndGet() <= 3 );
+                synchronized ( seen )
+                {
+                    seen.add( resource.getName().replace( File.separatorChar, '/' ) );
+                }
+                inFlight.decrementAndGet();
+            }
+        } );
+        assertEquals( new HashSet<String>( expected ), new HashSet<String>( seen ) );
+        assertEquals( expected.size(), seen.size() );
+    }
+
+    public void testContentDigest()
+        throws Exception
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        final int[] transformations = new int[1];
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setIncludes( new String[]{ "i.txt" } );
+        collection.setContentDigestAlgorithm( "SHA-256" );
+        collection.setStreamTransformer( new InputStreamTransformer()
+        {
+            @Nonnull
+            public InputStream transform( @Nonnull PlexusIoResource resource, @Nonnull InputStream inputStream )
+                throws IOException
+            {
+                transformations[0]++;
+                return new SequenceInputStream( inputStream, new ByteArrayInputStream( "!!".getBytes( "UTF-8" ) ) );
+            }
+        } );
+        PlexusIoResource resource = collection.getResources().next();
+        assertEquals( 1, transformations[0] );
+        byte[] expected = MessageDigest.getInstance( "SHA-256" ).digest( "i.txt!!".getBytes( "UTF-8" ) );
+        assertTrue( Arrays.equals( expected, ( (ContentDigestSupplier) resource ).getContentDigest( "SHA-256" ) ) );
+        assertEquals( 1, transformations[0] );
+
+        File i = new File( baseDir, "i.txt" );
+        assertTrue( i.setLastModified( 1000000000000L ) );
+        File cacheFile = new File( baseDir.getParentFile(), "plexus.io.digestCache" );
+        assertTrue( !cacheFile.exists() || cacheFile.delete() );
+        ContentDigestCache cache = new ContentDigestCache( cacheFile );
+        collection = newCollection();
+        collection.setIncludes( new String[]{ "i.txt" } );
+        collection.setContentDigestCache( cache );
+        byte[] digest = ( (ContentDigestSupplier) collection.getResources().next() ).getContentDigest( "MD5" );
+        assertTrue( Arrays.equals( MessageDigest.getInstance( "MD5" ).digest( "i.txt".getBytes( "UTF-8" ) ), digest ) );
+        cache.save();
+
+        // Same size, modification time, and file key: The cached digest is returned.
+        FileOutputStream fos = new FileOutputStream( i );
+        fos.write( "I.TXT".getBytes( "UTF-8" ) );
+        fos.close();
+        assertTrue( i.setLastModified( 1000000000000L ) );
+        collection.setContentDigestCache( new ContentDigestCache( cacheFile ) );
+        PlexusIoResource cached = collection.getResources().next();
+        assertTrue( Arrays.equals( digest, ( (ContentDigestSupplier) cached ).getContentDigest( "MD5" ) ) );
+
+        assertTrue( i.setLastModified( 1000000001000L ) );
+        collection.setContentDigestCache( new ContentDigestCache( cacheFile ) );
+        PlexusIoResource changed = collection.getResources().next();
+        assertFalse( Arrays.equals( digest, ( (ContentDigestSupplier) changed ).getContentDigest( "MD5" ) ) );
+    }
+
+    public void testMetrics()
+        throws Exception
+    {
+        if ( !Java7Reflector.isAtLeastJava7() )
+        {
+            return;
+        }
+        CountingMetrics metrics = new CountingMetrics();
+        PlexusIoFileResourceCollection collection = newCollection();
+        collection.setIncludes( new String[]{ "**/*.txt" } );
+        collection.setIncludingEmptyDirectories( false );
+        collection.setFileSelectors( new FileSelector[]{ new AllFilesFileSelector() } );
+        collection.setFileMappers( new FileMapper[]{ new IdentityMapper() } );
+        collection.setStreamTransformer( new InputStreamTransformer()
+        {
+            @Nonnull
+            public InputStream transform( @Nonnull PlexusIoResource resource, @Nonnull InputStream inputStream )
+                throws IOException
+            {
+                return new SequenceInputStream( inputStream, new ByteArrayInputStream( "!!".getBytes( "UTF-8" ) ) );
+            }
+        } );
+        collection.setMetrics( metrics );
+
+        List<PlexusIoResource> resources = new ArrayList<PlexusIoResource>();
+        for ( Iterator<PlexusIoResource> it = collection.getResources(); it.hasNext(); )
+        {
+            resources.add( it.next() );
+        }
+        assertEquals( 3, resources.size() );
+        assertEquals( 3, metrics.getCount( CountingMetrics.Phase.SCAN ) );
+        assertEquals( 3, metrics.getCount( CountingMetrics.Phase.ATTRIBUTES ) );
+        assertEquals( 3, metrics.getCount( CountingMetrics.Phase.MERGE ) );
+        assertEquals( 3, metrics.getCount( CountingMetrics.Phase.SELECT ) );
+        assertTrue( metrics.getCount( CountingMetrics.Phase.MAP ) >= 3 );
+        assertEquals( 3, metrics.getCount( CountingMetrics.Phase.TRANSFORM ) );
+        assertEquals( 27, metrics.getBytes( CountingMetrics.Phase.TRANSFORM ) );
+        assertEquals( 0, metrics.getSpilledCount() );
+        assertEquals( 0, metrics.getCount( CountingMetrics.Phase.READ ) );
+
+        for ( PlexusIoResource resource : resources )
+        {
+            InputStream contents = resource.getContents();
+            IOUtil.toString( contents );
+            contents.close();
+        }
+        assertEquals( 3, metrics.getCount( CountingMetrics.Phase.READ ) );
+        assertEquals( 27, metrics.getBytes( CountingMetrics.Phase.READ ) );
+    }
+}
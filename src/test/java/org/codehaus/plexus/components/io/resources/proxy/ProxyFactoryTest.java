@@ -18,6 +18,7 @@
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Proxy;
 
 public class ProxyFactoryTest
     extends TestCase
@@ -32,6 +33,21 @@ public void testCreateProxy()
         assertFalse( proxy instanceof SymlinkDestinationSupplier );
     }
 
+    public void testCreateProxyIsNoReflectiveProxy()
+        throws Exception
+    {
+        final PlexusIoResource target = getDummySymlinkResource();
+        final PlexusIoResource proxy = ProxyFactory.createProxy( target, null );
+        assertFalse( Proxy.isProxyClass( proxy.getClass() ) );
+        assertTrue( proxy instanceof SymlinkDestinationSupplier );
+        assertTrue( proxy instanceof FileSupplier );
+        assertTrue( proxy instanceof ResourceAttributeSupplier );
+        assertEquals( target.getName(), proxy.getName() );
+        assertEquals( target.getSize(), proxy.getSize() );
+        assertSame( ( (FileSupplier) target ).getFile(), ( (FileSupplier) proxy ).getFile() );
+        assertEquals( target.toString(), proxy.toString() );
+    }
+
     public void testCreateProxyWithNameOverride()
         throws Exception
     {